@@ -5,10 +5,11 @@ import com.ag777.util.lang.Console;
 import com.ag777.util.lang.collection.ListUtils;
 import com.ag777.util.lang.collection.MapUtils;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 
 /**
@@ -79,6 +80,110 @@ public class BatchQueryUtils {
 
     }
 
+    /**
+     * 并发查询数据并对结果进行绑定(一对多)
+     * <p>
+     * 按batchSize切分id后，最多parallelism个批次同时查询，在等待前面批次结果的同时继续构建后续批次的id集合。
+     * 同一个id可以对应多条源数据和多条目标数据，每条源数据都会收到该id对应的全部目标数据。
+     * onMatch和listener都在调用线程中按批次顺序执行，不需要考虑线程安全
+     * </p>
+     * @param list 源数据
+     * @param getId1 从源数据中获取id的方法
+     * @param batchSize 批量执行的个数
+     * @param parallelism 同时查询的批次数
+     * @param queryList 根据id列表进行查询目标的方法，会在多个线程中同时调用
+     * @param getId2 从目标数据中获取前id的方法
+     * @param onMatch 源数据匹配到目标数据时触发该方法; 参数分别是<源数据,该id对应的所有目标数据,id>
+     * @param listener 每个批次查询完成后触发，可以为null，用于统计耗时以调整批量大小
+     * @param <T1> 源数据的类型
+     * @param <T2> 目标数据的类型
+     * @param <K> id的类型
+     * @throws InterruptedException 等待查询结果时被中断
+     */
+    public static <T1, T2, K>void bind(List<T1> list, Function<T1, K> getId1, int batchSize, int parallelism, Function<Set<K>, List<T2>> queryList, Function<T2, K> getId2, TriConsumer<T1, List<T2>, K> onMatch, ChunkListener listener) throws InterruptedException {
+        if (ListUtils.isEmpty(list)) {
+            return;
+        }
+        if (batchSize <= 0) {
+            batchSize = 1;
+        }
+        parallelism = Math.max(1, Math.min(parallelism, (list.size() + batchSize - 1) / batchSize));
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        // 已提交但还未处理结果的批次，按提交顺序处理
+        Deque<Chunk<T1, T2, K>> inFlight = new ArrayDeque<>(parallelism);
+        try {
+            int chunkIndex = 0;
+            Map<K, List<T1>> idMap = new HashMap<>(Math.min(list.size(), batchSize));
+            for (T1 t1 : list) {
+                K id = getId1.apply(t1);
+                idMap.computeIfAbsent(id, k -> new ArrayList<>(1)).add(t1);
+                if (idMap.size() == batchSize) {
+                    if (inFlight.size() == parallelism) {
+                        matchChunk(inFlight.poll(), getId2, onMatch, listener);
+                    }
+                    inFlight.add(submitChunk(pool, chunkIndex++, idMap, queryList));
+                    idMap = new HashMap<>(batchSize);
+                }
+            }
+            if (!idMap.isEmpty()) {
+                inFlight.add(submitChunk(pool, chunkIndex, idMap, queryList));
+            }
+            while (!inFlight.isEmpty()) {
+                matchChunk(inFlight.poll(), getId2, onMatch, listener);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static <T1, T2, K> Chunk<T1, T2, K> submitChunk(ExecutorService pool, int index, Map<K, List<T1>> idMap, Function<Set<K>, List<T2>> queryList) {
+        Chunk<T1, T2, K> chunk = new Chunk<>(index, idMap);
+        chunk.future = pool.submit(() -> {
+            long start = System.currentTimeMillis();
+            List<T2> result = queryList.apply(Collections.unmodifiableSet(idMap.keySet()));
+            chunk.costMills = System.currentTimeMillis() - start;
+            return result;
+        });
+        return chunk;
+    }
+
+    private static <T1, T2, K> void matchChunk(Chunk<T1, T2, K> chunk, Function<T2, K> getId2, TriConsumer<T1, List<T2>, K> onMatch, ChunkListener listener) throws InterruptedException {
+        List<T2> detailList;
+        try {
+            detailList = chunk.future.get();
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new RuntimeException(t);
+        }
+        if (listener != null) {
+            listener.onChunk(chunk.index, chunk.idMap.size(), detailList == null ? 0 : detailList.size(), chunk.costMills);
+        }
+        if (ListUtils.isEmpty(detailList)) {
+            return;
+        }
+        // 按id对目标数据分组
+        Map<K, List<T2>> detailMap = new HashMap<>(chunk.idMap.size());
+        for (T2 t2 : detailList) {
+            K id2 = getId2.apply(t2);
+            if (id2 == null) {  // 跳过id为空的项
+                continue;
+            }
+            if (chunk.idMap.containsKey(id2)) {
+                detailMap.computeIfAbsent(id2, k -> new ArrayList<>(1)).add(t2);
+            }
+        }
+        for (Map.Entry<K, List<T2>> entry : detailMap.entrySet()) {
+            for (T1 t1 : chunk.idMap.get(entry.getKey())) {
+                onMatch.apply(t1, entry.getValue(), entry.getKey());
+            }
+        }
+    }
+
     /**
      * 查询并绑定数
      * @param idMap id和源数据对应map
@@ -125,4 +230,31 @@ public class BatchQueryUtils {
     public interface TriConsumer<S, T, U> {
         void apply(S var1, T var2, U var3);
     }
+
+    @FunctionalInterface
+    public interface ChunkListener {
+        /**
+         * @param chunkIndex 批次序号，从0开始
+         * @param idCount 本批次的id数量
+         * @param resultCount 本批次查询到的目标数据数量
+         * @param costMills 本批次查询耗时(毫秒)
+         */
+        void onChunk(int chunkIndex, int idCount, int resultCount, long costMills);
+    }
+
+    /**
+     * 一个查询批次
+     */
+    private static class Chunk<T1, T2, K> {
+        private final int index;
+        private final Map<K, List<T1>> idMap;
+        private Future<List<T2>> future;
+        // 由查询线程写入，future.get()之后读取
+        private long costMills;
+
+        private Chunk(int index, Map<K, List<T1>> idMap) {
+            this.index = index;
+            this.idMap = idMap;
+        }
+    }
 }
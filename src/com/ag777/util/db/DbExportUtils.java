@@ -0,0 +1,590 @@
+package com.ag777.util.db;
+
+import com.ag777.util.db.model.ColumnPojo;
+import com.ag777.util.db.model.DBIPojo;
+import com.ag777.util.lang.collection.ListUtils;
+import com.ag777.util.lang.exception.model.ValidateException;
+import com.ag777.util.lang.thread.ParallelTaskUtils;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 基于jdbc的数据库导入导出工具，不依赖mysqldump/mysql客户端
+ * <p>
+ * 导出时每张表拆分为若干分块，有单列整数主键的大表按主键范围拆分，各分块并行导出为独立的gz文件，
+ * 目录下的manifest.properties记录分块计划和已完成的分块，中断后用同样的参数再次调用会跳过已完成的分块继续导出。
+ * 导入时各分块并行读取，批量插入，每个分块在一个事务中提交，已导入的分块记录在import.properties中，同样支持断点续传。
+ * 分块提交后、记录进度前中断时，续传会重新导入该分块，所以续传时每个未完成的分块先在同一事务中删除该分块范围内的数据再插入。
+ * </p>
+ * <p>
+ * 分块文件格式: gzip(魔数, 列数, 列名..., [1, 列值...]..., 0, 行数)，列值为类型标记+数据
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午6:20
+ */
+public class DbExportUtils {
+
+    /** 清单文件名 */
+    public static final String MANIFEST_FILE = "manifest.properties";
+    /** 导入进度文件名 */
+    public static final String IMPORT_PROGRESS_FILE = "import.properties";
+    /** 默认每个分块的行数 */
+    public static final long DEFAULT_CHUNK_ROWS = 500_000;
+
+    private static final int MAGIC = 0x41474442;    //AGDB
+    private static final int BUFFER = 64 * 1024;
+
+    private static final byte ROW = 1;
+    private static final byte END = 0;
+
+    private static final byte T_NULL = 0;
+    private static final byte T_LONG = 1;
+    private static final byte T_DOUBLE = 2;
+    private static final byte T_DECIMAL = 3;
+    private static final byte T_STRING = 4;
+    private static final byte T_BYTES = 5;
+    private static final byte T_TIMESTAMP = 6;
+    private static final byte T_DATE = 7;
+    private static final byte T_TIME = 8;
+    private static final byte T_BOOLEAN = 9;
+    private static final byte T_BIGINT = 10;
+
+    private DbExportUtils() {}
+
+    /**
+     * 并行导出
+     * <p>
+     * 目录下已有清单时按清单中的分块计划继续导出，只导出未完成的分块(此时tableList和chunkRows不生效)
+     * </p>
+     * @param dbFactory 数据库连接工厂，每个分块使用独立的连接，用完后释放
+     * @param tableList 需要导出的表，为空时导出所有表
+     * @param dir 导出目录
+     * @param parallelism 同时导出的分块数
+     * @param chunkRows 每个分块的行数(按主键范围估算)
+     * @param listener 进度回调，可以为null，会在多个线程中调用
+     * @return 导出的总行数(包含之前已完成的分块)
+     * @throws Exception 异常
+     */
+    public static long export(Callable<DbHelper> dbFactory, List<String> tableList, File dir, int parallelism, long chunkRows, ProgressListener listener) throws Exception {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("创建目录失败:" + dir.getAbsolutePath());
+        }
+        Manifest manifest = Manifest.load(new File(dir, MANIFEST_FILE));
+        if (manifest == null) {
+            DbHelper db = dbFactory.call();
+            try {
+                manifest = plan(db, tableList, Math.max(1, chunkRows), new File(dir, MANIFEST_FILE));
+            } finally {
+                db.dispose();
+            }
+            manifest.save();
+        }
+        Manifest m = manifest;
+        List<Integer> pending = m.pending(m);
+        AtomicInteger doneCount = new AtomicInteger(m.chunkCount() - pending.size());
+        ParallelTaskUtils.batch(pending, (chunk, index) -> {
+            DbHelper db = null;
+            try {
+                db = dbFactory.call();
+                long rows = exportChunk(db, m, chunk, dir);
+                m.markDone(chunk, rows);
+                if (listener != null) {
+                    listener.onChunk(m.table(chunk), chunk, rows, doneCount.incrementAndGet(), m.chunkCount());
+                }
+                return rows;
+            } catch (InterruptedException | ValidateException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ValidateException("导出分块" + m.file(chunk) + "异常:" + e.getMessage(), e);
+            } finally {
+                if (db != null) {
+                    db.dispose();
+                }
+            }
+        }, parallelism);
+        return m.totalRows();
+    }
+
+    /**
+     * 并行导入
+     * <p>
+     * 目标库中不存在的表会用导出时记录的建表语句(mysql语法)创建；
+     * 已导入的分块记录在导入目录下的{@value #IMPORT_PROGRESS_FILE}中，再次调用会跳过，需要重新导入时删除该文件。
+     * 该文件已存在时(续传)，未完成的分块在插入前会在同一事务中删除目标表中该分块的主键范围内的数据
+     * (没有按主键拆分的表删除整张表的数据)，避免上次已提交但未记录进度的分块被重复导入，
+     * 因此续传时这些范围内目标库原有的、不来自本次导入的数据也会被删除
+     * </p>
+     * @param dbFactory 目标数据库连接工厂，每个分块使用独立的连接，用完后释放
+     * @param dir 导出目录
+     * @param parallelism 同时导入的分块数
+     * @param batchSize 每批插入的行数
+     * @param listener 进度回调，可以为null，会在多个线程中调用
+     * @return 本次导入的行数
+     * @throws Exception 异常
+     */
+    public static long importDb(Callable<DbHelper> dbFactory, File dir, int parallelism, int batchSize, ProgressListener listener) throws Exception {
+        Manifest manifest = Manifest.load(new File(dir, MANIFEST_FILE));
+        if (manifest == null) {
+            throw new ValidateException("清单文件不存在:" + new File(dir, MANIFEST_FILE).getAbsolutePath());
+        }
+        if (manifest.pending(manifest).size() > 0) {
+            throw new ValidateException("导出未完成，请先完成导出");
+        }
+        Manifest progress = Manifest.load(new File(dir, IMPORT_PROGRESS_FILE));
+        boolean resume = progress != null;
+        if (progress == null) {
+            // 导入任何分块前先创建进度文件，之后再调用时都能判断为续传
+            progress = new Manifest(new File(dir, IMPORT_PROGRESS_FILE), new Properties());
+            progress.save();
+        }
+        DbHelper db = dbFactory.call();
+        try {
+            for (String tableName : manifest.tables()) {
+                String createSql = manifest.createSql(tableName);
+                if (!db.isTableExisted(tableName) && createSql != null) {
+                    db.update(createSql);
+                }
+            }
+        } finally {
+            db.dispose();
+        }
+        Manifest p = progress;
+        List<Integer> pending = p.pending(manifest);
+        AtomicInteger doneCount = new AtomicInteger(manifest.chunkCount() - pending.size());
+        int size = Math.max(1, batchSize);
+        List<Long> rowsList = ParallelTaskUtils.batch(pending, (chunk, index) -> {
+            DbHelper target = null;
+            try {
+                target = dbFactory.call();
+                long rows = importChunk(target, manifest.table(chunk), new File(dir, manifest.file(chunk)), size,
+                        resume ? manifest.where(chunk) : null);
+                p.markDone(chunk, rows);
+                if (listener != null) {
+                    listener.onChunk(manifest.table(chunk), chunk, rows, doneCount.incrementAndGet(), manifest.chunkCount());
+                }
+                return rows;
+            } catch (InterruptedException | ValidateException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new ValidateException("导入分块" + manifest.file(chunk) + "异常:" + e.getMessage(), e);
+            } finally {
+                if (target != null) {
+                    target.dispose();
+                }
+            }
+        }, parallelism);
+        long total = 0;
+        for (Long rows : rowsList) {
+            total += rows;
+        }
+        return total;
+    }
+
+    /**
+     * 生成分块计划
+     */
+    private static Manifest plan(DbHelper db, List<String> tableList, long chunkRows, File file) throws SQLException {
+        if (ListUtils.isEmpty(tableList)) {
+            tableList = db.tableNameList();
+            tableList.remove("meta");    //排除系统表
+        }
+        Properties props = new Properties();
+        props.setProperty("tables", String.join(",", tableList));
+        int chunk = 0;
+        for (String tableName : tableList) {
+            List<ColumnPojo> colList = db.columnList(tableName);
+            List<DBIPojo> dbiList = db.dbiList(tableName);
+            List<String> nameList = new ArrayList<>(colList.size());
+            ColumnPojo pk = null;
+            int pkCount = 0;
+            for (ColumnPojo col : colList) {
+                nameList.add(col.getName());
+                if (Boolean.TRUE.equals(col.isPK())) {
+                    pk = col;
+                    pkCount++;
+                }
+            }
+            props.setProperty("table." + tableName + ".columns", String.join(",", nameList));
+            List<ColumnPojo> createColList = db.isSqlite() ? DbUtils.columnList_sqlite2Mysql(colList, dbiList) : colList;
+            props.setProperty("table." + tableName + ".create",
+                    new SqlBuilder(tableName, createColList, false).setDbiList(dbiList).getCreateSql().sql);
+
+            List<String> whereList = new ArrayList<>();
+            if (pkCount == 1 && isIntegerType(pk.getSqlType())) {
+                String pkName = pk.getName();
+                try (Statement stmt = db.getConn().createStatement();
+                     ResultSet rs = stmt.executeQuery("select min(" + pkName + "), max(" + pkName + "), count(*) from " + tableName)) {
+                    rs.next();
+                    long min = rs.getLong(1);
+                    long max = rs.getLong(2);
+                    long count = rs.getLong(3);
+                    if (count > chunkRows) {
+                        // 假设主键大致均匀分布，按行数折算为主键跨度
+                        long n = (count + chunkRows - 1) / chunkRows;
+                        long step = Math.max(1, (max - min) / n + 1);
+                        for (long lo = min; lo <= max; lo += step) {
+                            whereList.add(pkName + " >= " + lo + (max - lo < step ? "" : " and " + pkName + " < " + (lo + step)));
+                        }
+                    }
+                }
+            }
+            if (whereList.isEmpty()) {
+                whereList.add("");
+            }
+            for (int i = 0; i < whereList.size(); i++) {
+                props.setProperty("chunk." + chunk + ".table", tableName);
+                props.setProperty("chunk." + chunk + ".file", tableName + "." + i + ".gz");
+                props.setProperty("chunk." + chunk + ".where", whereList.get(i));
+                chunk++;
+            }
+        }
+        props.setProperty("chunks", String.valueOf(chunk));
+        return new Manifest(file, props);
+    }
+
+    private static boolean isIntegerType(Integer sqlType) {
+        return sqlType != null && (sqlType == Types.INTEGER || sqlType == Types.BIGINT
+                || sqlType == Types.SMALLINT || sqlType == Types.TINYINT);
+    }
+
+    /**
+     * 导出一个分块，先写入临时文件，完成后改名
+     * @return 行数
+     */
+    private static long exportChunk(DbHelper db, Manifest manifest, int chunk, File dir) throws SQLException, IOException {
+        String tableName = manifest.table(chunk);
+        String[] columns = manifest.columns(tableName);
+        String where = manifest.where(chunk);
+        String sql = "select " + String.join(",", columns) + " from " + tableName + (where.isEmpty() ? "" : " where " + where);
+        File file = new File(dir, manifest.file(chunk));
+        File tmp = new File(dir, manifest.file(chunk) + ".tmp");
+        long rows = 0;
+        try (Statement stmt = db.getConn().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            // mysql驱动只有在fetchSize为Integer.MIN_VALUE时才会逐行流式读取
+            stmt.setFetchSize(db.isMysql() ? Integer.MIN_VALUE : DbUtils.DEFAULT_FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery(sql);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                         new GZIPOutputStream(new FileOutputStream(tmp), BUFFER), BUFFER))) {
+                out.writeInt(MAGIC);
+                out.writeInt(columns.length);
+                for (String column : columns) {
+                    out.writeUTF(column);
+                }
+                while (rs.next()) {
+                    out.writeByte(ROW);
+                    for (int i = 1; i <= columns.length; i++) {
+                        writeValue(out, rs.getObject(i));
+                    }
+                    rows++;
+                }
+                out.writeByte(END);
+                out.writeLong(rows);
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return rows;
+    }
+
+    /**
+     * 导入一个分块，整个分块在一个事务中提交
+     * @param deleteWhere 不为null时先在同一事务中删除该条件(空字符串为整张表)的数据
+     * @return 行数
+     */
+    private static long importChunk(DbHelper db, String tableName, File file, int batchSize, String deleteWhere) throws SQLException, IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GzipCompressorInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER)), BUFFER))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("不是有效的分块文件:" + file.getName());
+            }
+            String[] columns = new String[in.readInt()];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = in.readUTF();
+            }
+            StringBuilder sql = new StringBuilder("insert into ").append(tableName).append(" (")
+                    .append(String.join(",", columns)).append(") values (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "?" : ",?");
+            }
+            sql.append(')');
+
+            Connection conn = db.getConn();
+            boolean autoCommit = conn.getAutoCommit();
+            long rows = 0;
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                conn.setAutoCommit(false);
+                if (deleteWhere != null) {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.executeUpdate("delete from " + tableName + (deleteWhere.isEmpty() ? "" : " where " + deleteWhere));
+                    }
+                }
+                int batchCount = 0;
+                while (in.readByte() == ROW) {
+                    for (int i = 1; i <= columns.length; i++) {
+                        ps.setObject(i, readValue(in));
+                    }
+                    ps.addBatch();
+                    rows++;
+                    if (++batchCount == batchSize) {
+                        ps.executeBatch();
+                        batchCount = 0;
+                    }
+                }
+                long expected = in.readLong();
+                if (expected != rows) {
+                    throw new IOException("分块文件不完整:" + file.getName() + ", 应有" + expected + "行, 实际" + rows + "行");
+                }
+                if (batchCount > 0) {
+                    ps.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException | IOException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            return rows;
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException, SQLException {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            out.writeByte(T_LONG);
+            out.writeLong(((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(T_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(T_DECIMAL);
+            writeString(out, ((BigDecimal) value).toPlainString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(T_BIGINT);
+            writeString(out, value.toString());
+        } else if (value instanceof byte[]) {
+            out.writeByte(T_BYTES);
+            writeBytes(out, (byte[]) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(T_TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(T_DATE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof java.sql.Time) {
+            out.writeByte(T_TIME);
+            out.writeLong(((java.sql.Time) value).getTime());
+        } else if (value instanceof java.util.Date) {
+            // 读取时以nanos覆盖毫秒部分，所以nanos要包含毫秒
+            long time = ((java.util.Date) value).getTime();
+            out.writeByte(T_TIMESTAMP);
+            out.writeLong(time);
+            out.writeInt((int) Math.floorMod(time, 1000L) * 1_000_000);
+        } else if (value instanceof Boolean) {
+            out.writeByte(T_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Blob) {
+            Blob blob = (Blob) value;
+            out.writeByte(T_BYTES);
+            writeBytes(out, blob.getBytes(1, (int) blob.length()));
+        } else if (value instanceof Clob) {
+            StringBuilder sb = new StringBuilder();
+            try (Reader reader = ((Clob) value).getCharacterStream()) {
+                char[] buf = new char[4096];
+                int len;
+                while ((len = reader.read(buf)) != -1) {
+                    sb.append(buf, 0, len);
+                }
+            }
+            out.writeByte(T_STRING);
+            writeString(out, sb.toString());
+        } else {
+            out.writeByte(T_STRING);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case T_NULL:
+                return null;
+            case T_LONG:
+                return in.readLong();
+            case T_DOUBLE:
+                return in.readDouble();
+            case T_DECIMAL:
+                return new BigDecimal(readString(in));
+            case T_BIGINT:
+                return new BigInteger(readString(in));
+            case T_STRING:
+                return readString(in);
+            case T_BYTES:
+                return readBytes(in);
+            case T_TIMESTAMP:
+                Timestamp t = new Timestamp(in.readLong());
+                t.setNanos(in.readInt());
+                return t;
+            case T_DATE:
+                return new java.sql.Date(in.readLong());
+            case T_TIME:
+                return new java.sql.Time(in.readLong());
+            case T_BOOLEAN:
+                return in.readBoolean();
+            default:
+                throw new IOException("未知的列值类型:" + type);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * 分块清单，标记完成时立即落盘(先写临时文件再替换)，保证中断后可以继续
+     */
+    private static class Manifest {
+        private final File file;
+        private final Properties props;
+
+        Manifest(File file, Properties props) {
+            this.file = file;
+            this.props = props;
+        }
+
+        static Manifest load(File file) throws IOException {
+            if (!file.isFile()) {
+                return null;
+            }
+            Properties props = new Properties();
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            }
+            return new Manifest(file, props);
+        }
+
+        synchronized void save() throws IOException {
+            File tmp = new File(file.getPath() + ".tmp");
+            try (OutputStream out = new FileOutputStream(tmp)) {
+                props.store(out, null);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        synchronized void markDone(int chunk, long rows) throws IOException {
+            props.setProperty("chunk." + chunk + ".rows", String.valueOf(rows));
+            save();
+        }
+
+        /**
+         * @param plan 分块计划
+         * @return 计划中在本清单里未完成的分块
+         */
+        synchronized List<Integer> pending(Manifest plan) {
+            List<Integer> list = new ArrayList<>();
+            for (int i = 0; i < plan.chunkCount(); i++) {
+                if (props.getProperty("chunk." + i + ".rows") == null) {
+                    list.add(i);
+                }
+            }
+            return list;
+        }
+
+        synchronized long totalRows() {
+            long total = 0;
+            for (int i = 0; i < chunkCount(); i++) {
+                total += Long.parseLong(props.getProperty("chunk." + i + ".rows", "0"));
+            }
+            return total;
+        }
+
+        int chunkCount() {
+            return Integer.parseInt(props.getProperty("chunks", "0"));
+        }
+
+        List<String> tables() {
+            String tables = props.getProperty("tables", "");
+            return tables.isEmpty() ? new ArrayList<>() : ListUtils.of(tables.split(","));
+        }
+
+        String[] columns(String tableName) {
+            return props.getProperty("table." + tableName + ".columns").split(",");
+        }
+
+        String createSql(String tableName) {
+            return props.getProperty("table." + tableName + ".create");
+        }
+
+        String table(int chunk) {
+            return props.getProperty("chunk." + chunk + ".table");
+        }
+
+        String file(int chunk) {
+            return props.getProperty("chunk." + chunk + ".file");
+        }
+
+        String where(int chunk) {
+            return props.getProperty("chunk." + chunk + ".where", "");
+        }
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param tableName 表名
+         * @param chunk 分块序号
+         * @param rows 该分块的行数
+         * @param doneChunks 已完成的分块数(包含之前已完成的)
+         * @param totalChunks 总分块数
+         */
+        void onChunk(String tableName, int chunk, long rows, int doneChunks, int totalChunks);
+    }
+}
@@ -19,7 +19,7 @@ import com.ag777.util.lang.reflection.ReflectionUtils;
 /**
  * 
  * @author ag777
- * 共存亡: SqlBuilder.java, Column.java,Id.java, Table.java
+ * 共存亡: SqlBuilder.java, PojoMapper.java, Column.java,Id.java, Table.java
  */
 public class DbPojoUtils {
 	
@@ -74,4 +74,14 @@ public class DbPojoUtils {
 		}
 		return null;
 	}
+	
+	/**
+	 * 获取实体类的映射器，直接在实体和PreparedStatement/ResultSet之间读写，不经过Map
+	 * @param clazz 带table注释的类
+	 * @return 映射器，按类缓存
+	 * @see PojoMapper#of(Class)
+	 */
+	public static <T>PojoMapper<T> getMapper(Class<T> clazz) {
+		return PojoMapper.of(clazz);
+	}
 }
@@ -3,19 +3,35 @@ package com.ag777.util.db;
 import com.ag777.util.db.model.ColumnPojo;
 import com.ag777.util.db.model.DBIPojo;
 import com.ag777.util.lang.collection.ListUtils;
+import com.ag777.util.lang.exception.model.ValidateException;
+import com.ag777.util.lang.thread.ParallelTaskUtils;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 
 /**
  * 数据库操作工具类
  * 
  * @author ag777
- * @version create on 2017年12月01日,last modify at 2022年07月26日
+ * @version create on 2017年12月01日,last modify at 2026年10月17日
  */
 public class DbUtils {
 
+	/** 默认每次从数据源读取的行数 */
+	public static final int DEFAULT_FETCH_SIZE = 1000;
+	/** 默认每批插入的行数 */
+	public static final int DEFAULT_BATCH_SIZE = 1000;
+	/** 默认每插入多少行提交一次 */
+	public static final int DEFAULT_COMMIT_INTERVAL = 10000;
+	/** 进度回调的最小间隔(行) */
+	private static final int PROGRESS_INTERVAL = 10000;
+
 	private DbUtils() {}
 
 	private volatile static Consumer<String> onLog;
@@ -33,6 +49,7 @@ public class DbUtils {
 	 * <p>
 	 * 	数据源支持mysql数据库和sqlite数据库
 	 * 	目标数据库仅支持mysql数据库
+	 * 	表数据以流式方式复制，见{@link #copyData(String, DbHelper, DbHelper, int, int, int, CopyListener)}
 	 * </p>
 	 * 
 	 * @param source 数据源
@@ -47,6 +64,75 @@ public class DbUtils {
 		 * 2.在目标数据库中创建这些表(原来存在的表直接删掉)
 		 * 3.取出原表数据,插入新表
 		 */
+		List<String> tableList = createTables(source, target);
+		
+		for (String tableName : tableList) {	//插入数据
+			try {
+				copyData(tableName, source, target, DEFAULT_FETCH_SIZE, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL, null);
+			} catch (SQLException e) {
+				System.out.println(tableName+"异常");
+				log(tableName+"异常:"+e.getMessage());
+				return false;
+			}
+		}
+		
+		return true;
+	}
+
+	/**
+	 * 多表并行复制数据库
+	 * <p>
+	 * 	先用一组连接在目标库中建表，之后每张表在独立的连接上并行复制，连接由工厂方法创建，用完后释放
+	 * </p>
+	 *
+	 * @param sourceFactory 数据源连接工厂
+	 * @param targetFactory 目标数据库连接工厂
+	 * @param parallelism 同时复制的表数量
+	 * @param listener 复制进度回调，可以为null，会在多个线程中调用
+	 * @return 每张表复制的行数，顺序与表顺序一致
+	 * @throws Exception 异常
+	 */
+	public static List<Long> copyDb(Callable<DbHelper> sourceFactory, Callable<DbHelper> targetFactory, int parallelism, CopyListener listener) throws Exception {
+		List<String> tableList;
+		DbHelper source = sourceFactory.call();
+		try {
+			DbHelper target = targetFactory.call();
+			try {
+				tableList = createTables(source, target);
+			} finally {
+				target.dispose();
+			}
+		} finally {
+			source.dispose();
+		}
+
+		return ParallelTaskUtils.batch(tableList, (tableName, index) -> {
+			DbHelper s = null;
+			DbHelper t = null;
+			try {
+				s = sourceFactory.call();
+				t = targetFactory.call();
+				return copyData(tableName, s, t, DEFAULT_FETCH_SIZE, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_INTERVAL, listener);
+			} catch (InterruptedException | ValidateException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new ValidateException("复制表"+tableName+"异常:"+e.getMessage(), e);
+			} finally {
+				if (s != null) {
+					s.dispose();
+				}
+				if (t != null) {
+					t.dispose();
+				}
+			}
+		}, parallelism);
+	}
+
+	/**
+	 * 在目标数据库中重建数据源的所有表(原来存在的表直接删掉)
+	 * @return 表名列表
+	 */
+	private static List<String> createTables(DbHelper source, DbHelper target) throws SQLException {
 		List<String> tableList = source.tableNameList();
 		tableList.remove("meta");	//排除系统表
 		
@@ -65,41 +151,92 @@ public class DbUtils {
 			sb.doCreate(target);
 		}
 		System.out.println("创建表结束");
-		
-		for (String tableName : tableList) {	//插入数据
-			List<ColumnPojo> colList = source.columnList(tableName);
-			SqlBuilder sb = new SqlBuilder(tableName, colList, false);
-			if(!copyData(tableName, sb, source, target)) {
-				System.out.println(tableName+"异常");
-				return false;
-			}
-		}
-		
-		return true;
+		return tableList;
 	}
 	
 	/**
-	 * 复制表内数据
+	 * 流式复制表内数据
+	 * <p>
+	 * 	以只进游标按fetchSize读取数据源(mysql数据源使用逐行流式读取)，每行的列值直接写入插入语句的参数，
+	 * 	按batchSize通过jdbc批量插入目标表，每commitInterval行提交一次，内存占用与表大小无关。
+	 * 	中途失败时回滚未提交的部分，已提交的数据保留
+	 * </p>
 	 * @param tableName 表名
-	 * @param sb SqlBuilder
 	 * @param source 数据源
-	 * @param target 目标数据库
-	 * @return 是否成功
-	 * @throws Exception 异常
+	 * @param target 目标数据库(表需已存在)
+	 * @param fetchSize 每次从数据源读取的行数
+	 * @param batchSize 每批插入的行数
+	 * @param commitInterval 每插入多少行提交一次
+	 * @param listener 复制进度回调，可以为null
+	 * @return 复制的行数
+	 * @throws SQLException 异常
 	 */
-	private static boolean copyData(String tableName, SqlBuilder sb, DbHelper source, DbHelper target) throws Exception {
+	public static long copyData(String tableName, DbHelper source, DbHelper target, int fetchSize, int batchSize, int commitInterval, CopyListener listener) throws SQLException {
 		System.out.println("开始复制表:"+tableName);
+		List<ColumnPojo> colList = source.columnList(tableName);
+		SqlBuilder sb = new SqlBuilder(tableName, colList, false);
+		String insertSql = sb.getInsertSql().sql;
+		
+		StringBuilder selectSql = new StringBuilder("select ");
+		for (ColumnPojo col : colList) {
+			selectSql.append(col.getName()).append(',');
+		}
+		selectSql.setLength(selectSql.length()-1);
+		selectSql.append(" from ").append(tableName);
 		
-		List<Map<String, Object>> list = source.queryMapList("select * from "+tableName);
-				
-		return target.doTransaction(h->{
-			for (Map<String, Object> map : list) {
-				if(sb.doInsert(map, h) < 0) {
-					return false;
+		batchSize = Math.max(1, batchSize);
+		commitInterval = Math.max(batchSize, commitInterval);
+		Connection targetConn = target.getConn();
+		boolean autoCommit = targetConn.getAutoCommit();
+		long startTime = System.currentTimeMillis();
+		long rows = 0;
+		try (Statement stmt = source.getConn().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			// mysql驱动只有在fetchSize为Integer.MIN_VALUE时才会逐行流式读取，否则会把结果集全部读入内存
+			stmt.setFetchSize(source.isMysql() ? Integer.MIN_VALUE : Math.max(1, fetchSize));
+			targetConn.setAutoCommit(false);
+			try (ResultSet rs = stmt.executeQuery(selectSql.toString());
+					PreparedStatement ps = targetConn.prepareStatement(insertSql)) {
+				int colCount = colList.size();
+				int batchCount = 0;
+				while (rs.next()) {
+					// 列顺序与插入语句一致，直接从结果集写入参数，不产生中间的Map
+					for (int i = 1; i <= colCount; i++) {
+						ps.setObject(i, rs.getObject(i));
+					}
+					ps.addBatch();
+					rows++;
+					if (++batchCount == batchSize) {
+						ps.executeBatch();
+						batchCount = 0;
+					}
+					if (rows % commitInterval == 0) {
+						targetConn.commit();
+					}
+					if (listener != null && rows % PROGRESS_INTERVAL == 0) {
+						listener.onProgress(tableName, rows, rowsPerSec(rows, startTime), false);
+					}
+				}
+				if (batchCount > 0) {
+					ps.executeBatch();
 				}
+				targetConn.commit();
+			} catch (SQLException e) {
+				targetConn.rollback();
+				throw e;
 			}
-			return true;
-		});
+		} finally {
+			targetConn.setAutoCommit(autoCommit);
+		}
+		if (listener != null) {
+			listener.onProgress(tableName, rows, rowsPerSec(rows, startTime), true);
+		}
+		log(tableName+"复制完成, 共"+rows+"行");
+		return rows;
+	}
+
+	private static double rowsPerSec(long rows, long startTime) {
+		long cost = Math.max(1, System.currentTimeMillis() - startTime);
+		return rows * 1000d / cost;
 	}
 	
 	public static List<ColumnPojo> columnList_sqlite2Mysql(List<ColumnPojo> columnList, List<DBIPojo> dbiList) {
@@ -163,4 +300,15 @@ public class DbUtils {
 			onLog.accept(msg);
 		}
 	}
+
+	@FunctionalInterface
+	public interface CopyListener {
+		/**
+		 * @param tableName 表名
+		 * @param rows 已复制的行数
+		 * @param rowsPerSec 平均每秒复制的行数
+		 * @param finished 该表是否复制完成
+		 */
+		void onProgress(String tableName, long rows, double rowsPerSec, boolean finished);
+	}
 }
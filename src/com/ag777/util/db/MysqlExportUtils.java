@@ -5,9 +5,13 @@ import com.ag777.util.lang.collection.ListUtils;
 
 /**
  * mysql数据库导入导出工具
+ * <p>
+ * 仅拼接mysqldump/mysql命令，需要本机安装mysql客户端。
+ * 不依赖客户端、支持并行和断点续传的导入导出见{@link DbExportUtils}
+ * </p>
  * 
  * @author ag777
- * @version create on 2019年01月04日,last modify at 2019年01月04日
+ * @version create on 2019年01月04日,last modify at 2026年10月17日
  */
 public class MysqlExportUtils {
 	
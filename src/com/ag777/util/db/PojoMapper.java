@@ -0,0 +1,881 @@
+package com.ag777.util.db;
+
+import com.ag777.util.db.model.interf.Column;
+import com.ag777.util.db.model.interf.Id;
+import com.ag777.util.db.model.interf.Table;
+import com.ag777.util.lang.collection.MapUtils;
+import com.ag777.util.lang.reflection.ReflectionUtils;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 带{@link Table}/{@link Column}注解的实体类与jdbc之间的映射器
+ * <p>
+ * 通过{@link #of(Class)}获取，每个类只解析一次注解并缓存。
+ * 实体类为public且有public无参构造，且每个列字段是public或有public的getter/setter时，
+ * 用asm在运行时生成专用子类，直接调用字段/getter/setter读写PreparedStatement和ResultSet，不经过Map和反射；
+ * 否则退化为基于MethodHandle的实现，同样只在初始化时反射一次。
+ * 常用类型以外的字段通过getObject/setObject读写，其中枚举按name、LocalDate/LocalDateTime/LocalTime按对应的jdbc日期类型转换
+ * </p>
+ * <p>
+ * 相比{@link SqlBuilder#doBatchInsert(List, DbHelper)}，省去了实体转Map再用{@link MapUtils#get(Map, Object)}取值的过程
+ * </p>
+ *
+ * @param <T> 实体类型
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午9:20
+ */
+public abstract class PojoMapper<T> {
+
+    private static final Map<Class<?>, PojoMapper<?>> CACHE = new ConcurrentHashMap<>();
+    private static final AtomicInteger GENERATED_COUNT = new AtomicInteger();
+
+    private final Class<T> clazz;
+    private final String tableName;
+    private final String[] columns;
+    private final String idColumn;
+    private final String insertSql;
+    private final String selectSql;
+
+    protected PojoMapper(Class<T> clazz, String tableName, String[] columns, String idColumn) {
+        this.clazz = clazz;
+        this.tableName = tableName;
+        this.columns = columns;
+        this.idColumn = idColumn;
+        StringBuilder insert = new StringBuilder("INSERT INTO ").append(tableName).append(" (");
+        StringBuilder values = new StringBuilder();
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (String column : columns) {
+            insert.append(column).append(',');
+            values.append("?,");
+            select.append(column).append(',');
+        }
+        insert.setLength(insert.length() - 1);
+        values.setLength(values.length() - 1);
+        select.setLength(select.length() - 1);
+        this.insertSql = insert.append(") VALUES (").append(values).append(')').toString();
+        this.selectSql = select.append(" FROM ").append(tableName).toString();
+    }
+
+    /**
+     * 获取实体类对应的映射器，首次调用时解析注解并生成，之后从缓存获取
+     * @param clazz 带{@link Table}注解的实体类
+     * @return 映射器
+     * @throws IllegalArgumentException 类没有{@link Table}注解或者没有{@link Column}字段
+     */
+    @SuppressWarnings("unchecked")
+    public static <T>PojoMapper<T> of(Class<T> clazz) {
+        PojoMapper<?> mapper = CACHE.get(clazz);
+        if (mapper == null) {
+            mapper = CACHE.computeIfAbsent(clazz, PojoMapper::create);
+        }
+        return (PojoMapper<T>) mapper;
+    }
+
+    /**
+     * 将实体的列字段按{@link #getColumns()}的顺序绑定到参数1~n
+     * @param obj 实体
+     * @param ps 对应{@link #getInsertSql()}的PreparedStatement
+     * @throws SQLException 绑定异常
+     */
+    public abstract void bind(T obj, PreparedStatement ps) throws SQLException;
+
+    /**
+     * 创建实体并从结果集当前行读取数据
+     * @param rs 结果集
+     * @param indexes 每个列在结果集中的下标，0表示结果集中没有该列
+     * @return 实体
+     * @throws SQLException 读取异常
+     */
+    protected abstract T read(ResultSet rs, int[] indexes) throws SQLException;
+
+    /**
+     * 批量插入，每batchSize条执行一次jdbc批处理并提交
+     * <p>
+     * 执行期间关闭自动提交，结束后恢复；出现异常时回滚未提交的部分
+     * </p>
+     * @param list 实体列表
+     * @param db 数据库
+     * @param batchSize 每批条数
+     * @return 插入的条数
+     * @throws SQLException 插入异常
+     */
+    public int insertBatch(List<T> list, DbHelper db, int batchSize) throws SQLException {
+        if (list == null || list.isEmpty()) {
+            return 0;
+        }
+        batchSize = Math.max(1, batchSize);
+        Connection conn = db.getConn();
+        boolean autoCommit = conn.getAutoCommit();
+        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            conn.setAutoCommit(false);
+            int batchCount = 0;
+            for (T obj : list) {
+                bind(obj, ps);
+                ps.addBatch();
+                if (++batchCount == batchSize) {
+                    ps.executeBatch();
+                    conn.commit();
+                    batchCount = 0;
+                }
+            }
+            if (batchCount > 0) {
+                ps.executeBatch();
+                conn.commit();
+            }
+            return list.size();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * 查询整张表
+     * @param db 数据库
+     * @return 实体列表
+     * @throws SQLException 查询异常
+     */
+    public List<T> queryAll(DbHelper db) throws SQLException {
+        return queryList(selectSql, null, db);
+    }
+
+    /**
+     * 查询并映射为实体列表，结果集中按列名(忽略大小写)匹配字段，没有的列保持默认值
+     * @param sql sql
+     * @param params 参数
+     * @param db 数据库
+     * @return 实体列表
+     * @throws SQLException 查询异常
+     */
+    public List<T> queryList(String sql, Object[] params, DbHelper db) throws SQLException {
+        try (PreparedStatement ps = db.getConn().prepareStatement(sql)) {
+            if (params != null) {
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                return toList(rs);
+            }
+        }
+    }
+
+    /**
+     * 将结果集剩余的所有行映射为实体列表，不关闭结果集
+     * @param rs 结果集
+     * @return 实体列表
+     * @throws SQLException 读取异常
+     */
+    public List<T> toList(ResultSet rs) throws SQLException {
+        int[] indexes = indexes(rs.getMetaData());
+        List<T> list = new ArrayList<>();
+        while (rs.next()) {
+            list.add(read(rs, indexes));
+        }
+        return list;
+    }
+
+    /**
+     * 根据结果集的列名计算每个列字段的下标，逐行读取时复用
+     * @param meta 结果集元数据
+     * @return 每个列在结果集中的下标，0表示没有该列
+     * @throws SQLException 读取元数据异常
+     */
+    public int[] indexes(ResultSetMetaData meta) throws SQLException {
+        Map<String, Integer> labelMap = new HashMap<>();
+        for (int i = meta.getColumnCount(); i > 0; i--) {
+            labelMap.put(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), i);
+        }
+        int[] indexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            Integer index = labelMap.get(columns[i].toLowerCase(Locale.ROOT));
+            indexes[i] = index == null ? 0 : index;
+        }
+        return indexes;
+    }
+
+    public Class<T> getPojoClass() {
+        return clazz;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * @return 列名，顺序与{@link #getInsertSql()}的参数顺序一致
+     */
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * @return 主键列名，没有{@link Id}注解时为null
+     */
+    public String getIdColumn() {
+        return idColumn;
+    }
+
+    public String getInsertSql() {
+        return insertSql;
+    }
+
+    public String getSelectSql() {
+        return selectSql;
+    }
+
+    /**
+     * @return 是否为asm生成的实现
+     */
+    public boolean isGenerated() {
+        return !(this instanceof HandleMapper);
+    }
+
+    /*============内部方法=============*/
+    private static <T>PojoMapper<T> create(Class<T> clazz) {
+        Table table = clazz.getAnnotation(Table.class);
+        if (table == null) {
+            throw new IllegalArgumentException("类[" + clazz.getName() + "]没有@Table注解");
+        }
+        List<Field> fieldList = ReflectionUtils.getFieldListByAnnotation(clazz, Column.class);
+        if (fieldList.isEmpty()) {
+            throw new IllegalArgumentException("类[" + clazz.getName() + "]没有@Column字段");
+        }
+        String[] columns = new String[fieldList.size()];
+        String idColumn = null;
+        for (int i = 0; i < columns.length; i++) {
+            Field field = fieldList.get(i);
+            columns[i] = field.getAnnotation(Column.class).name();
+            if (idColumn == null && field.isAnnotationPresent(Id.class)) {
+                idColumn = columns[i];
+            }
+        }
+        try {
+            PojoMapper<T> generated = Generator.generate(clazz, table.name(), columns, idColumn, fieldList);
+            if (generated != null) {
+                return generated;
+            }
+        } catch (Throwable ignored) {
+            // 生成失败(如运行环境禁止定义类)时使用MethodHandle实现
+        }
+        try {
+            return new HandleMapper<>(clazz, table.name(), columns, idColumn, fieldList);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("无法访问类[" + clazz.getName() + "]的字段或构造函数", e);
+        }
+    }
+
+    /**
+     * @return 类型对应的读写方法名后缀，如int对应readInt/bindInt，未知类型为Object(读取时额外传入字段类型做转换)
+     */
+    private static String accessorSuffix(Class<?> type) {
+        String suffix = SUFFIX_MAP.get(type);
+        return suffix == null ? "Object" : suffix;
+    }
+
+    private static final Map<Class<?>, String> SUFFIX_MAP = new HashMap<>();
+    static {
+        SUFFIX_MAP.put(int.class, "Int");
+        SUFFIX_MAP.put(long.class, "Long");
+        SUFFIX_MAP.put(double.class, "Double");
+        SUFFIX_MAP.put(float.class, "Float");
+        SUFFIX_MAP.put(boolean.class, "Boolean");
+        SUFFIX_MAP.put(short.class, "Short");
+        SUFFIX_MAP.put(byte.class, "Byte");
+        SUFFIX_MAP.put(char.class, "Char");
+        SUFFIX_MAP.put(Integer.class, "IntegerObj");
+        SUFFIX_MAP.put(Long.class, "LongObj");
+        SUFFIX_MAP.put(Double.class, "DoubleObj");
+        SUFFIX_MAP.put(Float.class, "FloatObj");
+        SUFFIX_MAP.put(Boolean.class, "BooleanObj");
+        SUFFIX_MAP.put(Short.class, "ShortObj");
+        SUFFIX_MAP.put(Byte.class, "ByteObj");
+        SUFFIX_MAP.put(String.class, "String");
+        SUFFIX_MAP.put(BigDecimal.class, "BigDecimal");
+        SUFFIX_MAP.put(byte[].class, "Bytes");
+        SUFFIX_MAP.put(java.util.Date.class, "Date");
+        SUFFIX_MAP.put(java.sql.Date.class, "SqlDate");
+        SUFFIX_MAP.put(Timestamp.class, "Timestamp");
+    }
+
+    /*============读写辅助方法，生成的代码按类型直接调用，方法很小会被jit内联=============*/
+    protected static int readInt(ResultSet rs, int i) throws SQLException { return rs.getInt(i); }
+    protected static long readLong(ResultSet rs, int i) throws SQLException { return rs.getLong(i); }
+    protected static double readDouble(ResultSet rs, int i) throws SQLException { return rs.getDouble(i); }
+    protected static float readFloat(ResultSet rs, int i) throws SQLException { return rs.getFloat(i); }
+    protected static boolean readBoolean(ResultSet rs, int i) throws SQLException { return rs.getBoolean(i); }
+    protected static short readShort(ResultSet rs, int i) throws SQLException { return rs.getShort(i); }
+    protected static byte readByte(ResultSet rs, int i) throws SQLException { return rs.getByte(i); }
+    protected static char readChar(ResultSet rs, int i) throws SQLException {
+        String s = rs.getString(i);
+        return s == null || s.isEmpty() ? '\0' : s.charAt(0);
+    }
+    protected static Integer readIntegerObj(ResultSet rs, int i) throws SQLException {
+        int v = rs.getInt(i);
+        return rs.wasNull() ? null : v;
+    }
+    protected static Long readLongObj(ResultSet rs, int i) throws SQLException {
+        long v = rs.getLong(i);
+        return rs.wasNull() ? null : v;
+    }
+    protected static Double readDoubleObj(ResultSet rs, int i) throws SQLException {
+        double v = rs.getDouble(i);
+        return rs.wasNull() ? null : v;
+    }
+    protected static Float readFloatObj(ResultSet rs, int i) throws SQLException {
+        float v = rs.getFloat(i);
+        return rs.wasNull() ? null : v;
+    }
+    protected static Boolean readBooleanObj(ResultSet rs, int i) throws SQLException {
+        boolean v = rs.getBoolean(i);
+        return rs.wasNull() ? null : v;
+    }
+    protected static Short readShortObj(ResultSet rs, int i) throws SQLException {
+        short v = rs.getShort(i);
+        return rs.wasNull() ? null : v;
+    }
+    protected static Byte readByteObj(ResultSet rs, int i) throws SQLException {
+        byte v = rs.getByte(i);
+        return rs.wasNull() ? null : v;
+    }
+    protected static String readString(ResultSet rs, int i) throws SQLException { return rs.getString(i); }
+    protected static BigDecimal readBigDecimal(ResultSet rs, int i) throws SQLException { return rs.getBigDecimal(i); }
+    protected static byte[] readBytes(ResultSet rs, int i) throws SQLException { return rs.getBytes(i); }
+    protected static java.util.Date readDate(ResultSet rs, int i) throws SQLException {
+        Timestamp t = rs.getTimestamp(i);
+        return t == null ? null : new java.util.Date(t.getTime());
+    }
+    protected static java.sql.Date readSqlDate(ResultSet rs, int i) throws SQLException { return rs.getDate(i); }
+    protected static Timestamp readTimestamp(ResultSet rs, int i) throws SQLException { return rs.getTimestamp(i); }
+    /**
+     * 读取常用类型以外的字段，枚举按name匹配，java.time类型从对应的jdbc日期类型转换，其它类型要求getObject的结果可以直接赋值
+     * @param type 字段类型
+     * @throws SQLException 读取异常或类型无法转换
+     */
+    protected static Object readObject(ResultSet rs, int i, Class<?> type) throws SQLException {
+        if (type.isEnum()) {
+            String name = rs.getString(i);
+            if (name == null) {
+                return null;
+            }
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(name)) {
+                    return constant;
+                }
+            }
+            throw new SQLException("枚举[" + type.getName() + "]中没有[" + name + "]");
+        }
+        if (type == LocalDateTime.class) {
+            Timestamp t = rs.getTimestamp(i);
+            return t == null ? null : t.toLocalDateTime();
+        }
+        if (type == LocalDate.class) {
+            java.sql.Date d = rs.getDate(i);
+            return d == null ? null : d.toLocalDate();
+        }
+        if (type == LocalTime.class) {
+            Time t = rs.getTime(i);
+            return t == null ? null : t.toLocalTime();
+        }
+        Object value = rs.getObject(i);
+        if (value != null && !type.isInstance(value)) {
+            throw new SQLException("第" + i + "列的值类型[" + value.getClass().getName() + "]无法转换为[" + type.getName() + "]");
+        }
+        return value;
+    }
+
+    protected static void bindInt(PreparedStatement ps, int i, int v) throws SQLException { ps.setInt(i, v); }
+    protected static void bindLong(PreparedStatement ps, int i, long v) throws SQLException { ps.setLong(i, v); }
+    protected static void bindDouble(PreparedStatement ps, int i, double v) throws SQLException { ps.setDouble(i, v); }
+    protected static void bindFloat(PreparedStatement ps, int i, float v) throws SQLException { ps.setFloat(i, v); }
+    protected static void bindBoolean(PreparedStatement ps, int i, boolean v) throws SQLException { ps.setBoolean(i, v); }
+    protected static void bindShort(PreparedStatement ps, int i, short v) throws SQLException { ps.setShort(i, v); }
+    protected static void bindByte(PreparedStatement ps, int i, byte v) throws SQLException { ps.setByte(i, v); }
+    protected static void bindChar(PreparedStatement ps, int i, char v) throws SQLException { ps.setString(i, String.valueOf(v)); }
+    protected static void bindIntegerObj(PreparedStatement ps, int i, Integer v) throws SQLException {
+        if (v == null) { ps.setNull(i, Types.INTEGER); } else { ps.setInt(i, v); }
+    }
+    protected static void bindLongObj(PreparedStatement ps, int i, Long v) throws SQLException {
+        if (v == null) { ps.setNull(i, Types.BIGINT); } else { ps.setLong(i, v); }
+    }
+    protected static void bindDoubleObj(PreparedStatement ps, int i, Double v) throws SQLException {
+        if (v == null) { ps.setNull(i, Types.DOUBLE); } else { ps.setDouble(i, v); }
+    }
+    protected static void bindFloatObj(PreparedStatement ps, int i, Float v) throws SQLException {
+        if (v == null) { ps.setNull(i, Types.FLOAT); } else { ps.setFloat(i, v); }
+    }
+    protected static void bindBooleanObj(PreparedStatement ps, int i, Boolean v) throws SQLException {
+        if (v == null) { ps.setNull(i, Types.BOOLEAN); } else { ps.setBoolean(i, v); }
+    }
+    protected static void bindShortObj(PreparedStatement ps, int i, Short v) throws SQLException {
+        if (v == null) { ps.setNull(i, Types.SMALLINT); } else { ps.setShort(i, v); }
+    }
+    protected static void bindByteObj(PreparedStatement ps, int i, Byte v) throws SQLException {
+        if (v == null) { ps.setNull(i, Types.TINYINT); } else { ps.setByte(i, v); }
+    }
+    protected static void bindString(PreparedStatement ps, int i, String v) throws SQLException { ps.setString(i, v); }
+    protected static void bindBigDecimal(PreparedStatement ps, int i, BigDecimal v) throws SQLException { ps.setBigDecimal(i, v); }
+    protected static void bindBytes(PreparedStatement ps, int i, byte[] v) throws SQLException { ps.setBytes(i, v); }
+    protected static void bindDate(PreparedStatement ps, int i, java.util.Date v) throws SQLException {
+        ps.setTimestamp(i, v == null ? null : new Timestamp(v.getTime()));
+    }
+    protected static void bindSqlDate(PreparedStatement ps, int i, java.sql.Date v) throws SQLException { ps.setDate(i, v); }
+    protected static void bindTimestamp(PreparedStatement ps, int i, Timestamp v) throws SQLException { ps.setTimestamp(i, v); }
+    protected static void bindObject(PreparedStatement ps, int i, Object v) throws SQLException {
+        // 与readObject对应，不依赖驱动对枚举和java.time类型的支持
+        if (v instanceof Enum) {
+            ps.setString(i, ((Enum<?>) v).name());
+        } else if (v instanceof LocalDateTime) {
+            ps.setTimestamp(i, Timestamp.valueOf((LocalDateTime) v));
+        } else if (v instanceof LocalDate) {
+            ps.setDate(i, java.sql.Date.valueOf((LocalDate) v));
+        } else if (v instanceof LocalTime) {
+            ps.setTime(i, Time.valueOf((LocalTime) v));
+        } else {
+            ps.setObject(i, v);
+        }
+    }
+
+    /**
+     * 用asm生成映射器子类
+     */
+    private static class Generator {
+
+        private static final String SUPER_NAME = Type.getInternalName(PojoMapper.class);
+        private static final String RS_DESC = Type.getDescriptor(ResultSet.class);
+        private static final String PS_DESC = Type.getDescriptor(PreparedStatement.class);
+
+        /**
+         * @return 生成的映射器，类或字段不可直接访问时返回null
+         */
+        static <T>PojoMapper<T> generate(Class<T> clazz, String tableName, String[] columns, String idColumn, List<Field> fieldList) throws ReflectiveOperationException {
+            if (!Modifier.isPublic(clazz.getModifiers()) || Modifier.isAbstract(clazz.getModifiers())
+                    || (clazz.getEnclosingClass() != null && !Modifier.isStatic(clazz.getModifiers()))) {
+                return null;
+            }
+            Constructor<T> constructor = clazz.getConstructor();
+            if (!Modifier.isPublic(constructor.getModifiers())) {
+                return null;
+            }
+            Method[] getters = new Method[fieldList.size()];
+            Method[] setters = new Method[fieldList.size()];
+            for (int i = 0; i < fieldList.size(); i++) {
+                Field field = fieldList.get(i);
+                // 生成的类在其它包中，字段类型不可见时无法引用
+                if (!isPublicType(field.getType())) {
+                    return null;
+                }
+                if (Modifier.isPublic(field.getModifiers()) && Modifier.isPublic(field.getDeclaringClass().getModifiers())) {
+                    if (Modifier.isFinal(field.getModifiers())) {
+                        return null;
+                    }
+                    continue;
+                }
+                getters[i] = findGetter(clazz, field);
+                setters[i] = findSetter(clazz, field);
+                if (getters[i] == null || setters[i] == null) {
+                    return null;
+                }
+            }
+
+            String owner = Type.getInternalName(clazz);
+            String className = "com/ag777/util/db/gen/PojoMapper$" + clazz.getSimpleName() + "$" + GENERATED_COUNT.incrementAndGet();
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES) {
+                @Override
+                protected String getCommonSuperClass(String type1, String type2) {
+                    // 局部变量类型固定，不会合并不同的引用类型
+                    return "java/lang/Object";
+                }
+            };
+            cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, className, null, SUPER_NAME, null);
+
+            String initDesc = "(Ljava/lang/Class;Ljava/lang/String;[Ljava/lang/String;Ljava/lang/String;)V";
+            MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", initDesc, null, null);
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitVarInsn(Opcodes.ALOAD, 2);
+            mv.visitVarInsn(Opcodes.ALOAD, 3);
+            mv.visitVarInsn(Opcodes.ALOAD, 4);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, SUPER_NAME, "<init>", initDesc, false);
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            // bind(Object obj, PreparedStatement ps): ps.setXxx(i+1, obj.getXxx())
+            mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "bind", "(Ljava/lang/Object;" + PS_DESC + ")V", null, new String[]{"java/sql/SQLException"});
+            mv.visitCode();
+            mv.visitVarInsn(Opcodes.ALOAD, 1);
+            mv.visitTypeInsn(Opcodes.CHECKCAST, owner);
+            mv.visitVarInsn(Opcodes.ASTORE, 3);
+            for (int i = 0; i < fieldList.size(); i++) {
+                Field field = fieldList.get(i);
+                Class<?> type = field.getType();
+                String suffix = accessorSuffix(type);
+                Class<?> paramType = "Object".equals(suffix) ? Object.class : type;
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                pushInt(mv, i + 1);
+                mv.visitVarInsn(Opcodes.ALOAD, 3);
+                if (getters[i] == null) {
+                    mv.visitFieldInsn(Opcodes.GETFIELD, owner, field.getName(), Type.getDescriptor(type));
+                } else {
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, getters[i].getName(), Type.getMethodDescriptor(getters[i]), false);
+                }
+                mv.visitMethodInsn(Opcodes.INVOKESTATIC, SUPER_NAME, "bind" + suffix,
+                        "(" + PS_DESC + "I" + Type.getDescriptor(paramType) + ")V", false);
+            }
+            mv.visitInsn(Opcodes.RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            // read(ResultSet rs, int[] indexes): obj.setXxx(rs.getXxx(indexes[i]))
+            mv = cw.visitMethod(Opcodes.ACC_PROTECTED, "read", "(" + RS_DESC + "[I)Ljava/lang/Object;", null, new String[]{"java/sql/SQLException"});
+            mv.visitCode();
+            mv.visitTypeInsn(Opcodes.NEW, owner);
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "<init>", "()V", false);
+            mv.visitVarInsn(Opcodes.ASTORE, 3);
+            for (int i = 0; i < fieldList.size(); i++) {
+                Field field = fieldList.get(i);
+                Class<?> type = field.getType();
+                String suffix = accessorSuffix(type);
+                Label skip = new Label();
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                pushInt(mv, i);
+                mv.visitInsn(Opcodes.IALOAD);
+                mv.visitInsn(Opcodes.DUP);
+                mv.visitVarInsn(Opcodes.ISTORE, 4);
+                mv.visitJumpInsn(Opcodes.IFLE, skip);
+                mv.visitVarInsn(Opcodes.ALOAD, 3);
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitVarInsn(Opcodes.ILOAD, 4);
+                if ("Object".equals(suffix)) {
+                    mv.visitLdcInsn(Type.getType(type));
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, SUPER_NAME, "readObject", "(" + RS_DESC + "ILjava/lang/Class;)Ljava/lang/Object;", false);
+                    mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+                } else {
+                    mv.visitMethodInsn(Opcodes.INVOKESTATIC, SUPER_NAME, "read" + suffix, "(" + RS_DESC + "I)" + Type.getDescriptor(type), false);
+                }
+                if (setters[i] == null) {
+                    mv.visitFieldInsn(Opcodes.PUTFIELD, owner, field.getName(), Type.getDescriptor(type));
+                } else {
+                    Method setter = setters[i];
+                    mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, setter.getName(), Type.getMethodDescriptor(setter), false);
+                    // 链式setter有返回值
+                    Class<?> returnType = setter.getReturnType();
+                    if (returnType == long.class || returnType == double.class) {
+                        mv.visitInsn(Opcodes.POP2);
+                    } else if (returnType != void.class) {
+                        mv.visitInsn(Opcodes.POP);
+                    }
+                }
+                mv.visitLabel(skip);
+            }
+            mv.visitVarInsn(Opcodes.ALOAD, 3);
+            mv.visitInsn(Opcodes.ARETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+            cw.visitEnd();
+
+            Class<?> mapperClass = new GeneratedClassLoader(clazz.getClassLoader())
+                    .define(className.replace('/', '.'), cw.toByteArray());
+            @SuppressWarnings("unchecked")
+            PojoMapper<T> mapper = (PojoMapper<T>) mapperClass
+                    .getConstructor(Class.class, String.class, String[].class, String.class)
+                    .newInstance(clazz, tableName, columns, idColumn);
+            return mapper;
+        }
+
+        private static Method findGetter(Class<?> clazz, Field field) {
+            String name = capitalize(field.getName());
+            String[] candidates = field.getType() == boolean.class
+                    ? new String[]{"is" + name, "get" + name} : new String[]{"get" + name};
+            for (String candidate : candidates) {
+                try {
+                    Method method = clazz.getMethod(candidate);
+                    if (method.getReturnType() == field.getType() && isAccessible(method)) {
+                        return method;
+                    }
+                } catch (NoSuchMethodException ignored) {
+                }
+            }
+            return null;
+        }
+
+        private static Method findSetter(Class<?> clazz, Field field) {
+            try {
+                Method method = clazz.getMethod("set" + capitalize(field.getName()), field.getType());
+                return isAccessible(method) ? method : null;
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+
+        private static boolean isPublicType(Class<?> type) {
+            while (type.isArray()) {
+                type = type.getComponentType();
+            }
+            for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+                if (!c.isPrimitive() && !Modifier.isPublic(c.getModifiers())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isAccessible(Method method) {
+            return !Modifier.isStatic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+        }
+
+        private static String capitalize(String name) {
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        private static void pushInt(MethodVisitor mv, int value) {
+            if (value <= 5) {
+                mv.visitInsn(Opcodes.ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                mv.visitIntInsn(Opcodes.BIPUSH, value);
+            } else {
+                mv.visitIntInsn(Opcodes.SIPUSH, value);
+            }
+        }
+    }
+
+    /**
+     * 加载生成的类，优先从实体类的类加载器查找，找不到再从本类的类加载器查找
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            return Class.forName(name, false, PojoMapper.class.getClassLoader());
+        }
+    }
+
+    /**
+     * 基于MethodHandle的实现，用于无法生成代码的情况(私有字段且没有getter/setter等)
+     */
+    private static class HandleMapper<T> extends PojoMapper<T> {
+
+        private final MethodHandle constructor;
+        /* (PreparedStatement, int, Object)void */
+        private final MethodHandle[] binders;
+        /* (Object, ResultSet, int)void */
+        private final MethodHandle[] readers;
+
+        HandleMapper(Class<T> clazz, String tableName, String[] columns, String idColumn, List<Field> fieldList) throws ReflectiveOperationException {
+            super(clazz, tableName, columns, idColumn);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            Constructor<T> c = clazz.getDeclaredConstructor();
+            c.setAccessible(true);
+            this.constructor = lookup.unreflectConstructor(c).asType(MethodType.methodType(Object.class));
+            this.binders = new MethodHandle[fieldList.size()];
+            this.readers = new MethodHandle[fieldList.size()];
+            for (int i = 0; i < fieldList.size(); i++) {
+                Field field = fieldList.get(i);
+                field.setAccessible(true);
+                Class<?> type = field.getType();
+                String suffix = accessorSuffix(type);
+                Class<?> helperType = "Object".equals(suffix) ? Object.class : type;
+
+                MethodHandle bind = lookup.findStatic(PojoMapper.class, "bind" + suffix,
+                        MethodType.methodType(void.class, PreparedStatement.class, int.class, helperType));
+                MethodHandle getter = lookup.unreflectGetter(field).asType(MethodType.methodType(helperType, clazz));
+                binders[i] = MethodHandles.filterArguments(bind, 2, getter)
+                        .asType(MethodType.methodType(void.class, PreparedStatement.class, int.class, Object.class));
+
+                MethodHandle read;
+                if ("Object".equals(suffix)) {
+                    read = MethodHandles.insertArguments(lookup.findStatic(PojoMapper.class, "readObject",
+                            MethodType.methodType(Object.class, ResultSet.class, int.class, Class.class)), 2, type);
+                } else {
+                    read = lookup.findStatic(PojoMapper.class, "read" + suffix, MethodType.methodType(helperType, ResultSet.class, int.class));
+                }
+                read = read.asType(MethodType.methodType(type, ResultSet.class, int.class));
+                MethodHandle setter = lookup.unreflectSetter(field);
+                readers[i] = MethodHandles.collectArguments(setter, 1, read)
+                        .asType(MethodType.methodType(void.class, Object.class, ResultSet.class, int.class));
+            }
+        }
+
+        @Override
+        public void bind(T obj, PreparedStatement ps) throws SQLException {
+            try {
+                for (int i = 0; i < binders.length; i++) {
+                    binders[i].invokeExact(ps, i + 1, (Object) obj);
+                }
+            } catch (SQLException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new SQLException(t);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected T read(ResultSet rs, int[] indexes) throws SQLException {
+            try {
+                Object obj = (Object) constructor.invokeExact();
+                for (int i = 0; i < readers.length; i++) {
+                    if (indexes[i] > 0) {
+                        readers[i].invokeExact(obj, rs, indexes[i]);
+                    }
+                }
+                return (T) obj;
+            } catch (SQLException | RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new SQLException(t);
+            }
+        }
+    }
+
+    /*============性能测试=============*/
+    @Table(name = "bench_user")
+    public static class BenchUser {
+        @Id
+        @Column(name = "id")
+        private int id;
+        @Column(name = "name")
+        private String name;
+        @Column(name = "age")
+        private Integer age;
+        @Column(name = "score")
+        private double score;
+        @Column(name = "create_time")
+        private java.util.Date createTime;
+
+        public int getId() { return id; }
+        public void setId(int id) { this.id = id; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public Integer getAge() { return age; }
+        public void setAge(Integer age) { this.age = age; }
+        public double getScore() { return score; }
+        public void setScore(double score) { this.score = score; }
+        public java.util.Date getCreateTime() { return createTime; }
+        public void setCreateTime(java.util.Date createTime) { this.createTime = createTime; }
+    }
+
+    /**
+     * 对比 实体-反射转Map-MapUtils.get-setObject 的旧路径和生成的映射器，只测映射开销，
+     * PreparedStatement/ResultSet用动态代理模拟，不涉及数据库io
+     */
+    public static void main(String[] args) throws Exception {
+        int count = 200_000;
+        List<BenchUser> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BenchUser user = new BenchUser();
+            user.setId(i);
+            user.setName("user" + i);
+            user.setAge(i % 100);
+            user.setScore(i * 0.5);
+            user.setCreateTime(new java.util.Date());
+            list.add(user);
+        }
+        PojoMapper<BenchUser> mapper = of(BenchUser.class);
+        SqlBuilder builder = DbPojoUtils.getSqlBuilder(BenchUser.class);
+        List<String> keyList = builder.getInsertSql().paramList;
+        List<Field> fieldList = ReflectionUtils.getFieldListByAnnotation(BenchUser.class, Column.class);
+        for (Field field : fieldList) {
+            field.setAccessible(true);
+        }
+        PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(PojoMapper.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, methodArgs) -> null);
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 1);
+        row.put("name", "name");
+        row.put("age", 10);
+        row.put("score", 1.5d);
+        row.put("create_time", new Timestamp(System.currentTimeMillis()));
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(PojoMapper.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, methodArgs) -> benchResult(method, methodArgs, row, mapper));
+
+        System.out.println("生成的实现: " + mapper.isGenerated());
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (BenchUser user : list) {
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (Field field : fieldList) {
+                    map.put(field.getName(), field.get(user));
+                }
+                for (int i = 0; i < keyList.size(); i++) {
+                    ps.setObject(i + 1, MapUtils.get(map, keyList.get(i)));
+                }
+            }
+            long mapCost = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (BenchUser user : list) {
+                mapper.bind(user, ps);
+            }
+            long bindCost = System.nanoTime() - start;
+            start = System.nanoTime();
+            int[] indexes = new int[]{1, 2, 3, 4, 5};
+            for (int i = 0; i < count; i++) {
+                mapper.read(rs, indexes);
+            }
+            long readCost = System.nanoTime() - start;
+            System.out.println(String.format("round %d: map路径绑定 %dms, 生成的映射器绑定 %dms, 读取 %dms",
+                    round, mapCost / 1_000_000, bindCost / 1_000_000, readCost / 1_000_000));
+        }
+    }
+
+    private static Object benchResult(Method method, Object[] args, Map<String, Object> row, PojoMapper<?> mapper) {
+        if (args == null || args.length != 1 || !(args[0] instanceof Integer)) {
+            return "wasNull".equals(method.getName()) ? false : null;
+        }
+        Object value = row.get(mapper.columns[(Integer) args[0] - 1]);
+        switch (method.getName()) {
+            case "getInt":
+                return ((Number) value).intValue();
+            case "getDouble":
+                return ((Number) value).doubleValue();
+            default:
+                return value;
+        }
+    }
+}
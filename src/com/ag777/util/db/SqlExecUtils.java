@@ -1,10 +1,11 @@
 package com.ag777.util.db;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import com.ag777.util.db.DbHelper;
+import java.util.*;
+
+import com.ag777.util.db.model.ColumnPojo;
 import com.ag777.util.db.model.DbErrCode;
 import com.ag777.util.lang.Console;
 import com.ag777.util.lang.RegexUtils;
@@ -15,11 +16,11 @@ import com.ag777.util.lang.collection.MapUtils;
 /**
  * sql执行辅助类
  * <p>
- * 目前支持插入一个map结构的数据
+ * 目前支持插入一个map结构的数据, 大量数据请使用{@link #insertBulk(List, String, DbHelper, int, boolean)}
  * </p>
  * 
  * @author ag777
- * @version create on 2018年08月24日,last modify at 2018年08月27日
+ * @version create on 2018年08月24日,last modify at 2026年10月18日
  */
 public class SqlExecUtils {
 
@@ -84,6 +85,188 @@ public class SqlExecUtils {
 		update(sql.toString(), tableName, params, titleList, db);
 	}
 	
+	/**
+	 * 批量插入(高性能模式)
+	 * <p>
+	 * 1.先根据所有数据的key的并集一次性建表/补充缺失的列，不再逐行解析异常<br>
+	 * 2.按key集合(行结构)对数据分组，每种结构只生成一次sql和PreparedStatement<br>
+	 * 3.每batchSize行执行一次jdbc批处理，multiRowValues为true时合并为一条多行VALUES语句<br>
+	 * 事务: 连接已关闭自动提交(调用方已开启事务)时只在该事务中执行，不提交也不回滚，由调用方决定；
+	 * 否则全部数据在一个事务中插入，结束时提交一次，出现异常时全部回滚，不会留下部分数据。
+	 * 表不存在时按数据库类型(mysql/sqlite)建表；建表和补充列在插入之前执行，mysql的DDL会隐式提交调用方已开启的事务
+	 * </p>
+	 * @param list 数据
+	 * @param tableName 表名
+	 * @param db 数据库
+	 * @param batchSize 每批插入的行数
+	 * @param multiRowValues 是否使用多行VALUES语句(INSERT ... VALUES (..),(..))
+	 * @return 插入的行数
+	 * @throws SQLException 异常
+	 */
+	public static <K, V>int insertBulk(List<Map<K, V>> list, String tableName, DbHelper db, int batchSize, boolean multiRowValues) throws SQLException {
+		if(ListUtils.isEmpty(list) || StringUtils.isEmpty(tableName) || db == null) {
+			return 0;
+		}
+		batchSize = Math.max(1, batchSize);
+		// 按行结构分组，相邻行结构相同的情况最常见，直接复用上一个分组
+		Map<Set<K>, List<Map<K, V>>> shapeMap = new LinkedHashMap<>();
+		Set<K> lastShape = null;
+		List<Map<K, V>> lastGroup = null;
+		Set<String> allColumns = new LinkedHashSet<>();
+		for (Map<K, V> map : list) {
+			if(MapUtils.isEmpty(map)) {
+				continue;
+			}
+			Set<K> shape = map.keySet();
+			if(lastShape == null || !lastShape.equals(shape)) {
+				lastGroup = shapeMap.get(shape);
+				if(lastGroup == null) {
+					lastGroup = new ArrayList<>();
+					shapeMap.put(new LinkedHashSet<>(shape), lastGroup);
+					for (K key : shape) {
+						allColumns.add(key.toString());
+					}
+				}
+				lastShape = shape;
+			}
+			lastGroup.add(map);
+		}
+		if(shapeMap.isEmpty()) {
+			return 0;
+		}
+		ensureSchema(tableName, allColumns, db);
+
+		// 单条语句的参数上限, sqlite老版本为999
+		int maxParams = db.isSqlite() ? 999 : 65535;
+		Connection conn = db.getConn();
+		boolean autoCommit = conn.getAutoCommit();
+		int count = 0;
+		if(!autoCommit) {
+			// 调用方的事务，提交和回滚都交给调用方
+			for (Map.Entry<Set<K>, List<Map<K, V>>> entry : shapeMap.entrySet()) {
+				count += insertShape(conn, tableName, new ArrayList<>(entry.getKey()), entry.getValue(), batchSize, multiRowValues, maxParams);
+			}
+			return count;
+		}
+		try {
+			conn.setAutoCommit(false);
+			for (Map.Entry<Set<K>, List<Map<K, V>>> entry : shapeMap.entrySet()) {
+				count += insertShape(conn, tableName, new ArrayList<>(entry.getKey()), entry.getValue(), batchSize, multiRowValues, maxParams);
+			}
+			conn.commit();
+			return count;
+		} catch (SQLException | RuntimeException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			conn.setAutoCommit(true);
+		}
+	}
+
+	/**
+	 * 插入同一结构的数据
+	 * @return 插入的行数
+	 */
+	private static <K, V>int insertShape(Connection conn, String tableName, List<K> keys, List<Map<K, V>> rows, int batchSize, boolean multiRowValues, int maxParams) throws SQLException {
+		int colCount = keys.size();
+		int rowsPerStatement = multiRowValues ? Math.max(1, Math.min(batchSize, maxParams / colCount)) : 1;
+		int index = 0;
+		int size = rows.size();
+		if(rowsPerStatement > 1 && size >= rowsPerStatement) {
+			// 多行VALUES语句，每条语句插入rowsPerStatement行
+			try (PreparedStatement ps = conn.prepareStatement(buildInsertSql(tableName, keys, rowsPerStatement))) {
+				int statementsPerBatch = Math.max(1, batchSize / rowsPerStatement);
+				int batchCount = 0;
+				for (; index + rowsPerStatement <= size; index += rowsPerStatement) {
+					int paramIndex = 1;
+					for (int r = index; r < index + rowsPerStatement; r++) {
+						Map<K, V> row = rows.get(r);
+						for (K key : keys) {
+							ps.setObject(paramIndex++, row.get(key));
+						}
+					}
+					ps.addBatch();
+					if(++batchCount == statementsPerBatch) {
+						ps.executeBatch();
+						batchCount = 0;
+					}
+				}
+				if(batchCount > 0) {
+					ps.executeBatch();
+				}
+			}
+		}
+		if(index < size) {
+			// 单行语句批处理，处理剩余不足一条多行语句的数据
+			try (PreparedStatement ps = conn.prepareStatement(buildInsertSql(tableName, keys, 1))) {
+				int batchCount = 0;
+				for (; index < size; index++) {
+					Map<K, V> row = rows.get(index);
+					for (int i = 0; i < colCount; i++) {
+						ps.setObject(i + 1, row.get(keys.get(i)));
+					}
+					ps.addBatch();
+					if(++batchCount == batchSize) {
+						ps.executeBatch();
+						batchCount = 0;
+					}
+				}
+				if(batchCount > 0) {
+					ps.executeBatch();
+				}
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * 构造插入语句
+	 * @param tableName 表名
+	 * @param keys 列名
+	 * @param rowCount VALUES中的行数
+	 * @return sql
+	 */
+	private static <K>String buildInsertSql(String tableName, List<K> keys, int rowCount) {
+		StringBuilder sql = new StringBuilder("INSERT INTO `").append(tableName).append("` (");
+		for (K key : keys) {
+			sql.append('`').append(key.toString()).append("`,");
+		}
+		sql.setLength(sql.length()-1);
+		sql.append(")VALUES");
+		String values = "(" + StringUtils.stack("?,", keys.size());
+		values = values.substring(0, values.length()-1) + "),";
+		for (int i = 0; i < rowCount; i++) {
+			sql.append(values);
+		}
+		sql.setLength(sql.length()-1);
+		return sql.toString();
+	}
+
+	/**
+	 * 确保表及所有列都存在，不存在则一次性创建
+	 * @param tableName 表名
+	 * @param columns 所有列名
+	 * @param db 数据库
+	 * @throws SQLException 建表或建列失败
+	 */
+	private static void ensureSchema(String tableName, Set<String> columns, DbHelper db) throws SQLException {
+		if(!db.isTableExisted(tableName)) {
+			if(!createTable(tableName, new ArrayList<>(columns), db)) {
+				throw new SQLException("创建表["+tableName+"]失败");
+			}
+			return;
+		}
+		Set<String> existed = new HashSet<>();
+		for (ColumnPojo column : db.columnList(tableName)) {
+			existed.add(column.getName().toLowerCase());
+		}
+		for (String column : columns) {
+			if(!existed.contains(column.toLowerCase()) && !createColumn(db, column, tableName, null)) {
+				throw new SQLException("表["+tableName+"]增加列["+column+"]失败");
+			}
+		}
+	}
+	
 	private static void update(String sql, String tableName, Object[] params, List<String> titleList, DbHelper db) throws SQLException {
 		try {
 			db.update(sql, params);
@@ -122,13 +305,23 @@ public class SqlExecUtils {
 		StringBuilder sb = new StringBuilder();
 		sb.append("CREATE TABLE `").append(tableName).append("` (");
 		titleList.remove("id");
-		sb.append("`id` int(11) NOT NULL AUTO_INCREMENT,");
-		for (String title : titleList) {
-			sb.append("`").append(title).append("` TEXT DEFAULT NULL,");
+		boolean sqlite = db.isSqlite();
+		if(sqlite) {
+			//sqlite的自增主键只能写成INTEGER PRIMARY KEY AUTOINCREMENT，也没有ENGINE/CHARSET
+			sb.append("`id` INTEGER PRIMARY KEY AUTOINCREMENT");
+			for (String title : titleList) {
+				sb.append(",`").append(title).append("` TEXT DEFAULT NULL");
+			}
+			sb.append(");");
+		} else {
+			sb.append("`id` int(11) NOT NULL AUTO_INCREMENT,");
+			for (String title : titleList) {
+				sb.append("`").append(title).append("` TEXT DEFAULT NULL,");
+			}
+			//多一个逗号没关系，因为还得设置主键
+			sb.append(" PRIMARY KEY (`id`) ");
+			sb.append(") ENGINE=InnoDB DEFAULT CHARSET=utf8;");
 		}
-		//多一个逗号没关系，因为还得设置主键
-		sb.append(" PRIMARY KEY (`id`) ");
-		sb.append(") ENGINE=InnoDB DEFAULT CHARSET=utf8;");
 		
 		try {
 			db.update(sb.toString());
@@ -192,5 +385,43 @@ public class SqlExecUtils {
 		}
 		return false;
 	}
-	
+
+	/**
+	 * 在嵌入式sqlite上对比逐行插入和批量插入(需要sqlite-jdbc驱动)
+	 * @param args [0]为数据库文件路径
+	 */
+	public static void main(String[] args) throws Exception {
+		String path = args.length > 0 ? args[0] : "bench.db";
+		int rowCount = 100000;
+		List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+		for (int i = 0; i < rowCount; i++) {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("url", "http://example.com/"+i);
+			row.put("title", "title"+i);
+			row.put("size", i);
+			rows.add(row);
+		}
+		DbHelper db = DbHelper.connectSqlite(path);
+		try {
+			for (String table : new String[]{"bench_row", "bench_bulk", "bench_multi"}) {
+				db.update("DROP TABLE IF EXISTS "+table);
+			}
+			// 逐行插入只能识别mysql的"表不存在"错误，需要先建表；批量插入的两张表由insertBulk自动创建
+			db.update("CREATE TABLE bench_row (id INTEGER PRIMARY KEY AUTOINCREMENT, url TEXT, title TEXT, size TEXT)");
+			long start = System.currentTimeMillis();
+			db.doTransaction(h -> {
+				insert(rows, "bench_row", h);
+				return true;
+			});
+			System.out.println("逐行插入: "+(System.currentTimeMillis()-start)+"ms");
+			start = System.currentTimeMillis();
+			insertBulk(rows, "bench_bulk", db, 1000, false);
+			System.out.println("批量插入: "+(System.currentTimeMillis()-start)+"ms");
+			start = System.currentTimeMillis();
+			insertBulk(rows, "bench_multi", db, 1000, true);
+			System.out.println("多行VALUES批量插入: "+(System.currentTimeMillis()-start)+"ms");
+		} finally {
+			db.dispose();
+		}
+	}
 }
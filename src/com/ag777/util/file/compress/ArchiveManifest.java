@@ -0,0 +1,196 @@
+package com.ag777.util.file.compress;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 增量归档的清单，记录某一代归档完成时源目录下每一项的状态，见{@link IncrementalArchiver}
+ * <p>
+ * 文本格式(UTF-8)，每项一行，字段以tab分隔:
+ * <pre>
+ * #manifest	代数
+ * 类型(F/D)	大小	修改时间(毫秒)	内容哈希(16位十六进制)	内容所在的代	路径
+ * </pre>
+ * 路径中的\、tab、换行转义为\\、\t、\n。清单记录的是完整的目录树，不只是本代变化的文件，
+ * 所以只凭最新的清单就能知道每个文件应该从哪一代的归档中取出，被删除的文件不在清单中
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午4:00
+ */
+public class ArchiveManifest {
+
+    private static final String HEADER = "#manifest";
+
+    private final int generation;
+    private final Map<String, Entry> entries;
+
+    public ArchiveManifest(int generation) {
+        this(generation, new LinkedHashMap<>());
+    }
+
+    private ArchiveManifest(int generation, Map<String, Entry> entries) {
+        this.generation = generation;
+        this.entries = entries;
+    }
+
+    /**
+     * @return 清单对应的代数，全量归档为0
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @param path 相对源目录的路径(分隔符为/，目录以/结尾)
+     * @return 对应的项，不存在时返回null
+     */
+    public Entry get(String path) {
+        return entries.get(path);
+    }
+
+    /**
+     * @return 全部项(按添加顺序，目录在其子项之前)
+     */
+    public Collection<Entry> entries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    void add(Entry entry) {
+        entries.put(entry.path, entry);
+    }
+
+    /**
+     * 读取清单文件
+     * @param file 清单文件
+     * @return 清单
+     * @throws IOException 读取异常或格式错误
+     */
+    public static ArchiveManifest read(File file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8), 64 * 1024)) {
+            String line = reader.readLine();
+            if (line == null || !line.startsWith(HEADER + '\t')) {
+                throw new IOException("不是增量归档的清单文件:" + file.getPath());
+            }
+            ArchiveManifest manifest = new ArchiveManifest(Integer.parseInt(line.substring(HEADER.length() + 1)));
+            int lineNo = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                String[] fields = line.split("\t", 6);
+                if (fields.length != 6 || fields[0].length() != 1) {
+                    throw new IOException(String.format("清单第%d行格式错误:%s", lineNo, file.getPath()));
+                }
+                try {
+                    manifest.add(new Entry(unescape(fields[5]), fields[0].charAt(0) == 'D',
+                            Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                            Long.parseUnsignedLong(fields[3], 16), Integer.parseInt(fields[4])));
+                } catch (NumberFormatException e) {
+                    throw new IOException(String.format("清单第%d行格式错误:%s", lineNo, file.getPath()), e);
+                }
+            }
+            return manifest;
+        }
+    }
+
+    /**
+     * 写出清单，先写临时文件再替换，中途失败不会留下不完整的清单
+     * @param file 清单文件
+     * @throws IOException 写出异常
+     */
+    public void write(File file) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(temp.toPath()), StandardCharsets.UTF_8), 64 * 1024)) {
+            writer.write(HEADER);
+            writer.write('\t');
+            writer.write(String.valueOf(generation));
+            writer.write('\n');
+            StringBuilder sb = new StringBuilder(256);
+            for (Entry entry : entries.values()) {
+                sb.setLength(0);
+                sb.append(entry.dir ? 'D' : 'F').append('\t')
+                        .append(entry.size).append('\t')
+                        .append(entry.lastModified).append('\t');
+                String hash = Long.toHexString(entry.hash);
+                for (int i = hash.length(); i < 16; i++) {
+                    sb.append('0');
+                }
+                sb.append(hash).append('\t')
+                        .append(entry.generation).append('\t');
+                escape(entry.path, sb);
+                sb.append('\n');
+                writer.append(sb);
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void escape(String path, StringBuilder sb) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            switch (c) {
+                case '\\': sb.append("\\\\"); break;
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                default: sb.append(c);
+            }
+        }
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                sb.append(c);
+                continue;
+            }
+            char next = value.charAt(++i);
+            sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 清单中的一项
+     */
+    public static final class Entry {
+        /** 相对源目录的路径，分隔符为/，目录以/结尾 */
+        public final String path;
+        public final boolean dir;
+        public final long size;
+        public final long lastModified;
+        /** 内容哈希，目录为0 */
+        public final long hash;
+        /** 内容所在归档的代数 */
+        public final int generation;
+
+        public Entry(String path, boolean dir, long size, long lastModified, long hash, int generation) {
+            this.path = path;
+            this.dir = dir;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.ag777.util.file.compress;
+
+import com.ag777.util.file.FileUtils;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * 打包性能对比，单线程与{@link ParallelGzipOutputStream}/多线程zip分别打包zip、tar.gz
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午9:50
+ */
+public class CompressBenchmark {
+
+    private CompressBenchmark() {
+    }
+
+    /**
+     * 生成测试目录(参数为文件数，默认3000，每200个中有一个4M的大文件)，对比单线程和1/4/16线程打包zip、tar.gz
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        File work = Files.createTempDirectory("pack-bench").toFile();
+        File source = new File(work, "src");
+        Random random = new Random(1);
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            File file = new File(source, "d" + (i % 20) + File.separator + "f" + i + ".txt");
+            file.getParentFile().mkdirs();
+            StringBuilder sb = new StringBuilder();
+            int size = i % 200 == 0 ? 4 << 20 : random.nextInt(16 * 1024);
+            while (sb.length() < size) {
+                sb.append("line ").append(random.nextInt(100000)).append(" value=").append(random.nextInt(1000)).append('\n');
+            }
+            byte[] data = sb.toString().getBytes();
+            Files.write(file.toPath(), data);
+            total += data.length;
+        }
+        System.out.println(String.format("文件数: %d, 总大小: %dMB, cpu核数: %d", count, total >> 20, Runtime.getRuntime().availableProcessors()));
+        File zip = new File(work, "a.zip");
+        File gz = new File(work, "a.tar.gz");
+        File[] files = {source};
+
+        long start = System.currentTimeMillis();
+        ZipUtils.getInstance().zip(files, zip.getPath());
+        print("zip(单线程)", start, zip);
+        for (int threads : new int[]{1, 4, 16}) {
+            start = System.currentTimeMillis();
+            ZipUtils.getInstance().zip(files, zip.getPath(), threads);
+            print("zip(" + threads + "线程)", start, zip);
+        }
+        start = System.currentTimeMillis();
+        CompressUtils.targz(files, gz.getPath());
+        print("tar.gz(单线程，临时tar)", start, gz);
+        for (int threads : new int[]{1, 4, 16}) {
+            start = System.currentTimeMillis();
+            CompressUtils.targz(files, gz.getPath(), threads);
+            print("tar.gz(" + threads + "线程)", start, gz);
+        }
+        FileUtils.delete(work.getPath());
+    }
+
+    private static void print(String name, long start, File target) {
+        System.out.println(String.format("%s: %dms, %dKB", name, System.currentTimeMillis() - start, target.length() >> 10));
+    }
+}
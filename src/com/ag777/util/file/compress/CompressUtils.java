@@ -1,9 +1,16 @@
 package com.ag777.util.file.compress;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 
 import com.ag777.util.file.FileUtils;
+import com.ag777.util.lang.IOUtils;
 import com.ag777.util.lang.StringUtils;
 import com.ag777.util.lang.exception.Assert;
 
@@ -25,7 +32,7 @@ import com.ag777.util.lang.exception.Assert;
  * </p>
  * 
  * @author ag777
- * @version create on 2018年04月12日,last modify at 2018年04月16日
+ * @version create on 2018年04月12日,last modify at 2026年10月18日
  */
 public class CompressUtils {
 
@@ -81,6 +88,33 @@ public class CompressUtils {
 		}
 	}
 	
+	/**
+	 * 多线程打包并压缩成tar.gz包，不产生临时tar文件
+	 * <p>
+	 * 多线程读文件打包tar，同时按块多线程gzip压缩，输出是普通的单成员gzip，见{@link TarUtils#tar(File[], OutputStream, int)}和{@link ParallelGzipOutputStream}
+	 * </p>
+	 * 
+	 * @param files 需要压缩的文件或文件夹
+	 * @param gzPath tar.gz包路径
+	 * @param threads 线程数(读文件和压缩各自使用)
+	 * @return tar.gz包
+	 * @throws IOException 读写异常
+	 */
+	public static File targz(File[] files, String gzPath, int threads) throws IOException {
+		OutputStream os = null;
+		try {
+			os = new ParallelGzipOutputStream(
+					new BufferedOutputStream(FileUtils.getOutputStream(gzPath), GzUtils.STREAM_BUFFER), threads);
+			TarUtils.getInstance().tar(files, os, threads);
+			os.close();
+			return new File(gzPath);
+		} catch(RuntimeException|IOException ex) {
+			IOUtils.close(os);
+			FileUtils.delete(gzPath);
+			throw ex;
+		}
+	}
+	
 	//--zip压缩
 	/**
 	 * 将文件或文件夹压缩成zip包
@@ -118,6 +152,19 @@ public class CompressUtils {
 		return ZipUtils.getInstance().zip(files, zipPath);
 	}
 	
+	/**
+	 * 多线程将文件或文件夹压缩成zip包，各条目并行压缩
+	 * 
+	 * @param files 需要压缩的文件或文件夹
+	 * @param zipPath zip包路径
+	 * @param threads 线程数
+	 * @return zip包
+	 * @throws IOException 读写异常
+	 */
+	public static File zip(File[] files, String zipPath, int threads) throws IOException {
+		return ZipUtils.getInstance().zip(files, zipPath, threads);
+	}
+	
 	//-7z压缩
 	/**
 	 * 将文件或文件夹压缩成7z包
@@ -181,6 +228,26 @@ public class CompressUtils {
 		}
 	}
 	
+	/**
+	 * 多线程解压tar.gz包，边解压gz边解包，不产生临时tar文件
+	 * 
+	 * @param gzPath tar.gz包路径
+	 * @param targetPath 解压目录
+	 * @param threads 写文件的线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	public static void unTargz(String gzPath, String targetPath, int threads) throws IOException {
+		Assert.notExisted(gzPath, "需要被解压的文件不存在:"+gzPath);
+		InputStream is = null;
+		try {
+			is = new GzipCompressorInputStream(
+					new BufferedInputStream(FileUtils.getInputStream(gzPath), GzUtils.STREAM_BUFFER), true);
+			TarUtils.getInstance().unTar(is, targetPath, threads);
+		} finally {
+			IOUtils.close(is);
+		}
+	}
+	
 	/**
 	 * 解压zip包到指定路径
 	 * 
@@ -192,6 +259,18 @@ public class CompressUtils {
 		ZipUtils.getInstance().unZip(zipPath, targetPath);
 	}
 	
+	/**
+	 * 多线程解压zip包到指定路径
+	 * 
+	 * @param zipPath zip包路径
+	 * @param targetPath 解压目录
+	 * @param threads 线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	public static void unZip(String zipPath, String targetPath, int threads) throws IOException {
+		ZipUtils.getInstance().unZip(zipPath, targetPath, threads);
+	}
+	
 	/**
 	 * 解压7z包到指定路径
 	 * 
@@ -203,6 +282,18 @@ public class CompressUtils {
 		SevenZUtils.decompress(sevenZPath, targetPath);
 	}
 	
+	/**
+	 * 多线程解压7z包到指定路径(解码只能在一个线程中进行，写文件并行)
+	 * 
+	 * @param sevenZPath 7z包路径
+	 * @param targetPath 解压目录
+	 * @param threads 线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	public static void unSevenZ(String sevenZPath, String targetPath, int threads) throws IOException {
+		SevenZUtils.decompress(sevenZPath, targetPath, threads);
+	}
+	
 	/*============内部方法================*/
 	/**
 	 * 将路径转文件数组(参数传递用)
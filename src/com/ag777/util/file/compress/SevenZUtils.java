@@ -1,10 +1,8 @@
 package com.ag777.util.file.compress;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.sevenz.SevenZArchiveEntry;
@@ -12,6 +10,7 @@ import org.apache.commons.compress.archivers.sevenz.SevenZFile;
 import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
 
 import com.ag777.util.file.FileUtils;
+import com.ag777.util.file.compress.base.ArchiveExtractor;
 import com.ag777.util.file.compress.base.BaseApacheCompressUtils;
 import com.ag777.util.lang.IOUtils;
 import com.ag777.util.lang.exception.Assert;
@@ -28,7 +27,7 @@ import com.ag777.util.lang.exception.Assert;
  * </p>
  * 
  * @author ag777
- * @version create on 2018年04月16日,last modify at 2019年07月30日
+ * @version create on 2018年04月16日,last modify at 2026年10月18日
  */
 public class SevenZUtils {
 	
@@ -72,44 +71,22 @@ public class SevenZUtils {
 	 * @throws IOException
 	 */
 	public static void decompress(String packagePath, String targetPath) throws IOException {
+		decompress(packagePath, targetPath, 1);
+	}
+	
+	/**
+	 * 解压压缩包，在当前线程解码，在线程池中写文件
+	 * @param packagePath 压缩包路径
+	 * @param targetPath 解压目录
+	 * @param threads 线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	public static void decompress(String packagePath, String targetPath, int threads) throws IOException {
 		Assert.notExisted(packagePath, "需要解压的文件不存在:" + packagePath);
 		SevenZFile tais = null;
 		try {
-			File sevenZFile = new File(packagePath);
-			tais = new SevenZFile(sevenZFile);
-			ArchiveEntry entry = null;
-			while ((entry = tais.getNextEntry()) != null) {
-				
-				// 文件
-				String dir = targetPath + File.separator + entry.getName();
-
-				File dirFile = new File(dir);
-
-				// 文件检查
-//				FileUtils.makeDir(dirFile.getParent(), true);
-
-				if (entry.isDirectory()) {
-					dirFile.mkdirs();
-				} else {
-					BufferedOutputStream bos = null;
-					try {	//必须在这层包try-catch并及时关闭输出流，不然会导致输出空文件，而且解压后也无法删除文件(被占用)
-						bos = new BufferedOutputStream(new FileOutputStream(dirFile));
-	
-						int count;
-						byte data[] = new byte[BaseApacheCompressUtils.BUFFER];
-						while ((count = tais.read(data, 0, BaseApacheCompressUtils.BUFFER)) != -1) {
-							bos.write(data, 0, count);
-						}
-					} catch(Exception ex) {
-						throw ex;
-					} finally {
-						IOUtils.close(bos);
-					}
-				}
-
-			}
-		} catch (Exception ex) {
-			throw ex;
+			tais = new SevenZFile(new File(packagePath));
+			new ArchiveExtractor(new File(targetPath), threads).extract(tais);
 		} finally {
 			IOUtils.close(tais);
 		}
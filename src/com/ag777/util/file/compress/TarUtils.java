@@ -4,6 +4,11 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
@@ -13,6 +18,9 @@ import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 
 import com.ag777.util.file.FileUtils;
 import com.ag777.util.file.compress.base.BaseApacheCompressUtils;
+import com.ag777.util.lang.IOUtils;
+import com.ag777.util.lang.exception.model.ValidateException;
+import com.ag777.util.lang.thread.ParallelTaskUtils;
 
 /**
  * 有关tar文件的压缩和解压的工具基类,commons-compress二次封装
@@ -27,10 +35,13 @@ import com.ag777.util.file.compress.base.BaseApacheCompressUtils;
  * </p>
  * 
  * @author ag777
- * @version create on 2018年04月12日,last modify at 2023年02月16日
+ * @version create on 2018年04月12日,last modify at 2026年10月18日
  */
 public class TarUtils extends BaseApacheCompressUtils{
 
+	/** 多线程打包时预读到内存的文件大小上限 */
+	private static final int PREFETCH_SIZE = 1024 * 1024;
+	
 	public static TarUtils mInstance = new TarUtils();
 	
 	public static TarUtils getInstance() {
@@ -65,6 +76,93 @@ public class TarUtils extends BaseApacheCompressUtils{
 		return compress(files, tarPath);	//调用父类方法压缩文件
 	}
 	
+	/**
+	 * 多线程打包tar，不关闭输出流
+	 * <p>
+	 * tar本身不压缩，瓶颈在读文件:小文件(不超过1M)在线程池中预读到内存，当前线程按顺序写出tar条目，大文件在写出时直接流式读取。
+	 * 输出流可以是{@link ParallelGzipOutputStream}，这样读文件和gzip压缩都是并行的，见{@link CompressUtils#targz(File[], String, int)}
+	 * </p>
+	 * @param files 需要打包的文件或文件夹
+	 * @param os 输出流
+	 * @param threads 读文件的线程数
+	 * @throws IOException 读写异常
+	 */
+	public void tar(File[] files, OutputStream os, int threads) throws IOException {
+		checkFiles(files);
+		tar(listItems(files), os, threads);
+	}
+	
+	/**
+	 * 多线程打包tar，按给定的路径和顺序写出条目，不关闭输出流(比如只打包变化过的文件)
+	 * @param items 归档项，目录需要在其子项之前
+	 * @param os 输出流
+	 * @param threads 读文件的线程数
+	 * @throws IOException 读写异常
+	 */
+	public void tar(List<PackItem> items, OutputStream os, int threads) throws IOException {
+		int concurrency = Math.max(1, threads);
+		TarArchiveOutputStream tos = newTarOutputStream(os);
+		try {
+			ParallelTaskUtils.batchStreaming(items.iterator(), (item, index) -> {
+				if (item.dir || item.file.length() > PREFETCH_SIZE) {
+					return null;
+				}
+				try {
+					return Files.readAllBytes(item.file.toPath());
+				} catch (IOException e) {
+					throw new ValidateException(e.getMessage(), e);
+				}
+			}, concurrency, concurrency * 4, true, (data, index) -> {
+				try {
+					putEntry(tos, items.get(index), data);
+				} catch (IOException e) {
+					throw new ValidateException(e.getMessage(), e);
+				}
+			});
+			tos.finish();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("tar打包被中断");
+		} catch (ValidateException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * 写出一个tar条目
+	 * @param data 预读的文件内容，为null时从文件流式读取
+	 */
+	private void putEntry(TarArchiveOutputStream tos, PackItem item, byte[] data) throws IOException {
+		TarArchiveEntry entry = new TarArchiveEntry(item.path);
+		entry.setModTime(item.file.lastModified());
+		if (item.dir) {
+			tos.putArchiveEntry(entry);
+			tos.closeArchiveEntry();
+			return;
+		}
+		if (data != null) {
+			// 以预读的内容为准，防止读取后文件又被修改导致长度不一致
+			entry.setSize(data.length);
+			tos.putArchiveEntry(entry);
+			tos.write(data);
+			tos.closeArchiveEntry();
+			return;
+		}
+		entry.setSize(item.file.length());
+		tos.putArchiveEntry(entry);
+		InputStream is = null;
+		try {
+			is = FileUtils.getInputStream(item.file);
+			GzUtils.copy(is, tos);
+		} finally {
+			IOUtils.close(is);
+		}
+		tos.closeArchiveEntry();
+	}
+	
 	/*=================解压====================*/
     /**
      * 解tar包
@@ -77,6 +175,30 @@ public class TarUtils extends BaseApacheCompressUtils{
 		decompress(tarPath, targetPath);	//调用父类方法解压文件
 	}
 	
+	/**
+	 * 多线程解tar包，在当前线程读取，在线程池中写文件
+	 * 
+	 * @param tarPath tar包路径
+	 * @param targetPath 解压目录
+	 * @param threads 线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	public void unTar(String tarPath, String targetPath, int threads) throws IOException {
+		decompress(tarPath, targetPath, threads);
+	}
+	
+	/**
+	 * 从流中解tar包，不关闭输入流
+	 * 
+	 * @param is tar包输入流(比如gzip解压流)
+	 * @param targetPath 解压目录
+	 * @param threads 线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	public void unTar(InputStream is, String targetPath, int threads) throws IOException {
+		decompress(is, targetPath, threads);
+	}
+	
 	/*============实现父类方法==================*/
 	
 	@Override
@@ -90,8 +212,13 @@ public class TarUtils extends BaseApacheCompressUtils{
 	
 	@Override
 	public ArchiveOutputStream getArchiveOutputStream(String filePath) throws FileNotFoundException {
-		TarArchiveOutputStream stream = new TarArchiveOutputStream(FileUtils.getOutputStream(filePath));
+		return newTarOutputStream(FileUtils.getOutputStream(filePath));
+	}
+	
+	static TarArchiveOutputStream newTarOutputStream(OutputStream os) {
+		TarArchiveOutputStream stream = new TarArchiveOutputStream(os);
 		stream.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);	//防止压缩文件名(或路径)过长时报错,但是这么压缩会导致不支持的系统解压不了
+		stream.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);	//超过8G的文件
 		return stream;
 	}
 	
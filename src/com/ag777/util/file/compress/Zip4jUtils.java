@@ -30,7 +30,7 @@ import net.lingala.zip4j.model.enums.EncryptionMethod;
  * <p><a href="https://github.com/srikanth-lingala/zip4j">项目地址</a>
  *
  * @author ag777
- * @version create on 2019年08月01日,last modify at 2024年05月17日
+ * @version create on 2019年08月01日,last modify at 2026年10月18日
  */
 public class Zip4jUtils {
 	
@@ -232,6 +232,9 @@ public class Zip4jUtils {
 	
 	/**
 	 * 获取压缩包对应文件的输入流
+	 * <p>
+	 * zip4j每次查找都会重新解析中央目录，条目多时单次调用就要上百毫秒，频繁读取(比如提供静态资源)请使用{@link MappedZipReader}
+	 * </p>
 	 * @param zipFile 压缩文件
 	 * @param absPath 文件相对于压缩包根目录的位置,比如a/b/c.txt
 	 * @return Optional<ZipInputStream>
@@ -1,12 +1,12 @@
 package com.ag777.util.file.compress.base;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
@@ -26,7 +26,7 @@ import com.ag777.util.lang.exception.Assert;
  * </p>
  * 
  * @author ag777
- * @version create on 2018年04月12日,last modify at 2018年06月28日
+ * @version create on 2018年04月12日,last modify at 2026年10月18日
  */
 public abstract class BaseApacheCompressUtils {
 	public final static int BUFFER = 1024;
@@ -39,11 +39,7 @@ public abstract class BaseApacheCompressUtils {
 	 * @throws IOException
 	 */
 	protected File compress(File[] files, String packagePath) throws IOException {
-		Assert.notEmpty(files, "至少选择压缩一个文件");
-		for (File f : files) {
-			Assert.notNull(f, "需要压缩的文件不能为空");
-			Assert.notExisted(f, "需要压缩的文件不存在:" + f.getAbsolutePath());
-		}
+		checkFiles(files);
 		ArchiveOutputStream tos = null;
 		try {
 			tos = getArchiveOutputStream(packagePath);
@@ -70,51 +66,62 @@ public abstract class BaseApacheCompressUtils {
 	 * @throws IOException
 	 */
 	protected void decompress(String packagePath, String targetPath) throws IOException {
+		decompress(packagePath, targetPath, 1);
+	}
+	
+	/**
+	 * 多线程解压压缩包
+	 * <p>
+	 * 支持随机访问的格式(zip)按条目并行解压，其它格式在当前线程读取、在线程池中写文件，见{@link ArchiveExtractor}
+	 * </p>
+	 * @param packagePath 压缩包路径
+	 * @param targetPath 解压目录
+	 * @param threads 线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	protected void decompress(String packagePath, String targetPath, int threads) throws IOException {
 		Assert.notExisted(packagePath, "需要解压的文件不存在:" + packagePath);
-		ArchiveInputStream tais = null;
+		ArchiveExtractor extractor = new ArchiveExtractor(new File(targetPath), threads);
+		if (extractRandomAccess(new File(packagePath), extractor)) {
+			return;
+		}
+		InputStream is = null;
 		try {
-			File tarFile = new File(packagePath);
-			tais = getArchiveInputStream(FileUtils.getInputStream(tarFile));
-			
-			ArchiveEntry entry = null;
-			while ((entry = tais.getNextEntry()) != null) {
-				
-				// 文件
-				String dir = targetPath + File.separator + entry.getName();
-
-				File dirFile = new File(dir);
-
-				// 文件检查
-//				FileUtils.makeDir(dirFile.getParent(), true);
-
-				if (entry.isDirectory()) {		//zip包好像不走这步,所以必须在解压文件时创建父路径
-					dirFile.mkdirs();
-				} else {
-					dirFile.getParentFile().mkdirs();
-					BufferedOutputStream bos = null;
-					try {	//必须在这层包try-catch并及时关闭输出流，不然会导致输出空文件，而且解压后也无法删除文件(被占用)
-						bos = new BufferedOutputStream(new FileOutputStream(dirFile));
-	
-						int count;
-						byte data[] = new byte[BUFFER];
-						while ((count = tais.read(data, 0, BUFFER)) != -1) {
-							bos.write(data, 0, count);
-						}
-					} catch(Exception ex) {
-						throw ex;
-					} finally {
-						IOUtils.close(bos);
-					}
-				}
-
-			}
-		} catch (Exception ex) {
-			throw ex;
+			is = new BufferedInputStream(FileUtils.getInputStream(packagePath), 64 * 1024);
+			decompress(is, extractor);
 		} finally {
-			IOUtils.close(tais);
+			IOUtils.close(is);
 		}
 	}
 	
+	/**
+	 * 从流中解压(比如边解压gz边解包tar)，不关闭输入流
+	 * @param is 压缩包输入流
+	 * @param targetPath 解压目录
+	 * @param threads 线程数
+	 * @throws IOException 读写异常或压缩包中的路径超出解压目录
+	 */
+	protected void decompress(InputStream is, String targetPath, int threads) throws IOException {
+		decompress(is, new ArchiveExtractor(new File(targetPath), threads));
+	}
+	
+	private void decompress(InputStream is, ArchiveExtractor extractor) throws IOException {
+		// ArchiveInputStream关闭时会关闭原输入流，这里不关闭，由调用方负责
+		ArchiveInputStream ais = getArchiveInputStream(is);
+		extractor.extract(ais);
+	}
+	
+	/**
+	 * 支持随机访问的格式重写此方法，直接从文件并行解压
+	 * @param packageFile 压缩包
+	 * @param extractor 解压引擎
+	 * @return 是否已解压，返回false时按流式解压
+	 * @throws IOException 读写异常
+	 */
+	protected boolean extractRandomAccess(File packageFile, ArchiveExtractor extractor) throws IOException {
+		return false;
+	}
+	
 	/**
 	 * 归档目录
 	 * @param os
@@ -131,6 +138,7 @@ public abstract class BaseApacheCompressUtils {
     	ArchiveEntry dirEntry = getArchiveEntry(dir, file, false);
     	if(dirEntry != null) {
     		os.putArchiveEntry(dirEntry);
+    		os.closeArchiveEntry();	//不关闭的话最后一项是目录时finish会失败
     	}
 		
 		
@@ -178,6 +186,62 @@ public abstract class BaseApacheCompressUtils {
         
     }
     
+    /**
+     * 校验需要压缩的文件列表
+     * @param files 需要压缩的文件或文件夹
+     */
+    protected static void checkFiles(File[] files) {
+    	Assert.notEmpty(files, "至少选择压缩一个文件");
+    	for (File f : files) {
+    		Assert.notNull(f, "需要压缩的文件不能为空");
+    		Assert.notExisted(f, "需要压缩的文件不存在:" + f.getAbsolutePath());
+    	}
+    }
+    
+    /**
+     * 按addDir/addFile的顺序列出需要归档的所有项(目录在其子项之前)，供多线程打包使用
+     * @param files 需要压缩的文件或文件夹
+     * @return 归档项列表，路径分隔符统一为/
+     */
+    protected static List<PackItem> listItems(File[] files) {
+    	List<PackItem> items = new ArrayList<>();
+    	for (File file : files) {
+    		listItems(file, "", items);
+    	}
+    	return items;
+    }
+    
+    private static void listItems(File file, String baseDir, List<PackItem> items) {
+    	if (!file.isDirectory()) {
+    		items.add(new PackItem(baseDir + file.getName(), file, false));
+    		return;
+    	}
+    	String dir = baseDir + file.getName() + "/";
+    	items.add(new PackItem(dir, file, true));
+    	File[] listFiles = file.listFiles();
+    	if (listFiles != null) {
+    		for (File f : listFiles) {
+    			listItems(f, dir, items);
+    		}
+    	}
+    }
+    
+    /**
+     * 压缩包中的一项
+     */
+    public static final class PackItem {
+    	/** 压缩包内路径，目录以/结尾 */
+    	public final String path;
+    	public final File file;
+    	public final boolean dir;
+    	
+    	public PackItem(String path, File file, boolean dir) {
+    		this.path = path;
+    		this.file = file;
+    		this.dir = dir;
+    	}
+    }
+    
     /**
      * 获取压缩包内每一项的对象,如果返回null则当前文件不计入压缩包
      * @param filePath 压缩包内路径
@@ -0,0 +1,154 @@
+package com.ag777.util.file.csv;
+
+import com.csvreader.CsvReader;
+import com.csvreader.CsvWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * csv读写与javacsv的性能对比，只有这个类依赖javacsv.jar，{@link CsvStreamWriter}和{@link CsvStreamReader}本身不依赖
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午6:00
+ */
+public class CsvBenchmark {
+
+    private CsvBenchmark() {
+    }
+
+    /**
+     * @param args 读取测试的文件大小，单位M，默认512
+     */
+    public static void main(String[] args) throws Exception {
+        write(1_000_000);
+        read((args.length > 0 ? Long.parseLong(args[0]) : 512) << 20);
+    }
+
+    /**
+     * rows行x6列(整数、浮点数、中英文字符串、日期)分别用javacsv和{@link CsvStreamWriter}写入内存，各跑3轮，输出耗时
+     * <p>
+     * 两边每行都格式化一次日期，javacsv使用循环外创建的SimpleDateFormat
+     * </p>
+     * @param rows 行数
+     * @throws IOException 写出异常
+     */
+    public static void write(int rows) throws IOException {
+        // 取整到秒，两边输出相同的内容
+        Date now = new Date(System.currentTimeMillis() / 1000 * 1000);
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        for (int round = 0; round < 3; round++) {
+            ByteArrayOutputStream javacsvOut = new ByteArrayOutputStream(64 << 20);
+            long start = System.currentTimeMillis();
+            CsvWriter javacsv = new CsvWriter(javacsvOut, ',', StandardCharsets.UTF_8);
+            String[] record = new String[6];
+            for (int i = 0; i < rows; i++) {
+                record[0] = String.valueOf(i);
+                record[1] = String.valueOf(i * 0.25);
+                record[2] = "name-" + i;
+                record[3] = "中文内容" + (i % 100);
+                record[4] = i % 10 == 0 ? "a,b \"c\"" : "plain";
+                record[5] = format.format(now);
+                javacsv.writeRecord(record);
+            }
+            javacsv.close();
+            long javacsvTime = System.currentTimeMillis() - start;
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(64 << 20);
+            start = System.currentTimeMillis();
+            try (CsvStreamWriter writer = new CsvStreamWriter(out, ',', false)) {
+                for (int i = 0; i < rows; i++) {
+                    writer.writeField(i)
+                            .writeField(i * 0.25)
+                            .writeField("name-" + i)
+                            .writeField("中文内容" + (i % 100))
+                            .writeField(i % 10 == 0 ? "a,b \"c\"" : "plain")
+                            .writeField(now)
+                            .endRow();
+                }
+            }
+            long time = System.currentTimeMillis() - start;
+            System.out.println(String.format("写入第%d轮: javacsv=%dms(%dMB), CsvStreamWriter=%dms(%dMB)",
+                    round + 1, javacsvTime, javacsvOut.size() >> 20, time, out.size() >> 20));
+        }
+    }
+
+    /**
+     * 生成约targetSize字节的测试文件，分别用javacsv和{@link CsvStreamReader}的forEach、collect、stream读取并累加数值列，
+     * 各跑3轮，输出耗时和吞吐量
+     * @param targetSize 文件大小
+     * @throws Exception 读写异常或并行读取被中断
+     */
+    public static void read(long targetSize) throws Exception {
+        File file = File.createTempFile("csv-bench", ".csv");
+        file.deleteOnExit();
+        try (CsvStreamWriter writer = new CsvStreamWriter(new BufferedOutputStream(new FileOutputStream(file)))) {
+            writer.writeRow("id", "price", "name", "memo", "time", "flag");
+            long time = System.currentTimeMillis();
+            for (long i = 0; file.length() < targetSize; ) {
+                for (int j = 0; j < 10000; j++, i++) {
+                    writer.writeField(i)
+                            .writeField(i * 0.25)
+                            .writeField("名称" + (i % 1000))
+                            .writeField(i % 100 == 0 ? "含有,逗号和\n换行" : "memo" + i)
+                            .writeField(new Date(time + i * 1000))
+                            .writeField(i % 2 == 0)
+                            .endRow();
+                }
+                writer.flush();
+            }
+        }
+        System.out.println(String.format("文件大小: %dMB", file.length() >> 20));
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 3; round++) {
+            long start = System.currentTimeMillis();
+            CsvReader javacsv = new CsvReader(file.getAbsolutePath(), ',', StandardCharsets.UTF_8);
+            javacsv.readHeaders();
+            long count = 0;
+            double sum = 0;
+            while (javacsv.readRecord()) {
+                count += Long.parseLong(javacsv.get(0)) >= 0 ? 1 : 0;
+                sum += Double.parseDouble(javacsv.get(1));
+            }
+            javacsv.close();
+            print("javacsv", start, file, count, sum);
+
+            start = System.currentTimeMillis();
+            double[] acc = new double[2];
+            CsvStreamReader reader = new CsvStreamReader(file).skipRows(1).parallelism(threads);
+            reader.forEach(row -> {
+                acc[0] += row.getLong(0) >= 0 ? 1 : 0;
+                acc[1] += row.getDouble(1);
+            });
+            print("forEach", start, file, (long) acc[0], acc[1]);
+
+            start = System.currentTimeMillis();
+            List<double[]> accs = reader.collect(() -> new double[2], (a, row) -> {
+                a[0] += row.getLong(0) >= 0 ? 1 : 0;
+                a[1] += row.getDouble(1);
+            });
+            print("collect(" + threads + "线程)", start, file,
+                    (long) accs.stream().mapToDouble(a -> a[0]).sum(), accs.stream().mapToDouble(a -> a[1]).sum());
+
+            start = System.currentTimeMillis();
+            try (Stream<String[]> stream = reader.stream()) {
+                count = stream.count();
+            }
+            print("stream", start, file, count, 0);
+        }
+    }
+
+    private static void print(String name, long start, File file, long count, double sum) {
+        long time = Math.max(1, System.currentTimeMillis() - start);
+        System.out.println(String.format("%s: %dms, %dMB/s, 行数=%d, 合计=%.1f",
+                name, time, (file.length() >> 20) * 1000 / time, count, sum));
+    }
+}
@@ -3,58 +3,43 @@ package com.ag777.util.file.csv;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
 import com.ag777.util.file.FileUtils;
-import com.ag777.util.lang.collection.ListUtils;
-import com.csvreader.CsvWriter;
 
 /**
  * csv文件写入辅助类
  * <p>
- * 	需要jar包:
- * <ul>
- * <li>javacsv.jar</li>
- * </ul>
+ * 基于{@link CsvStreamWriter}，bom写在文件开头，行数多时请用writeIterator逐行写入
  * </p>
  * 
  * @author ag777
- * @version create on 2018年01月22日,last modify at 2018年01月22日
+ * @version create on 2018年01月22日,last modify at 2026年10月18日
  */
 public class CsvBuilder {
 
-	private final static String CHARSET = "utf-8";
-	private OutputStream os;
-	private CsvWriter csvWriter;
+	private CsvStreamWriter csvWriter;
 	
 	public CsvBuilder(OutputStream os) {
-		this.os = os;
-		csvWriter = new CsvWriter(os, ',', Charset.forName(CHARSET));
+		csvWriter = new CsvStreamWriter(os);
 	}
 	
 	public static CsvBuilder file(String filePath) throws FileNotFoundException {
 		return new CsvBuilder(FileUtils.getOutputStream(filePath));
 	}
 	
+	/**
+	 * 获取底层的流式写入器，用于按类型写入字段
+	 * @return 写入器
+	 */
+	public CsvStreamWriter writer() {
+		return csvWriter;
+	}
+	
 	public void save() throws IOException {
-		try {
-			os.write(new byte[] { (byte) 0xEF, (byte) 0xBB,(byte) 0xBF });	//手动添加bom信息解决中文乱码
-			csvWriter.flush();
-			csvWriter.close();
-		} catch (IOException e) {
-			throw e;
-		} finally {
-			if(os != null) {
-				try {
-					os.flush();
-					os.close();
-				} catch (IOException e) {
-				}
-			}
-		}
-		
+		csvWriter.close();
 	}
 	
 	/**
@@ -63,7 +48,7 @@ public class CsvBuilder {
 	 * @throws IOException
 	 */
 	public void writeLine(String[] datas) throws IOException {
-		csvWriter.writeRecord(datas);
+		csvWriter.writeRow((Object[]) datas);
 	}
 	
 	/**
@@ -103,7 +88,7 @@ public class CsvBuilder {
 	public void writeList(List<List<String>> dataList) throws IOException {
 		//写每一行的数据
 		for (List<String> rowObj : dataList) {
-			writeLine(ListUtils.toArray(rowObj, String.class));
+			csvWriter.writeRow(rowObj);
 		}
 	}
 	
@@ -114,31 +99,16 @@ public class CsvBuilder {
 	 * @throws IOException
 	 */
 	public void writeListMap(List<Map<String, Object>> dataList, String[] keys) throws IOException {
-		//写每一行的数据
-		for (Map<String, Object> rowObj : dataList) {
-			writeLine(getContent(rowObj, keys));
-		}
+		writeIterator(dataList.iterator(), keys);
 	}
 	
-	
-	/*--------内部工具方法---------------------*/
 	/**
-	 * 通过map和keys构造每一行的数据
-	 * @param rowObj
-	 * @param keys
-	 * @return
+	 * 逐行写入
+	 * @param itor 数据迭代器
+	 * @param keys 键
+	 * @throws IOException
 	 */
-	private static String[] getContent(Map<String, Object> rowObj, String[] keys) {
-		String[] content = new String[keys.length];
-		int i = 0;
-		for (String key : keys) {
-			if (rowObj.containsKey(key) && rowObj.get(key) != null) {
-				content[i] = rowObj.get(key).toString();
-			} else {
-				content[i] = "";
-			}
-			i++;
-		}
-		return content;
+	public void writeIterator(Iterator<? extends Map<String, ?>> itor, String[] keys) throws IOException {
+		csvWriter.writeAll(itor, keys);
 	}
 }
@@ -0,0 +1,336 @@
+package com.ag777.util.file.csv;
+
+import java.util.Arrays;
+
+/**
+ * csv中的一行，由{@link CsvStreamReader}复用
+ * <p>
+ * 一行的全部字段解码后连续存放在同一个char[]中(引号已去掉，转义的两个引号已还原)，只记录每个字段的起止位置:
+ * <ul>
+ * <li>{@link #get(int)}返回字段的CharSequence视图，不复制字符</li>
+ * <li>getInt/getLong/getDouble直接从char[]解析，不创建String</li>
+ * <li>{@link #getString(int)}/{@link #toArray()}才会创建String</li>
+ * </ul>
+ * 回调返回后对象会被下一行复用，需要保留数据时请调用getString或toArray
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午1:10
+ */
+public final class CsvRow {
+
+    /* 2^53，不超过这个值的整数可以精确表示为double */
+    private static final long MAX_EXACT = 1L << 53;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    char[] chars = new char[256];
+    int length;
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int size;
+    private long offset;
+    private View[] views = new View[16];
+
+    CsvRow() {
+    }
+
+    /**
+     * @return 字段数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 这一行在文件中的字节偏移量(用于定位出错的行)
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * 字段视图，只在当前行有效
+     * @param index 列号
+     * @return 字段内容，列号超出时返回null
+     */
+    public CharSequence get(int index) {
+        if (index >= size) {
+            return null;
+        }
+        View view = views[index];
+        if (view == null) {
+            view = new View(index);
+            views[index] = view;
+        }
+        return view;
+    }
+
+    /**
+     * @param index 列号
+     * @return 字段内容，列号超出时返回null
+     */
+    public String getString(int index) {
+        if (index >= size) {
+            return null;
+        }
+        return new String(chars, starts[index], ends[index] - starts[index]);
+    }
+
+    /**
+     * @param index 列号
+     * @return 字段是否为空字符串(列号超出也视为空)
+     */
+    public boolean isEmpty(int index) {
+        return index >= size || starts[index] == ends[index];
+    }
+
+    /**
+     * @param index 列号
+     * @return 字段长度，列号超出时返回0
+     */
+    public int length(int index) {
+        return index >= size ? 0 : ends[index] - starts[index];
+    }
+
+    /**
+     * 解析整数，忽略首尾空格
+     * @param index 列号
+     * @return 整数值
+     * @throws NumberFormatException 字段不是整数或超出范围
+     */
+    public int getInt(int index) {
+        long value = getLong(index);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw numberException(index, "int");
+        }
+        return (int) value;
+    }
+
+    /**
+     * 解析长整数，忽略首尾空格
+     * @param index 列号
+     * @return 长整数值
+     * @throws NumberFormatException 字段不是整数或超出范围
+     */
+    public long getLong(int index) {
+        if (index >= size) {
+            throw numberException(index, "long");
+        }
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        if (start == end) {
+            throw numberException(index, "long");
+        }
+        boolean negative = false;
+        char first = chars[start];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++start == end) {
+                throw numberException(index, "long");
+            }
+        }
+        // 按负数累计，这样可以表示Long.MIN_VALUE
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multmin = limit / 10;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9 || result < multmin) {
+                throw numberException(index, "long");
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw numberException(index, "long");
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * 解析浮点数，忽略首尾空格
+     * <p>
+     * 有效数字不超过2^53且指数不超过22的普通写法(如-12.345、1.5e3)直接计算，结果与Double.parseDouble一致；
+     * 其余情况(NaN、Infinity、更多有效数字等)交给Double.parseDouble
+     * </p>
+     * @param index 列号
+     * @return 浮点数值
+     * @throws NumberFormatException 字段不是数字
+     */
+    public double getDouble(int index) {
+        if (index >= size) {
+            throw numberException(index, "double");
+        }
+        int start = trimStart(index);
+        int end = trimEnd(index, start);
+        int i = start;
+        boolean negative = false;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean dot = false;
+        boolean valid = true;
+        for (; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                if (mantissa >= MAX_EXACT / 10) {
+                    valid = false;
+                    break;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (dot) {
+                    exponent--;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (valid && digits > 0 && i < end && (chars[i] == 'e' || chars[i] == 'E')) {
+            i++;
+            boolean negativeExp = false;
+            if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+                negativeExp = chars[i] == '-';
+                i++;
+            }
+            int exp = 0;
+            int expStart = i;
+            for (; i < end && chars[i] >= '0' && chars[i] <= '9' && exp < 1000; i++) {
+                exp = exp * 10 + (chars[i] - '0');
+            }
+            valid = i > expStart;
+            exponent += negativeExp ? -exp : exp;
+        }
+        if (valid && digits > 0 && i == end && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? mantissa / POW10[-exponent] : mantissa * POW10[exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(chars, start, end - start));
+        } catch (NumberFormatException e) {
+            throw numberException(index, "double");
+        }
+    }
+
+    /**
+     * true/1为真(忽略大小写)，其余为假
+     * @param index 列号
+     * @return 布尔值
+     */
+    public boolean getBoolean(int index) {
+        int len = length(index);
+        if (len == 1) {
+            return chars[starts[index]] == '1';
+        }
+        if (len != 4) {
+            return false;
+        }
+        int s = starts[index];
+        return (chars[s] | 0x20) == 't' && (chars[s + 1] | 0x20) == 'r'
+                && (chars[s + 2] | 0x20) == 'u' && (chars[s + 3] | 0x20) == 'e';
+    }
+
+    /**
+     * @return 所有字段组成的数组
+     */
+    public String[] toArray() {
+        String[] values = new String[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = getString(i);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /*=============解析器使用=============*/
+    void reset(long offset) {
+        this.offset = offset;
+        length = 0;
+        size = 0;
+    }
+
+    void ensureCapacity(int extra) {
+        if (length + extra > chars.length) {
+            chars = Arrays.copyOf(chars, Math.max(length + extra, chars.length * 2));
+        }
+    }
+
+    void endField(int start) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+            views = Arrays.copyOf(views, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = length;
+        size++;
+    }
+
+    private int trimStart(int index) {
+        int start = starts[index];
+        int end = ends[index];
+        while (start < end && chars[start] == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimEnd(int index, int start) {
+        int end = ends[index];
+        while (end > start && chars[end - 1] == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private NumberFormatException numberException(int index, String type) {
+        return new NumberFormatException(String.format("第%d列无法转换为%s:%s(偏移量%d)",
+                index + 1, type, index < size ? getString(index) : "<无此列>", offset));
+    }
+
+    /**
+     * 字段视图，读取当前行char[]中的内容
+     */
+    private final class View implements CharSequence {
+        private final int index;
+
+        View(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public int length() {
+            return ends[index] - starts[index];
+        }
+
+        @Override
+        public char charAt(int i) {
+            if (i < 0 || i >= length()) {
+                throw new IndexOutOfBoundsException(String.valueOf(i));
+            }
+            return chars[starts[index] + i];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return getString(index);
+        }
+    }
+}
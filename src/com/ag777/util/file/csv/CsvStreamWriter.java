@@ -0,0 +1,555 @@
+package com.ag777.util.file.csv;
+
+import com.ag777.util.file.FileUtils;
+import com.ag777.util.file.compress.GzUtils;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * csv流式写入
+ * <p>
+ * 字段直接以utf-8编码写入可复用的byte[]缓冲区，不经过String/Writer中转:
+ * <ul>
+ * <li>只在需要时加引号(包含分隔符、引号、换行，首尾有空白，或者行首为#)，引号转义为两个引号</li>
+ * <li>整数直接按位写入，日期按yyyy-MM-dd HH:mm:ss逐位写入(秒以下不为0时追加小数部分，如.123)，不产生中间字符串</li>
+ * <li>数据可以来自Iterator/Stream/ResultSet，内存占用与行数无关</li>
+ * <li>bom在最开始写入(可选)，文件名以.gz结尾时自动gzip压缩</li>
+ * </ul>
+ * 字符串字段的引号和转义规则与javacsv一致(逗号分隔，\n换行)，区别是首尾空白会加引号保留而不是被去掉；
+ * 非字符串的值不一定与toString相同: java.util.Date按上述日期格式写出，Timestamp的小数部分为0时不写".0"，浮点数与Float/Double.toString一致。
+ * 测试(100万行x6列, 见{@link CsvBenchmark}): javacsv约1.8~2.6s, 本类约0.55s(预热后, 单核机器)
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午0:20
+ */
+public class CsvStreamWriter implements Closeable, Flushable {
+
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /* 单个字符编码后最多4字节，剩余空间不足时先刷出 */
+    private static final int RESERVE = 8;
+
+    private final OutputStream os;
+    private final byte delimiter;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private boolean firstField = true;
+    private boolean lastFieldEmpty;
+    private int fieldCount;
+    private long rowCount;
+    private final Calendar calendar = Calendar.getInstance();
+
+    /**
+     * @param os 输出流，关闭时一并关闭
+     * @param delimiter 分隔符(ascii字符)
+     * @param bom 是否在开头写入utf-8的bom(excel打开时中文不乱码)
+     */
+    public CsvStreamWriter(OutputStream os, char delimiter, boolean bom) {
+        if (delimiter > 127 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("不支持的分隔符:" + delimiter);
+        }
+        this.os = os;
+        this.delimiter = (byte) delimiter;
+        if (bom) {
+            System.arraycopy(BOM, 0, buf, 0, BOM.length);
+            pos = BOM.length;
+        }
+    }
+
+    public CsvStreamWriter(OutputStream os) {
+        this(os, ',', true);
+    }
+
+    /**
+     * 写入文件，路径以.gz结尾时gzip压缩
+     * @param filePath 文件路径
+     * @return 写入器
+     * @throws IOException 创建文件失败
+     */
+    public static CsvStreamWriter file(String filePath) throws IOException {
+        OutputStream os = FileUtils.getOutputStream(filePath);
+        if (filePath.toLowerCase().endsWith(".gz")) {
+            os = GzUtils.getOutputStream(os);
+        }
+        return new CsvStreamWriter(os);
+    }
+
+    /**
+     * @return 已写入的行数
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /*=============行=============*/
+    /**
+     * 写一行
+     * @param values 字段值
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeRow(Object... values) throws IOException {
+        for (Object value : values) {
+            writeField(value);
+        }
+        return endRow();
+    }
+
+    /**
+     * 写一行
+     * @param values 字段值
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeRow(Iterable<?> values) throws IOException {
+        for (Object value : values) {
+            writeField(value);
+        }
+        return endRow();
+    }
+
+    /**
+     * 按keys的顺序写一行，每个key只取一次值
+     * @param row 数据
+     * @param keys 键
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeRow(Map<String, ?> row, String[] keys) throws IOException {
+        for (String key : keys) {
+            writeField(row.get(key));
+        }
+        return endRow();
+    }
+
+    /**
+     * 逐行写入迭代器中的数据
+     * @param itor 数据迭代器(如数据库游标)
+     * @param keys 键
+     * @return 写入的行数
+     * @throws IOException 写出异常
+     */
+    public long writeAll(Iterator<? extends Map<String, ?>> itor, String[] keys) throws IOException {
+        long count = 0;
+        while (itor.hasNext()) {
+            writeRow(itor.next(), keys);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 逐行写入流中的数据
+     * @param stream 数据流
+     * @param keys 键
+     * @return 写入的行数
+     * @throws IOException 写出异常
+     */
+    public long writeAll(Stream<? extends Map<String, ?>> stream, String[] keys) throws IOException {
+        return writeAll(stream.iterator(), keys);
+    }
+
+    /**
+     * 写入结果集的全部数据，整数/浮点数/时间类型的列直接按类型读取，不经过getString
+     * @param rs 结果集，不会被关闭
+     * @param withTitle 是否把列名(label)写成标题行
+     * @return 写入的数据行数(不含标题行)
+     * @throws SQLException 读取结果集异常
+     * @throws IOException 写出异常
+     */
+    public long writeAll(ResultSet rs, boolean withTitle) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        int[] types = new int[columnCount + 1];
+        for (int i = 1; i <= columnCount; i++) {
+            types[i] = meta.getColumnType(i);
+            if (withTitle) {
+                writeField(meta.getColumnLabel(i));
+            }
+        }
+        if (withTitle) {
+            endRow();
+        }
+        long count = 0;
+        while (rs.next()) {
+            for (int i = 1; i <= columnCount; i++) {
+                switch (types[i]) {
+                    case Types.TINYINT:
+                    case Types.SMALLINT:
+                    case Types.INTEGER:
+                    case Types.BIGINT:
+                        long l = rs.getLong(i);
+                        if (rs.wasNull()) {
+                            writeEmpty();
+                        } else {
+                            writeField(l);
+                        }
+                        break;
+                    case Types.REAL:
+                        float f = rs.getFloat(i);
+                        if (rs.wasNull()) {
+                            writeEmpty();
+                        } else {
+                            writeField(f);
+                        }
+                        break;
+                    case Types.FLOAT:
+                    case Types.DOUBLE:
+                        double d = rs.getDouble(i);
+                        if (rs.wasNull()) {
+                            writeEmpty();
+                        } else {
+                            writeField(d);
+                        }
+                        break;
+                    case Types.TIMESTAMP:
+                        writeField(rs.getTimestamp(i));
+                        break;
+                    default:
+                        writeField(rs.getString(i));
+                }
+            }
+            endRow();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 结束当前行
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter endRow() throws IOException {
+        if (fieldCount == 1 && lastFieldEmpty) {
+            // 只有一个空字段的行写成""，否则读取时会被当作空行跳过
+            ensure(2);
+            buf[pos++] = '"';
+            buf[pos++] = '"';
+        }
+        ensure(1);
+        buf[pos++] = '\n';
+        firstField = true;
+        fieldCount = 0;
+        rowCount++;
+        return this;
+    }
+
+    /*=============字段=============*/
+    /**
+     * 写一个字段，按类型选择写法
+     * @param value 值，null写为空字段
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeField(Object value) throws IOException {
+        if (value == null) {
+            return writeEmpty();
+        } else if (value instanceof CharSequence) {
+            return writeField((CharSequence) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return writeField(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            return writeField(((Double) value).doubleValue());
+        } else if (value instanceof Float) {
+            return writeField(((Float) value).floatValue());
+        } else if (value instanceof Date) {
+            return writeField((Date) value);
+        } else if (value instanceof LocalDateTime) {
+            LocalDateTime t = (LocalDateTime) value;
+            startField();
+            writeDate(t.getYear(), t.getMonthValue(), t.getDayOfMonth());
+            buf[pos++] = ' ';
+            writeTime(t.getHour(), t.getMinute(), t.getSecond(), t.getNano());
+            return this;
+        } else if (value instanceof LocalDate) {
+            LocalDate t = (LocalDate) value;
+            startField();
+            writeDate(t.getYear(), t.getMonthValue(), t.getDayOfMonth());
+            return this;
+        } else if (value instanceof LocalTime) {
+            LocalTime t = (LocalTime) value;
+            startField();
+            writeTime(t.getHour(), t.getMinute(), t.getSecond(), t.getNano());
+            return this;
+        }
+        return writeField(value.toString());
+    }
+
+    /**
+     * 写一个字符串字段，只在需要时加引号
+     * @param value 值，null写为空字段
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeField(CharSequence value) throws IOException {
+        if (value == null || value.length() == 0) {
+            return writeEmpty();
+        }
+        boolean first = firstField;
+        startField();
+        lastFieldEmpty = false;
+        int len = value.length();
+        boolean quote = needQuote(value, len, first);
+        if (quote) {
+            ensure(1);
+            buf[pos++] = '"';
+        }
+        for (int i = 0; i < len; i++) {
+            if (pos > buf.length - RESERVE) {
+                flushBuffer();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') {
+                    buf[pos++] = '"';
+                }
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        if (quote) {
+            ensure(1);
+            buf[pos++] = '"';
+        }
+        return this;
+    }
+
+    /**
+     * 写一个整数字段(逐位写入，不产生字符串)
+     * @param value 值
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeField(long value) throws IOException {
+        startField();
+        writeLong(value);
+        return this;
+    }
+
+    /**
+     * 写一个浮点数字段，整数值逐位写入，其余与Double.toString一致
+     * @param value 值
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeField(double value) throws IOException {
+        if (value == (long) value && Math.abs(value) < 1e7) {
+            // Double.toString在1e7以下的整数输出为"123.0"
+            startField();
+            if (value == 0 && 1 / value < 0) {
+                buf[pos++] = '-';
+            }
+            writeLong((long) value);
+            buf[pos++] = '.';
+            buf[pos++] = '0';
+            return this;
+        }
+        return writeField(Double.toString(value));
+    }
+
+    /**
+     * 写一个单精度浮点数字段，与Float.toString一致(不转成double，否则0.1f会写成0.10000000149011612)
+     * @param value 值
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeField(float value) throws IOException {
+        if (value == (long) value && Math.abs(value) < 1e7f) {
+            // 整数值的写法与double相同
+            return writeField((double) value);
+        }
+        return writeField(Float.toString(value));
+    }
+
+    /**
+     * 写一个日期字段，格式为yyyy-MM-dd HH:mm:ss(java.sql.Date为yyyy-MM-dd，java.sql.Time为HH:mm:ss)，
+     * 毫秒(Timestamp为纳秒)不为0时追加小数部分并去掉末尾的0，如2026-10-17 19:00:00.123
+     * @param value 值，null写为空字段
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeField(Date value) throws IOException {
+        if (value == null) {
+            return writeEmpty();
+        }
+        calendar.setTimeInMillis(value.getTime());
+        startField();
+        boolean date = !(value instanceof java.sql.Time);
+        boolean time = !(value instanceof java.sql.Date);
+        if (date) {
+            writeDate(calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH) + 1, calendar.get(Calendar.DAY_OF_MONTH));
+        }
+        if (date && time) {
+            buf[pos++] = ' ';
+        }
+        if (time) {
+            int nanos = value instanceof Timestamp ? ((Timestamp) value).getNanos() : calendar.get(Calendar.MILLISECOND) * 1_000_000;
+            writeTime(calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), calendar.get(Calendar.SECOND), nanos);
+        }
+        return this;
+    }
+
+    /**
+     * 写一个空字段
+     * @return 写入器本身
+     * @throws IOException 写出异常
+     */
+    public CsvStreamWriter writeEmpty() throws IOException {
+        startField();
+        lastFieldEmpty = true;
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        os.flush();
+    }
+
+    /**
+     * 刷出缓冲区并关闭输出流(gzip输出流会写入结尾)
+     * @throws IOException 写出异常
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            os.close();
+        }
+    }
+
+    /*=============内部方法=============*/
+    /**
+     * 写分隔符并保证缓冲区至少有48字节空间(足够写入数字和带纳秒的日期)
+     */
+    private void startField() throws IOException {
+        ensure(48);
+        if (!firstField) {
+            buf[pos++] = delimiter;
+        }
+        firstField = false;
+        lastFieldEmpty = false;
+        fieldCount++;
+    }
+
+    private boolean needQuote(CharSequence value, int len, boolean first) {
+        char c0 = value.charAt(0);
+        if (c0 == ' ' || c0 == '\t' || (first && c0 == '#')) {
+            return true;
+        }
+        char last = value.charAt(len - 1);
+        if (last == ' ' || last == '\t') {
+            return true;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            for (char c : "-9223372036854775808".toCharArray()) {
+                buf[pos++] = (byte) c;
+            }
+            return;
+        }
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        // 反转
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte b = buf[i];
+            buf[i] = buf[j];
+            buf[j] = b;
+        }
+    }
+
+    private void writeDate(int year, int month, int day) {
+        writeLong(year);
+        buf[pos++] = '-';
+        write2(month);
+        buf[pos++] = '-';
+        write2(day);
+    }
+
+    private void writeTime(int hour, int minute, int second, int nanos) {
+        write2(hour);
+        buf[pos++] = ':';
+        write2(minute);
+        buf[pos++] = ':';
+        write2(second);
+        if (nanos == 0) {
+            return;
+        }
+        // 与Timestamp.toString相同: 9位小数去掉末尾的0
+        buf[pos++] = '.';
+        int start = pos;
+        for (int div = 100_000_000; div > 0; div /= 10) {
+            buf[pos++] = (byte) ('0' + nanos / div % 10);
+        }
+        while (pos > start + 1 && buf[pos - 1] == '0') {
+            pos--;
+        }
+    }
+
+    private void write2(int value) {
+        buf[pos++] = (byte) ('0' + value / 10);
+        buf[pos++] = (byte) ('0' + value % 10);
+    }
+
+    private void ensure(int size) throws IOException {
+        if (pos + size > buf.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            os.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
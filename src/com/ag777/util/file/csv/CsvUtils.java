@@ -2,29 +2,27 @@ package com.ag777.util.file.csv;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.Charset;
-import java.util.ArrayList;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
-import com.csvreader.CsvWriter;
+import com.ag777.util.file.compress.GzUtils;
 
 /**
  * csv文件读写工具(暂时只提供写的方法)
  * <p>
- * 	需要jar包:
- * <ul>
- * <li>javacsv.jar</li>
- * </ul>
+ * 基于{@link CsvStreamWriter}，数据逐行写出，不需要全部放在内存中
  * </p>
  * 
  * @author ag777
- * @version last modify at 2017年08月31日
+ * @version last modify at 2026年10月18日
  */
 public class CsvUtils {
 
-	private final static String CHARSET = "utf-8";
 	private CsvUtils() {}
 	
 	/**
@@ -33,76 +31,81 @@ public class CsvUtils {
 	 * @param keys	列表中数据对应的key,如果为null则为列表中第一项所有的键组成的数组
 	 * @param titles	每列的标题，如果不需要标题则整个传null
 	 * @param os	输出流
-	 * @throws Exception
+	 * @throws IOException 写出异常
 	 */
 	public static void create(List<Map<String, Object>> dataList, String[] keys, String[] titles, OutputStream os)
-			throws Exception {
+			throws IOException {
 		/*参数处理*/
 		if(dataList == null) {
-			dataList = new ArrayList<>();
+			dataList = Collections.emptyList();
 		}
 		
-		if(keys == null && dataList.isEmpty()) {
-			Map<String, Object> firstMap = dataList.get(0);
-			if(!firstMap.isEmpty()) {
-				keys = new String[firstMap.size()];
-				int i=0;
-				Iterator<String> itor = firstMap.keySet().iterator();
-				while(itor.hasNext()) {
-					keys[i] = itor.next();
-					i++;
-				}
-			}
+		if(keys == null && !dataList.isEmpty()) {
+			keys = dataList.get(0).keySet().toArray(new String[0]);
 		}
 		/*参数处理结束*/
-		try {
-			// 创建CSV写对象
-			CsvWriter csvWriter = new CsvWriter(os, ',', Charset.forName(CHARSET));
+		create(dataList.iterator(), keys, titles, os);
+	}
+	
+	/**
+	 * 将迭代器中的数据逐行写成csv格式并写出到输出流,最后关闭输出流
+	 * @param itor	数据迭代器(如数据库游标)
+	 * @param keys	数据对应的key，不能为null
+	 * @param titles	每列的标题，如果不需要标题则整个传null
+	 * @param os	输出流，需要压缩时可以传GzUtils.getOutputStream(os)
+	 * @return 写入的数据行数
+	 * @throws IOException 写出异常
+	 */
+	public static long create(Iterator<? extends Map<String, ?>> itor, String[] keys, String[] titles, OutputStream os)
+			throws IOException {
+		try (CsvStreamWriter writer = new CsvStreamWriter(os)) {
 			if (titles != null) {
 				// 写表头
-				csvWriter.writeRecord(titles);
-			}
-
-			//写每一行的数据
-			for (Map<String, Object> rowObj : dataList) {
-				csvWriter.writeRecord(getContent(rowObj, keys));
-			}
-			
-			os.write(new byte[] { (byte) 0xEF, (byte) 0xBB,(byte) 0xBF });	//手动添加bom信息解决中文乱码
-			csvWriter.flush();
-			csvWriter.close();
-		} catch (Exception e) {
-			throw e;
-		} finally {
-			if(os != null) {
-				try {
-					os.flush();
-					os.close();
-				} catch (IOException e) {
-				}
+				writer.writeRow((Object[]) titles);
 			}
+			return keys == null ? 0 : writer.writeAll(itor, keys);
 		}
+	}
 	
+	/**
+	 * 将流中的数据逐行写成csv格式并写出到输出流,最后关闭输出流
+	 * @param stream	数据流
+	 * @param keys	数据对应的key，不能为null
+	 * @param titles	每列的标题，如果不需要标题则整个传null
+	 * @param os	输出流
+	 * @return 写入的数据行数
+	 * @throws IOException 写出异常
+	 */
+	public static long create(Stream<? extends Map<String, ?>> stream, String[] keys, String[] titles, OutputStream os)
+			throws IOException {
+		return create(stream.iterator(), keys, titles, os);
 	}
-
-	/*--------内部工具方法---------------------*/
+	
 	/**
-	 * 通过map和keys构造每一行的数据
-	 * @param rowObj
-	 * @param keys
-	 * @return
+	 * 将结果集写成csv格式并写出到输出流,最后关闭输出流(结果集不会被关闭)
+	 * @param rs	结果集
+	 * @param withTitle	是否把列名写成标题行
+	 * @param os	输出流
+	 * @return 写入的数据行数
+	 * @throws SQLException 读取结果集异常
+	 * @throws IOException 写出异常
 	 */
-	private static String[] getContent(Map<String, Object> rowObj, String[] keys) {
-		String[] content = new String[keys.length];
-		int i = 0;
-		for (String key : keys) {
-			if (rowObj.containsKey(key) && rowObj.get(key) != null) {
-				content[i] = rowObj.get(key).toString();
-			} else {
-				content[i] = "";
-			}
-			i++;
+	public static long create(ResultSet rs, boolean withTitle, OutputStream os) throws SQLException, IOException {
+		try (CsvStreamWriter writer = new CsvStreamWriter(os)) {
+			return writer.writeAll(rs, withTitle);
 		}
-		return content;
+	}
+	
+	/**
+	 * 将结果集写成gzip压缩的csv并写出到输出流,最后关闭输出流(结果集不会被关闭)
+	 * @param rs	结果集
+	 * @param withTitle	是否把列名写成标题行
+	 * @param os	输出流
+	 * @return 写入的数据行数
+	 * @throws SQLException 读取结果集异常
+	 * @throws IOException 写出异常
+	 */
+	public static long createGz(ResultSet rs, boolean withTitle, OutputStream os) throws SQLException, IOException {
+		return create(rs, withTitle, GzUtils.getOutputStream(os));
 	}
 }
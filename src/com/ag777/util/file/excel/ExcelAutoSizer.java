@@ -0,0 +1,286 @@
+package com.ag777.util.file.excel;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 近似的列宽/行高自动调整
+ * <p>
+ * poi的autoSizeColumn会对每个单元格用awt做字体排版测量，大表非常慢。
+ * 这里按字符类别估算宽度(中日韩等全角字符按2个字符宽，大写字母、窄字符分别加减)，再乘以字体相对默认字体的缩放比例(按字体下标缓存)，
+ * 写入时逐个单元格累计每列最大宽度和每行最大行数，最后一次性设置列宽和行高。
+ * 结果是近似值，对中文的估算比autoSizeColumn更接近实际显示
+ * </p>
+ * <p>
+ * 用法:
+ * <ul>
+ * <li>写入时累计: {@link ExcelWriteHelper#trackColumnWidth()}，之后autoColunWith使用累计结果</li>
+ * <li>读入的表格: {@link ExcelUtils#autoSizeColumnsFast(Sheet, int)}，只对抽样行累计</li>
+ * </ul>
+ * 测试(xls 60000行x6列, 见main): autoSizeColumn 9.1s, 全量累计 0.36s, 抽样1000行 7ms；
+ * 中文列宽约为autoSizeColumn结果的1.65倍(即原先autoColunWith中*17/10修正的效果)
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午11:40
+ */
+public class ExcelAutoSizer {
+
+    /** 最大列宽(1/256个字符) */
+    private static final int MAX_WIDTH = 255 * 256;
+    /** 列宽额外留白，与ExcelUtils.autoAdjustColumnsWidth一致 */
+    private static final int PADDING = 512;
+    /** ascii字符宽度表，单位为默认字体下一个数字的宽度 */
+    private static final float[] ASCII_WIDTHS = new float[128];
+
+    static {
+        Arrays.fill(ASCII_WIDTHS, 1f);
+        for (char c = 'A'; c <= 'Z'; c++) {
+            ASCII_WIDTHS[c] = 1.2f;
+        }
+        for (char c : "mwMW@%".toCharArray()) {
+            ASCII_WIDTHS[c] = 1.5f;
+        }
+        for (char c : " .,:;'!|iljtfI()[]`".toCharArray()) {
+            ASCII_WIDTHS[c] = 0.5f;
+        }
+    }
+
+    private final Workbook workBook;
+    private final DataFormatter formatter = new DataFormatter();
+    private final float defaultFontPoints;
+    /* 字体下标 -> 相对默认字体的缩放比例，0表示未计算 */
+    private float[] fontScales = new float[16];
+    /* 每列最大宽度，单位为默认字体的字符宽 */
+    private float[] maxWidths = new float[16];
+    /* 行号 -> 行高(点)，只记录多行文本的行 */
+    private final Map<Integer, Float> rowHeights = new HashMap<>();
+
+    public ExcelAutoSizer(Workbook workBook) {
+        this.workBook = workBook;
+        this.defaultFontPoints = Math.max(1, workBook.getFontAt(0).getFontHeightInPoints());
+    }
+
+    /**
+     * 累计一个单元格
+     * @param rowNum 行号
+     * @param col 列号
+     * @param text 显示的文本
+     * @param style 单元格样式，为null时按默认字体计算
+     */
+    public void track(int rowNum, int col, String text, CellStyle style) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        float scale = 1f;
+        float fontPoints = defaultFontPoints;
+        if (style != null) {
+            int fontIndex = style.getFontIndexAsInt();
+            scale = fontScale(fontIndex);
+            fontPoints = defaultFontPoints * scale;
+        }
+        float lineWidth = 0;
+        float maxLineWidth = 0;
+        int lines = 1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                maxLineWidth = Math.max(maxLineWidth, lineWidth);
+                lineWidth = 0;
+                lines++;
+            } else if (c != '\r') {
+                lineWidth += charWidth(c);
+            }
+        }
+        maxLineWidth = Math.max(maxLineWidth, lineWidth) * scale;
+        if (col >= maxWidths.length) {
+            maxWidths = Arrays.copyOf(maxWidths, Math.max(col + 1, maxWidths.length * 2));
+        }
+        if (maxLineWidth > maxWidths[col]) {
+            maxWidths[col] = maxLineWidth;
+        }
+        if (lines > 1) {
+            float height = lines * fontPoints * 1.3f;
+            Float old = rowHeights.get(rowNum);
+            if (old == null || height > old) {
+                rowHeights.put(rowNum, height);
+            }
+        }
+    }
+
+    /**
+     * 累计一个已写入的单元格(按显示格式取文本)
+     * @param cell 单元格
+     */
+    public void track(Cell cell) {
+        if (cell == null) {
+            return;
+        }
+        track(cell.getRowIndex(), cell.getColumnIndex(), formatter.formatCellValue(cell), cell.getCellStyle());
+    }
+
+    /**
+     * 累计一行
+     * @param row 行
+     */
+    public void track(Row row) {
+        if (row == null) {
+            return;
+        }
+        for (Cell cell : row) {
+            track(cell);
+        }
+    }
+
+    /**
+     * @param col 列号
+     * @return 估算的列宽(1/256个字符)，未累计过的列返回-1
+     */
+    public int getWidth(int col) {
+        if (col >= maxWidths.length || maxWidths[col] == 0) {
+            return -1;
+        }
+        return Math.min(MAX_WIDTH, (int) (maxWidths[col] * 256) + PADDING);
+    }
+
+    /**
+     * 设置累计过的全部列宽和多行文本的行高
+     * @param sheet 页面
+     */
+    public void apply(Sheet sheet) {
+        apply(sheet, maxWidths.length, true);
+    }
+
+    /**
+     * 设置列宽和行高
+     * @param sheet 页面
+     * @param maxColNum 只设置前maxColNum列
+     * @param adjustRowHeight 是否设置多行文本的行高
+     */
+    public void apply(Sheet sheet, int maxColNum, boolean adjustRowHeight) {
+        for (int col = 0; col < Math.min(maxColNum, maxWidths.length); col++) {
+            int width = getWidth(col);
+            if (width > 0) {
+                sheet.setColumnWidth(col, width);
+            }
+        }
+        if (adjustRowHeight) {
+            for (Map.Entry<Integer, Float> entry : rowHeights.entrySet()) {
+                Row row = sheet.getRow(entry.getKey());
+                if (row != null && entry.getValue() > row.getHeightInPoints()) {
+                    row.setHeightInPoints(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空累计结果(切换页面时使用)
+     */
+    public void reset() {
+        Arrays.fill(maxWidths, 0);
+        rowHeights.clear();
+    }
+
+    private float fontScale(int fontIndex) {
+        if (fontIndex >= fontScales.length) {
+            fontScales = Arrays.copyOf(fontScales, Math.max(fontIndex + 1, fontScales.length * 2));
+        }
+        float scale = fontScales[fontIndex];
+        if (scale == 0) {
+            Font font = workBook.getFontAt(fontIndex);
+            scale = font.getFontHeightInPoints() / defaultFontPoints;
+            if (font.getBold()) {
+                scale *= 1.1f;
+            }
+            fontScales[fontIndex] = scale;
+        }
+        return scale;
+    }
+
+    private static float charWidth(char c) {
+        if (c < 128) {
+            return ASCII_WIDTHS[c];
+        }
+        return isFullWidth(c) ? 2f : 1f;
+    }
+
+    /**
+     * 中日韩文字、全角符号等按两个字符宽
+     */
+    private static boolean isFullWidth(char c) {
+        return (c >= 0x1100 && c <= 0x115F)
+                || (c >= 0x2E80 && c <= 0xA4CF)
+                || (c >= 0xAC00 && c <= 0xD7A3)
+                || (c >= 0xF900 && c <= 0xFAFF)
+                || (c >= 0xFE30 && c <= 0xFE4F)
+                || (c >= 0xFF00 && c <= 0xFF60)
+                || (c >= 0xFFE0 && c <= 0xFFE6);
+    }
+
+    /*============性能测试=============*/
+    /**
+     * 60000行x6列(中英文混合)的xls页面，分别用autoSizeColumn、全量累计和抽样累计调整列宽，输出耗时和结果
+     */
+    public static void main(String[] args) {
+        HSSFWorkbook workBook = new HSSFWorkbook();
+        Sheet sheet = workBook.createSheet("data");
+        CellStyle style = ExcelStyleTemplate.tableContent(workBook);
+        int rows = 60000;
+        int cols = 6;
+        for (int i = 0; i < rows; i++) {
+            Row row = sheet.createRow(i);
+            for (int j = 0; j < cols; j++) {
+                Cell cell = row.createCell(j);
+                cell.setCellStyle(style);
+                if (j % 3 == 0) {
+                    cell.setCellValue(i * 31L + j);
+                } else if (j % 3 == 1) {
+                    cell.setCellValue("名称" + i + "-" + (i % 7 == 0 ? "较长的中文内容" : "abc"));
+                } else {
+                    cell.setCellValue("value-" + i + (i % 5 == 0 ? " With Upper CASE" : ""));
+                }
+            }
+        }
+        long start = System.currentTimeMillis();
+        int[] poiWidths = new int[cols];
+        for (int j = 0; j < cols; j++) {
+            sheet.autoSizeColumn(j);
+            poiWidths[j] = sheet.getColumnWidth(j);
+        }
+        long poiTime = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        ExcelAutoSizer sizer = new ExcelAutoSizer(workBook);
+        for (Row row : sheet) {
+            sizer.track(row);
+        }
+        sizer.apply(sheet);
+        long fullTime = System.currentTimeMillis() - start;
+        int[] fullWidths = new int[cols];
+        for (int j = 0; j < cols; j++) {
+            fullWidths[j] = sheet.getColumnWidth(j);
+        }
+
+        start = System.currentTimeMillis();
+        ExcelUtils.autoSizeColumnsFast(sheet, 1000);
+        long sampleTime = System.currentTimeMillis() - start;
+        int[] sampleWidths = new int[cols];
+        for (int j = 0; j < cols; j++) {
+            sampleWidths[j] = sheet.getColumnWidth(j);
+        }
+        System.out.println("autoSizeColumn: " + poiTime + "ms " + Arrays.toString(poiWidths));
+        System.out.println("全量累计: " + fullTime + "ms " + Arrays.toString(fullWidths));
+        System.out.println("抽样累计(1000行): " + sampleTime + "ms " + Arrays.toString(sampleWidths));
+    }
+}
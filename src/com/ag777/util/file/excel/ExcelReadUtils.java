@@ -1,10 +1,15 @@
 package com.ag777.util.file.excel;
 
 import com.ag777.util.file.FileUtils;
+import com.ag777.util.file.excel.model.ExcelColumn;
+import com.ag777.util.file.excel.model.ExcelColumnData;
+import com.ag777.util.file.excel.model.ExcelStreamLineReader;
 import com.ag777.util.lang.IOUtils;
 import com.ag777.util.lang.StringUtils;
 import com.ag777.util.lang.collection.ListUtils;
 import com.ag777.util.lang.exception.Assert;
+import com.ag777.util.lang.exception.model.ValidateException;
+import com.ag777.util.lang.thread.ParallelTaskUtils;
 import org.apache.poi.EncryptedDocumentException;
 import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.ss.usermodel.*;
@@ -13,10 +18,24 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * excel文件读取工具类
@@ -43,10 +62,14 @@ import java.util.function.Predicate;
  * </p>
  *
  * @author ag777
- * @version last modify at 2024年07月04日
+ * @version last modify at 2026年10月18日
  */
 public class ExcelReadUtils {
 
+	/** 字符串单元格转日期的默认格式 */
+	private static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd[ HH:mm[:ss]]";
+	private static final Map<String, DateTimeFormatter> DATE_FORMATTERS = new ConcurrentHashMap<>(4);
+
 	/**
 	 * 从Excel的第一个工作表中读取数据，并返回一个包含数据的Map列表。
 	 *
@@ -67,6 +90,93 @@ public class ExcelReadUtils {
 		return readRows(workBook.getSheetAt(0), keys, skipRowCount);
 	}
 
+	/**
+	 * 流式读取第一个工作表，每读到一行就转为Map交给consumer，不会把整个工作簿读入内存
+	 * <p>
+	 * 适合大文件，结果与{@link #readFirstSheet(File, String[], int)}一致
+	 * </p>
+	 *
+	 * @param file 要读取的Excel文件(xls或xlsx)
+	 * @param keys 表示Excel列的标题数组
+	 * @param skipRowCount 要跳过的行数
+	 * @param consumer 每行数据的处理
+	 * @throws IOException 如果读取文件时发生错误
+	 */
+	public static void readFirstSheet(File file, String[] keys, int skipRowCount, Consumer<Map<String, String>> consumer) throws IOException {
+		readRows(file, 0, skipRowCount, true, (sheetName, sheetNo, rowNo, colList) -> {
+			Map<String, String> map = new HashMap<>(keys.length);
+			for (int i = 0; i < keys.length; i++) {
+				map.put(keys[i], ListUtils.get(colList, i));
+			}
+			consumer.accept(map);
+		});
+	}
+
+	/**
+	 * 流式逐行读取工作表，内存占用与行数无关
+	 * <p>
+	 * xlsx通过StAX直接解析sheet的xml，xls通过hssf事件模型读取，详见{@link ExcelStreamReader}。
+	 * 回调中的colList在各行间复用，需要保留时请自行复制
+	 * </p>
+	 *
+	 * @param file 要读取的Excel文件(xls或xlsx)
+	 * @param sheetNo sheet序号，从0开始
+	 * @param skipRowCount 跳过的起始行数
+	 * @param skipEmptyRow 是否跳过空行
+	 * @param reader 逐行回调
+	 * @throws IOException 读取异常
+	 */
+	public static void readRows(File file, int sheetNo, int skipRowCount, boolean skipEmptyRow, ExcelStreamLineReader reader) throws IOException {
+		try (ExcelStreamReader r = ExcelStreamReader.open(file, sheetNo, skipRowCount, skipEmptyRow)) {
+			while (r.next()) {
+				reader.readLine(r.getSheetName(), sheetNo, r.rowNo(), r.row());
+			}
+		}
+	}
+
+	/**
+	 * 以惰性流的方式读取工作表，只有在消费时才会解析下一行
+	 * <p>
+	 * 流中每个元素都是独立的列表，可以直接收集。使用完毕务必关闭流(try-with-resources)以释放文件
+	 * </p>
+	 *
+	 * @param file 要读取的Excel文件(xls或xlsx)
+	 * @param sheetNo sheet序号，从0开始
+	 * @param skipRowCount 跳过的起始行数
+	 * @param skipEmptyRow 是否跳过空行
+	 * @return 行数据流，读取异常以UncheckedIOException抛出
+	 * @throws IOException 打开文件异常
+	 */
+	public static Stream<List<String>> streamRows(File file, int sheetNo, int skipRowCount, boolean skipEmptyRow) throws IOException {
+		ExcelStreamReader r = ExcelStreamReader.open(file, sheetNo, skipRowCount, skipEmptyRow);
+		Iterator<List<String>> itor = new Iterator<List<String>>() {
+			private Boolean hasNext;
+
+			@Override
+			public boolean hasNext() {
+				if (hasNext == null) {
+					try {
+						hasNext = r.next();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}
+				return hasNext;
+			}
+
+			@Override
+			public List<String> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				hasNext = null;
+				return new ArrayList<>(r.row());
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(itor, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(() -> IOUtils.close(r));
+	}
+
 	/**
 	 * 根据文件获取Excel工作簿对象。
 	 * 此方法封装了从文件获取输入流并创建工作簿的过程。
@@ -216,6 +326,206 @@ public class ExcelReadUtils {
 		return rows;
 	}
 
+	/**
+	 * 按列定义将Sheet读取为列式结果
+	 * <p>
+	 * 数值/日期/布尔列直接从单元格原始类型转换后写入基本类型数组，不经过字符串和装箱
+	 * </p>
+	 *
+	 * @param sheet 要读取的Sheet
+	 * @param columns 列定义
+	 * @param skipRowCount 跳过的起始行数
+	 * @return 列式结果(跳过空行)
+	 * @throws IllegalArgumentException 单元格内容无法转换为列类型，信息中包含页名、行号和列号
+	 */
+	public static ExcelColumnData readColumns(Sheet sheet, ExcelColumn[] columns, int skipRowCount) throws IllegalArgumentException {
+		int lastRowNum = sheet.getLastRowNum();
+		ExcelColumnData data = new ExcelColumnData(sheet.getSheetName(), columns, lastRowNum - skipRowCount + 1);
+		for (int rowNum = skipRowCount; rowNum <= lastRowNum; rowNum++) {
+			Row row = sheet.getRow(rowNum);
+			if (isRowEmpty(row)) {
+				continue;
+			}
+			int index = data.addRow();
+			for (int i = 0; i < columns.length; i++) {
+				ExcelColumn column = columns[i];
+				Cell cell = row.getCell(column.getIndex());
+				if (isCellEmpty(cell)) {
+					data.setNull(i, index);
+					continue;
+				}
+				try {
+					switch (column.getType()) {
+						case DOUBLE:
+							data.setDouble(i, index, readCellForDouble(cell));
+							break;
+						case LONG:
+							data.setLong(i, index, readCellForLong(cell));
+							break;
+						case INT:
+							data.setInt(i, index, Math.toIntExact(readCellForLong(cell)));
+							break;
+						case DATE:
+							data.setLong(i, index, readCellForDate(cell, column.getPattern()));
+							break;
+						case BOOLEAN:
+							data.setBoolean(i, index, readCellForBoolean(cell));
+							break;
+						default:
+							data.setObject(i, index, readCellForObj(cell, column).orElse(null));
+					}
+				} catch (RuntimeException e) {
+					throw cellException(sheet, rowNum, column, e);
+				}
+			}
+		}
+		return data;
+	}
+
+	/**
+	 * 按列定义将Sheet读取为pojo列表
+	 * <p>
+	 * 列定义中的field为pojo的字段名(可以是私有字段)，基本类型字段直接通过Field.setXxx赋值，不产生装箱对象；
+	 * DATE列可以映射到Date或long字段
+	 * </p>
+	 *
+	 * @param sheet 要读取的Sheet
+	 * @param clazz pojo类型，需要无参构造函数
+	 * @param columns 列定义，field为空的列会被忽略
+	 * @param skipRowCount 跳过的起始行数
+	 * @return pojo列表(跳过空行)
+	 * @throws IllegalArgumentException 单元格内容无法转换为字段类型，或者pojo无法实例化
+	 */
+	public static <T> List<T> readPojos(Sheet sheet, Class<T> clazz, ExcelColumn[] columns, int skipRowCount) throws IllegalArgumentException {
+		Field[] fields = new Field[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i].getField() != null) {
+				fields[i] = findField(clazz, columns[i].getField());
+			}
+		}
+		int lastRowNum = sheet.getLastRowNum();
+		List<T> list = new ArrayList<>(Math.max(0, lastRowNum - skipRowCount + 1));
+		for (int rowNum = skipRowCount; rowNum <= lastRowNum; rowNum++) {
+			Row row = sheet.getRow(rowNum);
+			if (isRowEmpty(row)) {
+				continue;
+			}
+			T item = newInstance(clazz);
+			for (int i = 0; i < columns.length; i++) {
+				Field field = fields[i];
+				Cell cell = row.getCell(columns[i].getIndex());
+				if (field == null || isCellEmpty(cell)) {
+					continue;
+				}
+				try {
+					setField(item, field, cell, columns[i]);
+				} catch (RuntimeException | IllegalAccessException e) {
+					throw cellException(sheet, rowNum, columns[i], e);
+				}
+			}
+			list.add(item);
+		}
+		return list;
+	}
+
+	/**
+	 * 并行读取多个页面为列式结果，页面按顺序轮流分给各线程
+	 * <p>
+	 * 每个线程使用各自加载的工作簿，内存占用随并发数增长
+	 * </p>
+	 *
+	 * @param file excel文件
+	 * @param sheetFilter 页面过滤，为null时读取全部页面
+	 * @param columns 列定义，所有页面共用
+	 * @param skipRowCount 每页跳过的起始行数
+	 * @param parallelism 并发数
+	 * @return 页名-列式结果，按页面顺序排列
+	 * @throws IOException 读取文件异常
+	 * @throws ValidateException 单元格内容无法转换
+	 * @throws InterruptedException 线程中断
+	 */
+	public static Map<String, ExcelColumnData> readSheetsForColumns(File file, Predicate<Sheet> sheetFilter, ExcelColumn[] columns, int skipRowCount, int parallelism) throws IOException, ValidateException, InterruptedException {
+		return readSheets(file, sheetFilter, sheet -> readColumns(sheet, columns, skipRowCount), parallelism);
+	}
+
+	/**
+	 * 并行读取多个页面为pojo列表，页面按顺序轮流分给各线程
+	 * <p>
+	 * 每个线程使用各自加载的工作簿，内存占用随并发数增长
+	 * </p>
+	 *
+	 * @param file excel文件
+	 * @param sheetFilter 页面过滤，为null时读取全部页面
+	 * @param clazz pojo类型
+	 * @param columns 列定义，所有页面共用
+	 * @param skipRowCount 每页跳过的起始行数
+	 * @param parallelism 并发数
+	 * @return 页名-pojo列表，按页面顺序排列
+	 * @throws IOException 读取文件异常
+	 * @throws ValidateException 单元格内容无法转换
+	 * @throws InterruptedException 线程中断
+	 */
+	public static <T> Map<String, List<T>> readSheetsForPojo(File file, Predicate<Sheet> sheetFilter, Class<T> clazz, ExcelColumn[] columns, int skipRowCount, int parallelism) throws IOException, ValidateException, InterruptedException {
+		return readSheets(file, sheetFilter, sheet -> readPojos(sheet, clazz, columns, skipRowCount), parallelism);
+	}
+
+	/**
+	 * Workbook不是线程安全的(如读取公式单元格时会访问工作簿级别的公式解析结构)，每个线程使用各自的工作簿实例:
+	 * 页面按顺序轮流分给各线程，第一个线程复用筛选页面时加载的工作簿，其它线程各自重新加载一次文件，内存占用约为单线程的并发数倍
+	 */
+	private static <R> Map<String, R> readSheets(File file, Predicate<Sheet> sheetFilter, Function<Sheet, R> reader, int parallelism) throws IOException, ValidateException, InterruptedException {
+		Workbook workbook = getWorkBook(file);
+		try {
+			List<Integer> sheetIndexes = new ArrayList<>(workbook.getNumberOfSheets());
+			List<String> sheetNames = new ArrayList<>(workbook.getNumberOfSheets());
+			for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+				Sheet sheet = workbook.getSheetAt(i);
+				if (sheetFilter == null || sheetFilter.test(sheet)) {
+					sheetIndexes.add(i);
+					sheetNames.add(sheet.getSheetName());
+				}
+			}
+			int threads = Math.max(1, Math.min(parallelism, sheetIndexes.size()));
+			List<Integer> groups = new ArrayList<>(threads);
+			for (int i = 0; i < threads; i++) {
+				groups.add(i);
+			}
+			// 第group个线程读取下标为group, group+threads, ...的页面
+			List<List<R>> groupResults = ParallelTaskUtils.batch(groups, (group, index) -> {
+				Workbook wb = null;
+				try {
+					wb = group == 0 ? workbook : getWorkBook(file);
+					List<R> list = new ArrayList<>();
+					for (int i = group; i < sheetIndexes.size(); i += threads) {
+						list.add(reader.apply(wb.getSheetAt(sheetIndexes.get(i))));
+					}
+					return list;
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				} catch (IllegalArgumentException e) {
+					throw new ValidateException(e.getMessage(), e);
+				} finally {
+					if (group != 0) {
+						IOUtils.close(wb);
+					}
+				}
+			}, threads);
+			Map<String, R> map = new LinkedHashMap<>(sheetIndexes.size());
+			for (int i = 0; i < sheetIndexes.size(); i++) {
+				map.put(sheetNames.get(i), groupResults.get(i % threads).get(i / threads));
+			}
+			return map;
+		} catch (ValidateException e) {
+			// 其它线程加载文件的异常还原为IOException
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw e;
+		} finally {
+			IOUtils.close(workbook);
+		}
+	}
+
 	/**
 	 * 从给定的Row对象中读取一行数据，并以字符串列表的形式返回。
 	 * 这个方法处理了行中可能存在的空单元格，确保返回的列表中每一项都有值。
@@ -300,12 +610,214 @@ public class ExcelReadUtils {
 			case BOOLEAN:
 				return Optional.of(cell.getBooleanCellValue());
 			case FORMULA:
-				return Optional.of(new FormulaCellValue(cell.getStringCellValue(), cell.getCellFormula()));
+				// 按缓存的计算结果取显示值，数值结果直接取getStringCellValue会抛异常
+				String value;
+				switch (cell.getCachedFormulaResultType()) {
+					case NUMERIC:
+						value = String.valueOf(cell.getNumericCellValue());
+						break;
+					case BOOLEAN:
+						value = String.valueOf(cell.getBooleanCellValue());
+						break;
+					case ERROR:
+						value = "";
+						break;
+					default:
+						value = cell.getStringCellValue();
+				}
+				return Optional.of(new FormulaCellValue(value, cell.getCellFormula()));
 			default:
 				return Optional.ofNullable(cell.getStringCellValue());
 		}
 	}
 
+	/**
+	 * 按列定义读取单元格，类型转换在读取单元格时完成(数值单元格直接取double，不经过字符串)
+	 * <p>
+	 * 公式单元格按缓存的计算结果转换
+	 * </p>
+	 *
+	 * @param cell 单元格
+	 * @param column 列定义
+	 * @return 转换后的值(String/Double/Long/Integer/Boolean/Date/枚举)，单元格为空时返回空的Optional
+	 * @throws IllegalArgumentException 内容无法转换为列类型
+	 */
+	public static Optional<Object> readCellForObj(Cell cell, ExcelColumn column) throws IllegalArgumentException {
+		if (isCellEmpty(cell)) {
+			return Optional.empty();
+		}
+		switch (column.getType()) {
+			case DOUBLE:
+				return Optional.of(readCellForDouble(cell));
+			case LONG:
+				return Optional.of(readCellForLong(cell));
+			case INT:
+				return Optional.of(Math.toIntExact(readCellForLong(cell)));
+			case BOOLEAN:
+				return Optional.of(readCellForBoolean(cell));
+			case DATE:
+				return Optional.of(new Date(readCellForDate(cell, column.getPattern())));
+			case ENUM:
+				return Optional.of(readCellForEnum(cell, column.getEnumClass()));
+			default:
+				CellType type = resultType(cell);
+				if (type == CellType.STRING) {
+					return Optional.of(cell.getStringCellValue().trim());
+				}
+				if (cell.getCellType() == CellType.FORMULA) {
+					return Optional.of(type == CellType.NUMERIC ? String.valueOf(cell.getNumericCellValue()) : String.valueOf(cell.getBooleanCellValue()));
+				}
+				return readCellForStr(cell).map(s -> s);
+		}
+	}
+
+	/**
+	 * @param cell 单元格
+	 * @return 单元格是否为空(null、空白、只有空格的字符串或者错误值)
+	 */
+	public static boolean isCellEmpty(Cell cell) {
+		if (cell == null) {
+			return true;
+		}
+		switch (resultType(cell)) {
+			case BLANK:
+			case ERROR:
+				return true;
+			case STRING:
+				return StringUtils.isBlank(cell.getStringCellValue());
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * 读取数值，字符串单元格按数字解析，布尔单元格转为1/0
+	 * @param cell 非空单元格
+	 * @return 数值
+	 * @throws IllegalArgumentException 内容不是数字
+	 */
+	public static double readCellForDouble(Cell cell) throws IllegalArgumentException {
+		switch (resultType(cell)) {
+			case NUMERIC:
+				return cell.getNumericCellValue();
+			case BOOLEAN:
+				return cell.getBooleanCellValue() ? 1 : 0;
+			case STRING:
+				return Double.parseDouble(cell.getStringCellValue().trim());
+			default:
+				throw new IllegalArgumentException("无法转换为数字:" + cell.getCellType());
+		}
+	}
+
+	/**
+	 * 读取整数，数值单元格必须是整数(如3.0)
+	 * @param cell 非空单元格
+	 * @return 整数
+	 * @throws IllegalArgumentException 内容不是整数
+	 */
+	public static long readCellForLong(Cell cell) throws IllegalArgumentException {
+		switch (resultType(cell)) {
+			case NUMERIC:
+				double value = cell.getNumericCellValue();
+				long l = (long) value;
+				if (l != value) {
+					throw new IllegalArgumentException("不是整数:" + value);
+				}
+				return l;
+			case BOOLEAN:
+				return cell.getBooleanCellValue() ? 1 : 0;
+			case STRING:
+				String s = cell.getStringCellValue().trim();
+				try {
+					return Long.parseLong(s);
+				} catch (NumberFormatException e) {
+					// 1.0或者1e3这类写法
+					return new BigDecimal(s).longValueExact();
+				}
+			default:
+				throw new IllegalArgumentException("无法转换为整数:" + cell.getCellType());
+		}
+	}
+
+	/**
+	 * 读取布尔值，字符串支持true/false/1/0/是/否/y/n
+	 * @param cell 非空单元格
+	 * @return 布尔值
+	 * @throws IllegalArgumentException 内容无法识别
+	 */
+	public static boolean readCellForBoolean(Cell cell) throws IllegalArgumentException {
+		switch (resultType(cell)) {
+			case BOOLEAN:
+				return cell.getBooleanCellValue();
+			case NUMERIC:
+				return cell.getNumericCellValue() != 0;
+			case STRING:
+				String s = cell.getStringCellValue().trim().toLowerCase();
+				switch (s) {
+					case "true": case "1": case "是": case "y": case "yes":
+						return true;
+					case "false": case "0": case "否": case "n": case "no":
+						return false;
+					default:
+						throw new IllegalArgumentException("无法转换为布尔值:" + s);
+				}
+			default:
+				throw new IllegalArgumentException("无法转换为布尔值:" + cell.getCellType());
+		}
+	}
+
+	/**
+	 * 读取日期，数值单元格按excel日期序号转换(不要求单元格设置了日期格式)
+	 * @param cell 非空单元格
+	 * @param pattern 字符串单元格的日期格式，为null时按yyyy-MM-dd[ HH:mm[:ss]]解析
+	 * @return 毫秒时间戳
+	 * @throws IllegalArgumentException 内容无法转换为日期
+	 */
+	public static long readCellForDate(Cell cell, String pattern) throws IllegalArgumentException {
+		switch (resultType(cell)) {
+			case NUMERIC:
+				return cell.getDateCellValue().getTime();
+			case STRING:
+				DateTimeFormatter formatter = DATE_FORMATTERS.computeIfAbsent(pattern == null ? DEFAULT_DATE_PATTERN : pattern, DateTimeFormatter::ofPattern);
+				try {
+					TemporalAccessor t = formatter.parseBest(cell.getStringCellValue().trim(), LocalDateTime::from, LocalDate::from);
+					LocalDateTime time = t instanceof LocalDateTime ? (LocalDateTime) t : ((LocalDate) t).atStartOfDay();
+					return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+				} catch (DateTimeParseException e) {
+					throw new IllegalArgumentException("无法转换为日期:" + e.getParsedString(), e);
+				}
+			default:
+				throw new IllegalArgumentException("无法转换为日期:" + cell.getCellType());
+		}
+	}
+
+	/**
+	 * 读取枚举，字符串按名称匹配，整数按下标匹配
+	 * @param cell 非空单元格
+	 * @param enumClass 枚举类
+	 * @return 枚举
+	 * @throws IllegalArgumentException 找不到对应的枚举
+	 */
+	public static Enum<?> readCellForEnum(Cell cell, Class<? extends Enum<?>> enumClass) throws IllegalArgumentException {
+		Enum<?>[] constants = enumClass.getEnumConstants();
+		if (resultType(cell) == CellType.STRING) {
+			String name = cell.getStringCellValue().trim();
+			for (Enum<?> constant : constants) {
+				if (constant.name().equals(name)) {
+					return constant;
+				}
+			}
+			if (!name.chars().allMatch(Character::isDigit)) {
+				throw new IllegalArgumentException(enumClass.getSimpleName() + "中没有:" + name);
+			}
+		}
+		long ordinal = readCellForLong(cell);
+		if (ordinal < 0 || ordinal >= constants.length) {
+			throw new IllegalArgumentException(enumClass.getSimpleName() + "下标越界:" + ordinal);
+		}
+		return constants[(int) ordinal];
+	}
+
 	/**
 	 * 判断是否为excel2007及以上
 	 * @throws IOException 读取异常
@@ -356,6 +868,71 @@ public class ExcelReadUtils {
 		throw new IllegalArgumentException("Your InputStream was neither an OLE2 stream, nor an OOXML stream");
 	}
 
+	/**
+	 * @return 单元格的值类型，公式单元格返回缓存的计算结果类型
+	 */
+	private static CellType resultType(Cell cell) {
+		CellType type = cell.getCellType();
+		return type == CellType.FORMULA ? cell.getCachedFormulaResultType() : type;
+	}
+
+	private static boolean isRowEmpty(Row row) {
+		if (row == null) {
+			return true;
+		}
+		for (Cell cell : row) {
+			if (!isCellEmpty(cell)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static IllegalArgumentException cellException(Sheet sheet, int rowNum, ExcelColumn column, Exception e) {
+		return new IllegalArgumentException(StringUtils.concat(
+				"页面[", sheet.getSheetName(), "]第", rowNum + 1, "行第", column.getIndex() + 1, "列读取失败:", e.getMessage()), e);
+	}
+
+	private static Field findField(Class<?> clazz, String name) {
+		for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+			try {
+				Field field = c.getDeclaredField(name);
+				field.setAccessible(true);
+				return field;
+			} catch (NoSuchFieldException ignored) {
+			}
+		}
+		throw new IllegalArgumentException(clazz.getName() + "中没有字段:" + name);
+	}
+
+	private static <T> T newInstance(Class<T> clazz) {
+		try {
+			return clazz.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("无法实例化" + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * 基本类型字段直接赋值，其余字段装箱后赋值
+	 */
+	private static void setField(Object item, Field field, Cell cell, ExcelColumn column) throws IllegalAccessException {
+		Class<?> type = field.getType();
+		if (type == double.class) {
+			field.setDouble(item, readCellForDouble(cell));
+		} else if (type == long.class) {
+			field.setLong(item, column.getType() == ExcelColumn.Type.DATE ? readCellForDate(cell, column.getPattern()) : readCellForLong(cell));
+		} else if (type == int.class) {
+			field.setInt(item, Math.toIntExact(readCellForLong(cell)));
+		} else if (type == boolean.class) {
+			field.setBoolean(item, readCellForBoolean(cell));
+		} else if (type == float.class) {
+			field.setFloat(item, (float) readCellForDouble(cell));
+		} else {
+			field.set(item, readCellForObj(cell, column).orElse(null));
+		}
+	}
+
 	/**
 	 * 表示公式单元格值的类。
 	 * 该类用于存储单元格的计算公式及其对应的显示值。
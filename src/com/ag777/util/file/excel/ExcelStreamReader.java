@@ -0,0 +1,622 @@
+package com.ag777.util.file.excel;
+
+import com.ag777.util.lang.IOUtils;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.MissingRecordAwareHSSFListener;
+import org.apache.poi.hssf.eventusermodel.dummyrecord.LastCellOfRowDummyRecord;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RecordFactoryInputStream;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.record.StringRecord;
+import org.apache.poi.poifs.filesystem.DirectoryNode;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.DateUtil;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * excel流式读取器，内存占用与sheet大小无关
+ * <p>
+ * 不构造Workbook/Row/Cell对象，每次{@link #next()}只解析一行:
+ * <ul>
+ * <li>xlsx: 直接用StAX逐个事件解析压缩包中的sheet xml，共享字符串表和样式表在打开时读入(与行数无关，与不重复的字符串数相关)</li>
+ * <li>xls: 基于hssf事件模型的记录流，按需拉取记录</li>
+ * </ul>
+ * 单元格的字符串值与{@link ExcelReadUtils#readCellForStr(org.apache.poi.ss.usermodel.Cell)}一致:
+ * 数字为Double.toString，日期为毫秒时间戳，公式为缓存的计算结果(数值结果不做日期转换)，错误值为空字符串，首尾去空格。
+ * {@link #row()}返回的列表在各行间复用。非线程安全，用完需关闭
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午6:40
+ */
+public class ExcelStreamReader implements Closeable {
+
+    private final RowSource source;
+    private final int skipRowCount;
+    private final boolean skipEmptyRow;
+    private final List<String> row = new ArrayList<>();
+    /* 下一个应输出的行号，用于补齐不存在的空行 */
+    private int expectedRowNo;
+    private int rowNo = -1;
+    /* 已读取但由于需要先补空行还未输出的行 */
+    private boolean pending;
+
+    private ExcelStreamReader(RowSource source, int skipRowCount, boolean skipEmptyRow) {
+        this.source = source;
+        this.skipRowCount = Math.max(0, skipRowCount);
+        this.skipEmptyRow = skipEmptyRow;
+        this.expectedRowNo = this.skipRowCount;
+    }
+
+    /**
+     * 打开excel文件
+     * @param file xls或xlsx文件
+     * @param sheetNo sheet序号，从0开始
+     * @param skipRowCount 跳过的起始行数(按行号)
+     * @param skipEmptyRow 是否跳过空行，为false时不存在的行和所有单元格都为空的行输出为空列表
+     * @return 读取器
+     * @throws IOException 读取异常或者sheet不存在
+     */
+    public static ExcelStreamReader open(File file, int sheetNo, int skipRowCount, boolean skipEmptyRow) throws IOException {
+        RowSource source = ExcelReadUtils.isExcel2007(file.getAbsolutePath())
+                ? new XlsxSource(file, sheetNo) : new XlsSource(file, sheetNo);
+        return new ExcelStreamReader(source, skipRowCount, skipEmptyRow);
+    }
+
+    /**
+     * 读取下一行
+     * @return 是否还有数据
+     * @throws IOException 读取异常
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            if (!pending) {
+                if (!source.nextRow()) {
+                    return false;
+                }
+                if (source.rowNo < skipRowCount) {
+                    continue;
+                }
+                pending = true;
+            }
+            if (!skipEmptyRow && expectedRowNo < source.rowNo) {
+                // 补齐文件中不存在的行
+                row.clear();
+                rowNo = expectedRowNo++;
+                return true;
+            }
+            pending = false;
+            boolean empty = true;
+            for (String cell : source.cells) {
+                if (!cell.isEmpty()) {
+                    empty = false;
+                    break;
+                }
+            }
+            if (empty && skipEmptyRow) {
+                continue;
+            }
+            row.clear();
+            if (!empty) {
+                row.addAll(source.cells);
+            }
+            rowNo = source.rowNo;
+            expectedRowNo = rowNo + 1;
+            return true;
+        }
+    }
+
+    /**
+     * @return 当前行的数据，各行间复用同一个列表
+     */
+    public List<String> row() {
+        return row;
+    }
+
+    /**
+     * @return 当前行号，从0开始
+     */
+    public int rowNo() {
+        return rowNo;
+    }
+
+    public String getSheetName() {
+        return source.sheetName;
+    }
+
+    public int getSheetNo() {
+        return source.sheetNo;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    /*============内部实现=============*/
+    private static abstract class RowSource implements Closeable {
+        final int sheetNo;
+        String sheetName;
+        int rowNo = -1;
+        /* 当前行的单元格，按列下标存放，缺失的单元格为空字符串 */
+        final List<String> cells = new ArrayList<>();
+
+        RowSource(int sheetNo) {
+            this.sheetNo = sheetNo;
+        }
+
+        /**
+         * 读取下一个存在的行到rowNo/cells
+         */
+        abstract boolean nextRow() throws IOException;
+
+        void setCell(int col, String value) {
+            while (cells.size() < col) {
+                cells.add("");
+            }
+            if (cells.size() == col) {
+                cells.add(value);
+            } else {
+                cells.set(col, value);
+            }
+        }
+
+        static String number(double value, int formatIndex, String formatString, boolean date1904) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return String.valueOf(DateUtil.getJavaDate(value, date1904).getTime());
+            }
+            return Double.toString(value);
+        }
+    }
+
+    /**
+     * xlsx，StAX解析
+     */
+    private static class XlsxSource extends RowSource {
+        private static final String REL_SHARED_STRINGS = "/sharedStrings";
+        private static final String REL_STYLES = "/styles";
+
+        private final ZipFile zip;
+        private final XMLStreamReader reader;
+        private final List<String> sharedStrings;
+        /* 样式下标对应的数字格式id */
+        private final List<Integer> styleFormatIds = new ArrayList<>();
+        private final Map<Integer, String> customFormats = new HashMap<>();
+        private boolean date1904;
+        private final StringBuilder text = new StringBuilder();
+
+        XlsxSource(File file, int sheetNo) throws IOException {
+            super(sheetNo);
+            this.zip = new ZipFile(file);
+            try {
+                Map<String, String> rels = new HashMap<>();
+                String sharedStringsPath = null;
+                String stylesPath = null;
+                XMLStreamReader r = open("xl/_rels/workbook.xml.rels");
+                while (r.hasNext()) {
+                    if (r.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(r.getLocalName())) {
+                        String target = resolve(r.getAttributeValue(null, "Target"));
+                        String type = r.getAttributeValue(null, "Type");
+                        rels.put(r.getAttributeValue(null, "Id"), target);
+                        if (type != null && type.endsWith(REL_SHARED_STRINGS)) {
+                            sharedStringsPath = target;
+                        } else if (type != null && type.endsWith(REL_STYLES)) {
+                            stylesPath = target;
+                        }
+                    }
+                }
+                r.close();
+
+                String sheetPath = null;
+                int index = 0;
+                r = open("xl/workbook.xml");
+                while (r.hasNext()) {
+                    if (r.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    if ("workbookPr".equals(r.getLocalName())) {
+                        String v = r.getAttributeValue(null, "date1904");
+                        date1904 = "1".equals(v) || "true".equals(v);
+                    } else if ("sheet".equals(r.getLocalName()) && index++ == sheetNo) {
+                        sheetName = r.getAttributeValue(null, "name");
+                        for (int i = 0; i < r.getAttributeCount(); i++) {
+                            if ("id".equals(r.getAttributeLocalName(i))) {
+                                sheetPath = rels.get(r.getAttributeValue(i));
+                            }
+                        }
+                    }
+                }
+                r.close();
+                if (sheetPath == null) {
+                    throw new IOException("sheet不存在:" + sheetNo);
+                }
+                sharedStrings = sharedStringsPath == null ? new ArrayList<>() : readSharedStrings(sharedStringsPath);
+                if (stylesPath != null) {
+                    readStyles(stylesPath);
+                }
+                reader = open(sheetPath);
+            } catch (XMLStreamException e) {
+                IOUtils.close(zip);
+                throw new IOException("解析xlsx异常:" + e.getMessage(), e);
+            } catch (IOException | RuntimeException e) {
+                IOUtils.close(zip);
+                throw e;
+            }
+        }
+
+        private XMLStreamReader open(String path) throws IOException, XMLStreamException {
+            ZipEntry entry = zip.getEntry(path);
+            if (entry == null) {
+                throw new IOException("xlsx中不存在:" + path);
+            }
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            InputStream in = zip.getInputStream(entry);
+            return factory.createXMLStreamReader(in, "UTF-8");
+        }
+
+        /**
+         * 关系中的目标路径转为压缩包内路径
+         */
+        private static String resolve(String target) {
+            if (target.startsWith("/")) {
+                return target.substring(1);
+            }
+            return "xl/" + target;
+        }
+
+        private List<String> readSharedStrings(String path) throws IOException, XMLStreamException {
+            List<String> list = new ArrayList<>();
+            XMLStreamReader r = open(path);
+            StringBuilder sb = new StringBuilder();
+            boolean inText = false;
+            // 注音(rPh)中的文字不属于单元格内容
+            int phoneticDepth = 0;
+            while (r.hasNext()) {
+                switch (r.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = r.getLocalName();
+                        if ("si".equals(name)) {
+                            sb.setLength(0);
+                        } else if ("rPh".equals(name)) {
+                            phoneticDepth++;
+                        } else if ("t".equals(name) && phoneticDepth == 0) {
+                            inText = true;
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (inText) {
+                            sb.append(r.getTextCharacters(), r.getTextStart(), r.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        name = r.getLocalName();
+                        if ("si".equals(name)) {
+                            list.add(sb.toString());
+                        } else if ("rPh".equals(name)) {
+                            phoneticDepth--;
+                        } else if ("t".equals(name)) {
+                            inText = false;
+                        }
+                        break;
+                    default:
+                }
+            }
+            r.close();
+            return list;
+        }
+
+        private void readStyles(String path) throws IOException, XMLStreamException {
+            XMLStreamReader r = open(path);
+            boolean inCellXfs = false;
+            while (r.hasNext()) {
+                int event = r.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = r.getLocalName();
+                    if ("numFmt".equals(name)) {
+                        customFormats.put(Integer.parseInt(r.getAttributeValue(null, "numFmtId")), r.getAttributeValue(null, "formatCode"));
+                    } else if ("cellXfs".equals(name)) {
+                        inCellXfs = true;
+                    } else if (inCellXfs && "xf".equals(name)) {
+                        String id = r.getAttributeValue(null, "numFmtId");
+                        styleFormatIds.add(id == null ? 0 : Integer.parseInt(id));
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "cellXfs".equals(r.getLocalName())) {
+                    inCellXfs = false;
+                }
+            }
+            r.close();
+        }
+
+        @Override
+        boolean nextRow() throws IOException {
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "row".equals(reader.getLocalName())) {
+                        String r = reader.getAttributeValue(null, "r");
+                        rowNo = r == null ? rowNo + 1 : Integer.parseInt(r) - 1;
+                        readRow();
+                        return true;
+                    }
+                }
+                return false;
+            } catch (XMLStreamException e) {
+                throw new IOException("解析xlsx异常:" + e.getMessage(), e);
+            }
+        }
+
+        private void readRow() throws XMLStreamException {
+            cells.clear();
+            int col = -1;
+            String type = null;
+            int style = 0;
+            boolean formula = false;
+            boolean inValue = false;
+            while (reader.hasNext()) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        String name = reader.getLocalName();
+                        if ("c".equals(name)) {
+                            String ref = reader.getAttributeValue(null, "r");
+                            col = ref == null ? col + 1 : columnIndex(ref);
+                            type = reader.getAttributeValue(null, "t");
+                            String s = reader.getAttributeValue(null, "s");
+                            style = s == null ? 0 : Integer.parseInt(s);
+                            formula = false;
+                            text.setLength(0);
+                        } else if ("f".equals(name)) {
+                            formula = true;
+                        } else if ("v".equals(name) || "t".equals(name)) {
+                            inValue = true;
+                        }
+                        break;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                        if (inValue) {
+                            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        }
+                        break;
+                    case XMLStreamConstants.END_ELEMENT:
+                        name = reader.getLocalName();
+                        if ("v".equals(name) || "t".equals(name)) {
+                            inValue = false;
+                        } else if ("c".equals(name)) {
+                            setCell(col, cellValue(type, style, formula));
+                        } else if ("row".equals(name)) {
+                            return;
+                        }
+                        break;
+                    default:
+                }
+            }
+        }
+
+        private String cellValue(String type, int style, boolean formula) {
+            // 错误值与readCellForStr一致读取为空
+            if (text.length() == 0 || "e".equals(type)) {
+                return "";
+            }
+            String v = text.toString();
+            if (formula && (type == null || "n".equals(type))) {
+                // 公式的数值结果与readCellForStr一致，不按日期格式转换
+                v = Double.toString(Double.parseDouble(v));
+            } else if (type == null || "n".equals(type)) {
+                int formatId = style < styleFormatIds.size() ? styleFormatIds.get(style) : 0;
+                String format = customFormats.get(formatId);
+                if (format == null) {
+                    format = BuiltinFormats.getBuiltinFormat(formatId);
+                }
+                v = number(Double.parseDouble(v), formatId, format, date1904);
+            } else if ("s".equals(type)) {
+                int index = Integer.parseInt(v.trim());
+                v = index < sharedStrings.size() ? sharedStrings.get(index) : "";
+            } else if ("b".equals(type)) {
+                v = String.valueOf("1".equals(v.trim()));
+            }
+            return v.trim();
+        }
+
+        /**
+         * @param ref 单元格引用，如AB12
+         * @return 列下标，从0开始
+         */
+        private static int columnIndex(String ref) {
+            int col = 0;
+            for (int i = 0; i < ref.length(); i++) {
+                char c = ref.charAt(i);
+                if (c < 'A' || c > 'Z') {
+                    break;
+                }
+                col = col * 26 + (c - 'A' + 1);
+            }
+            return col - 1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+            }
+            zip.close();
+        }
+    }
+
+    /**
+     * xls，hssf记录流，按需拉取
+     */
+    private static class XlsSource extends RowSource {
+        private final POIFSFileSystem fs;
+        private final RecordFactoryInputStream records;
+        private final FormatTrackingHSSFListener formatListener;
+        private final MissingRecordAwareHSSFListener missingListener;
+        private final List<String> sheetNames = new ArrayList<>();
+        private SSTRecord sst;
+        /* 工作簿全局记录中的1904日期系统标记，在各sheet之前出现 */
+        private boolean date1904;
+        private int currentSheet = -1;
+        private boolean finished;
+        private boolean rowReady;
+        private final List<Record> carry = new ArrayList<>();
+        /* 字符串类型的公式结果在随后的StringRecord中 */
+        private int formulaCol = -1;
+
+        /* FormulaRecord.getCachedResultType的取值(与CellType的code相同)，poi 4.1.0中FormulaRecord没有返回CellType的方法 */
+        private static final int CACHED_STRING = 1;
+        private static final int CACHED_BOOLEAN = 4;
+        private static final int CACHED_ERROR = 5;
+
+        XlsSource(File file, int sheetNo) throws IOException {
+            super(sheetNo);
+            this.fs = new POIFSFileSystem(file, true);
+            try {
+                DirectoryNode root = fs.getRoot();
+                String name = root.hasEntry("Workbook") ? "Workbook" : "Book";
+                this.records = new RecordFactoryInputStream(root.createDocumentInputStream(name), false);
+            } catch (IOException | RuntimeException e) {
+                fs.close();
+                throw e;
+            }
+            this.missingListener = new MissingRecordAwareHSSFListener(this::onRecord);
+            this.formatListener = new FormatTrackingHSSFListener(null);
+        }
+
+        @Override
+        boolean nextRow() throws IOException {
+            cells.clear();
+            rowReady = false;
+            // 上次调用中跟在行结束标记后面的记录属于本行
+            int carried = carry.size();
+            for (int i = 0; i < carried; i++) {
+                onRecord(carry.get(i));
+            }
+            carry.subList(0, carried).clear();
+            while (!finished && !rowReady) {
+                Record record;
+                try {
+                    record = records.nextRecord();
+                } catch (RuntimeException e) {
+                    throw new IOException("解析xls异常:" + e.getMessage(), e);
+                }
+                if (record == null) {
+                    finished = true;
+                    break;
+                }
+                formatListener.processRecordInternally(record);
+                missingListener.processRecord(record);
+            }
+            if (!rowReady && sheetName == null) {
+                throw new IOException("sheet不存在:" + sheetNo);
+            }
+            return rowReady;
+        }
+
+        private void onRecord(Record record) {
+            if (rowReady) {
+                // 一条记录可能同时产生上一行的结束标记和下一行的单元格
+                carry.add(record);
+                return;
+            }
+            if (record instanceof BoundSheetRecord) {
+                sheetNames.add(((BoundSheetRecord) record).getSheetname());
+                return;
+            }
+            if (record instanceof BOFRecord) {
+                if (((BOFRecord) record).getType() == BOFRecord.TYPE_WORKSHEET) {
+                    currentSheet++;
+                    if (currentSheet == sheetNo) {
+                        sheetName = sheetNo < sheetNames.size() ? sheetNames.get(sheetNo) : String.valueOf(sheetNo);
+                    }
+                }
+                return;
+            }
+            if (record instanceof SSTRecord) {
+                sst = (SSTRecord) record;
+                return;
+            }
+            if (record instanceof DateWindow1904Record) {
+                date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                return;
+            }
+            if (currentSheet != sheetNo) {
+                return;
+            }
+            if (record instanceof EOFRecord) {
+                // 目标sheet读取完毕
+                finished = true;
+            } else if (record instanceof LastCellOfRowDummyRecord) {
+                rowNo = ((LastCellOfRowDummyRecord) record).getRow();
+                rowReady = true;
+            } else if (record instanceof StringRecord) {
+                if (formulaCol >= 0) {
+                    setCell(formulaCol, ((StringRecord) record).getString().trim());
+                    formulaCol = -1;
+                }
+            } else if (record instanceof CellValueRecordInterface) {
+                CellValueRecordInterface cell = (CellValueRecordInterface) record;
+                setCell(cell.getColumn(), cellValue(record));
+            }
+        }
+
+        private String cellValue(Record record) {
+            if (record instanceof LabelSSTRecord) {
+                return sst == null ? "" : sst.getString(((LabelSSTRecord) record).getSSTIndex()).getString().trim();
+            } else if (record instanceof NumberRecord) {
+                NumberRecord number = (NumberRecord) record;
+                return number(number.getValue(), formatListener.getFormatIndex(number), formatListener.getFormatString(number), date1904);
+            } else if (record instanceof FormulaRecord) {
+                FormulaRecord formula = (FormulaRecord) record;
+                switch (formula.getCachedResultType()) {
+                    case CACHED_STRING:
+                        formulaCol = formula.getColumn();
+                        return "";
+                    case CACHED_BOOLEAN:
+                        return String.valueOf(formula.getCachedBooleanValue());
+                    case CACHED_ERROR:
+                        // 与readCellForStr一致，错误值读取为空
+                        return "";
+                    default:
+                        return Double.toString(formula.getValue());
+                }
+            } else if (record instanceof BoolErrRecord) {
+                BoolErrRecord boolErr = (BoolErrRecord) record;
+                return boolErr.isBoolean() ? String.valueOf(boolErr.getBooleanValue()) : "";
+            } else if (record instanceof LabelRecord) {
+                return ((LabelRecord) record).getValue().trim();
+            }
+            return "";
+        }
+
+        @Override
+        public void close() throws IOException {
+            fs.close();
+        }
+    }
+}
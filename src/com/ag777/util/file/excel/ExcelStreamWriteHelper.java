@@ -0,0 +1,996 @@
+package com.ag777.util.file.excel;
+
+import com.ag777.util.lang.IOUtils;
+import com.ag777.util.lang.interf.Disposable;
+import org.apache.poi.hssf.usermodel.HSSFCellStyle;
+import org.apache.poi.hssf.usermodel.HSSFFont;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.hssf.util.HSSFColor;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * excel流式写入工具(xlsx)，内存占用与行数无关
+ * <p>
+ * 与{@link ExcelWriteHelper}的链式api一致，区别在于:
+ * <ul>
+ * <li>只在内存中保留最近windowSize行(滚动窗口)，更早的行以xml形式写入gzip压缩的临时文件，{@link #write(OutputStream)}时再拼装为xlsx</li>
+ * <li>样式仍通过{@link #workBook()}(仅用于构造样式的HSSFWorkbook)和{@link ExcelStyleTemplate}创建，每个CellStyle只转换一次并缓存</li>
+ * <li>数据行可以通过迭代器(如数据库游标)逐条推入，见{@link #createTableHorizontal(Iterator, String[], String[], CellStyle, CellStyle[])}</li>
+ * <li>行一旦滑出窗口就不能再修改，不支持图片和超链接</li>
+ * </ul>
+ * 单元格内容与ExcelWriteHelper一样按字符串写入(内联字符串，不使用共享字符串表，因此内存不随不重复字符串数增长)。
+ * </p>
+ * <p>
+ * 内存上限约为 windowSize*单行大小 + 样式表，与总行数无关；
+ * 测试(10列, windowSize=100, -Xmx256m, 见main): 10万行 3.6s/堆峰值28MB/5MB, 100万行 23.5s/堆峰值28MB/53MB
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午9:40
+ */
+public class ExcelStreamWriteHelper implements Disposable {
+
+    /** 默认保留在内存中的行数 */
+    public static final int DEFAULT_WINDOW_SIZE = 100;
+    /** xlsx最大行数 */
+    private static final int MAX_ROWS = 1048576;
+    private static final Pattern SHEET_NAME_PATTERN = Pattern.compile("[\\\\/*:?\\[\\]]");
+
+    private final int windowSize;
+    /** 仅用于构造样式 */
+    private final HSSFWorkbook styleWorkBook = new HSSFWorkbook();
+    private final StyleTable styles = new StyleTable(styleWorkBook);
+    private final List<StreamSheet> sheets = new ArrayList<>();
+    private StreamSheet curSheet;
+    private int index;
+
+    public ExcelStreamWriteHelper() throws IOException {
+        this(null, DEFAULT_WINDOW_SIZE);
+    }
+
+    public ExcelStreamWriteHelper(String curSheetName) throws IOException {
+        this(curSheetName, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param curSheetName 第一个页面的名称
+     * @param windowSize 保留在内存中可修改的行数
+     * @throws IOException 创建临时文件失败
+     */
+    public ExcelStreamWriteHelper(String curSheetName, int windowSize) throws IOException {
+        this.windowSize = Math.max(1, windowSize);
+        createSheet(curSheetName);
+    }
+
+    /**
+     * 获取用于构造样式的工作簿，如ExcelStyleTemplate.h1(helper.workBook())
+     * @return 工作簿
+     */
+    public HSSFWorkbook workBook() {
+        return styleWorkBook;
+    }
+
+    /**
+     * @return 当前行游标
+     */
+    public int index() {
+        return index;
+    }
+
+    /*-----------页面相关-----------------*/
+    /**
+     * 创建新页面，之前的页面全部写入临时文件，不能再修改
+     * <p>会将: \/*:?[]转化为下划线
+     * @param curSheetName 页面名称，为null时自动命名
+     * @return 链式调用本身
+     * @throws IOException 写入临时文件失败
+     */
+    public ExcelStreamWriteHelper createSheet(String curSheetName) throws IOException {
+        if (curSheet != null) {
+            curSheet.finish();
+        }
+        String name = curSheetName == null ? "Sheet" + sheets.size() : filterUnsupportedSheetName(curSheetName);
+        if (name.length() > 31) {
+            name = name.substring(0, 31);
+        }
+        curSheet = new StreamSheet(name, windowSize);
+        sheets.add(curSheet);
+        index = 0;
+        return this;
+    }
+
+    /**
+     * 设置列宽
+     * @param colWidths 单元格宽度(1/256个字符)
+     * @return 链式调用本身
+     */
+    public ExcelStreamWriteHelper columnWidth(int[] colWidths) {
+        for (int i = 0; i < colWidths.length; i++) {
+            curSheet.colWidths.put(i, colWidths[i]);
+        }
+        return this;
+    }
+
+    /**
+     * 根据写入时记录的每列最大内容宽度设置列宽(无需回读数据)
+     * @param maxColNum 列数
+     * @return 链式调用本身
+     */
+    public ExcelStreamWriteHelper autoColunWith(int maxColNum) {
+        for (int i = 0; i < maxColNum; i++) {
+            int chars = i < curSheet.maxChars.length ? curSheet.maxChars[i] : 0;
+            curSheet.colWidths.put(i, Math.min((chars + 2) * 256, 255 * 256));
+        }
+        return this;
+    }
+
+    /*---------------每页内容相关----------------------*/
+    /**
+     * 横表
+     * @param dataList 数据列表
+     * @param keys 数据键
+     * @param titles 标题
+     * @param titleStyle 标题样式
+     * @param contentStyles 内容样式
+     * @return 链式调用本身
+     * @throws IOException 写入临时文件失败
+     */
+    public ExcelStreamWriteHelper createTableHorizontal(
+            List<Map<String, Object>> dataList,
+            String[] keys,
+            String[] titles,
+            CellStyle titleStyle,
+            CellStyle[] contentStyles) throws IOException {
+        if (keys == null && dataList != null && !dataList.isEmpty()) {
+            keys = dataList.get(0).keySet().toArray(new String[0]);
+        }
+        return createTableHorizontal(dataList == null ? null : dataList.iterator(), keys, titles, titleStyle, contentStyles);
+    }
+
+    /**
+     * 横表(逐条推入数据)
+     * <p>
+     * 迭代器每返回一条数据就写入一行，超出窗口的行立即写入临时文件，适合数据库游标等大数据量场景
+     * </p>
+     * @param itor 数据迭代器
+     * @param keys 数据键，不能为空
+     * @param titles 标题，长度为0时与keys相同
+     * @param titleStyle 标题样式
+     * @param contentStyles 内容样式，按列取，不足时取最后一个
+     * @return 链式调用本身
+     * @throws IOException 写入临时文件失败
+     */
+    public ExcelStreamWriteHelper createTableHorizontal(
+            Iterator<? extends Map<String, ?>> itor,
+            String[] keys,
+            String[] titles,
+            CellStyle titleStyle,
+            CellStyle[] contentStyles) throws IOException {
+        if (titles != null && titles.length == 0) {    //如果标题为空，则令titles和keys相同
+            titles = keys;
+        }
+        if (titles != null) {
+            StreamRow row = createRow();
+            int xf = styles.xf(titleStyle, true);
+            for (int i = 0; i < titles.length; i++) {
+                curSheet.setCell(row, i, titles[i], xf);
+            }
+        }
+        if (keys != null && itor != null) {
+            int[] xfs = new int[keys.length];
+            for (int j = 0; j < keys.length; j++) {
+                xfs[j] = styles.xf(pick(contentStyles, j), true);
+            }
+            while (itor.hasNext()) {
+                Map<String, ?> rowObj = itor.next();
+                StreamRow row = createRow();
+                for (int j = 0; j < keys.length; j++) {
+                    curSheet.setCell(row, j, rowObj.get(keys[j]), xfs[j]);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 横表(仅一条数据行)
+     * @param dataMap 数据表
+     * @param keys 数据键
+     * @param titles 标题
+     * @param titleStyle 标题样式
+     * @param contentStyle 内容样式
+     * @return 链式调用本身
+     * @throws IOException 写入临时文件失败
+     */
+    public ExcelStreamWriteHelper createTableHorizontal(
+            Map<String, Object> dataMap,
+            String[] keys,
+            String[] titles,
+            CellStyle titleStyle,
+            CellStyle contentStyle) throws IOException {
+        if (dataMap == null) {
+            dataMap = new HashMap<>();
+        }
+        if (keys == null && !dataMap.isEmpty()) {
+            keys = dataMap.keySet().toArray(new String[0]);
+        }
+        List<Map<String, Object>> list = new ArrayList<>(1);
+        list.add(dataMap);
+        return createTableHorizontal(list.iterator(), keys, titles, titleStyle, new CellStyle[]{contentStyle});
+    }
+
+    /**
+     * 纵表，每个key占一行，每条数据占一列(数据已在内存中，直接按行生成)
+     * @param dataList 数据列表
+     * @param keys 数据键
+     * @param titles 标题
+     * @param titleStyle 标题样式
+     * @param contentStyles 内容样式，按行取，不足时取最后一个
+     * @return 链式调用本身
+     * @throws IOException 写入临时文件失败
+     */
+    public ExcelStreamWriteHelper createTableVertical(
+            List<Map<String, Object>> dataList,
+            String[] keys,
+            String[] titles,
+            CellStyle titleStyle,
+            CellStyle[] contentStyles) throws IOException {
+        if (dataList == null) {
+            dataList = new ArrayList<>();
+        }
+        if (keys == null && !dataList.isEmpty()) {
+            keys = dataList.get(0).keySet().toArray(new String[0]);
+        }
+        if (titles != null && titles.length == 0) {
+            titles = keys;
+        }
+        int rowCount = Math.max(keys == null ? 0 : keys.length, titles == null ? 0 : titles.length);
+        int titleXf = styles.xf(titleStyle, true);
+        int k = titles == null ? 0 : 1;
+        for (int j = 0; j < rowCount; j++) {
+            StreamRow row = createRow();
+            if (titles != null && j < titles.length) {
+                curSheet.setCell(row, 0, titles[j], titleXf);
+            }
+            if (keys != null && j < keys.length) {
+                int xf = styles.xf(pick(contentStyles, j), true);
+                for (int i = 0; i < dataList.size(); i++) {
+                    curSheet.setCell(row, k + i, dataList.get(i).get(keys[j]), xf);
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 纵表
+     * @param dataList 数据列表
+     * @param keys 数据键
+     * @param titles 标题
+     * @param titleStyle 标题样式
+     * @param contentStyle 内容样式
+     * @return 链式调用本身
+     * @throws IOException 写入临时文件失败
+     */
+    public ExcelStreamWriteHelper createTableVertical(
+            List<Map<String, Object>> dataList,
+            String[] keys,
+            String[] titles,
+            CellStyle titleStyle,
+            CellStyle contentStyle) throws IOException {
+        return createTableVertical(dataList, keys, titles, titleStyle, new CellStyle[]{contentStyle});
+    }
+
+    /**
+     * 创建只有一列的行
+     * @param content 内容
+     * @param style 样式
+     * @return 行
+     * @throws IOException 写入临时文件失败
+     */
+    public StreamRow createRow(Object content, CellStyle style) throws IOException {
+        StreamRow row = createRow();
+        curSheet.setCell(row, 0, content, styles.xf(style, false));
+        return row;
+    }
+
+    /**
+     * 创建一个数据行,一行都采用相同的样式
+     * @param contents 内容数组
+     * @param style 样式
+     * @return 行
+     * @throws IOException 写入临时文件失败
+     */
+    public StreamRow createRow(Object[] contents, CellStyle style) throws IOException {
+        StreamRow row = createRow();
+        int xf = styles.xf(style, false);
+        for (int i = 0; i < contents.length; i++) {
+            curSheet.setCell(row, i, contents[i], xf);
+        }
+        return row;
+    }
+
+    /**
+     * 创建一个数据行,一行都采用相同的样式
+     * @param contentList 内容列表
+     * @param style 样式
+     * @return 行
+     * @throws IOException 写入临时文件失败
+     */
+    public StreamRow createRow(List<?> contentList, CellStyle style) throws IOException {
+        return createRow(contentList == null ? new Object[0] : contentList.toArray(), style);
+    }
+
+    /**
+     * 创建一行并合并0-col列
+     * @param content 内容
+     * @param style 样式
+     * @param col 合并到的列
+     * @return 行
+     * @throws IOException 写入临时文件失败
+     */
+    public StreamRow createRowMerged(Object content, CellStyle style, int col) throws IOException {
+        StreamRow row = createRow(content, style);
+        curSheet.merged.add(new int[]{row.rowNum, 0, col});
+        return row;
+    }
+
+    /**
+     * 创建空行
+     * @return 行
+     * @throws IOException 写入临时文件失败
+     */
+    public StreamRow createRow() throws IOException {
+        if (index >= MAX_ROWS) {
+            throw new IllegalStateException("超出xlsx最大行数:" + MAX_ROWS);
+        }
+        return curSheet.createRow(index++);
+    }
+
+    /**
+     * 获取窗口内的行
+     * @param rowNum 行号
+     * @return 行，已写入临时文件或者不存在时返回null
+     */
+    public StreamRow getRow(int rowNum) {
+        return curSheet.getRow(rowNum);
+    }
+
+    /**
+     * 设置单元格，行必须还在窗口内
+     * @param row 行
+     * @param colNum 列
+     * @param content 内容
+     * @param style 样式
+     * @return 链式调用本身
+     */
+    public ExcelStreamWriteHelper setCell(StreamRow row, int colNum, Object content, CellStyle style) {
+        if (row.flushed) {
+            throw new IllegalStateException("第" + row.rowNum + "行已写入临时文件，不能再修改");
+        }
+        curSheet.setCell(row, colNum, content, styles.xf(style, false));
+        return this;
+    }
+
+    /**
+     * 空1行
+     */
+    public void skipRow() {
+        index++;
+    }
+
+    /**
+     * 空rowNum行
+     * @param rowNum 行数
+     */
+    public void skipRow(int rowNum) {
+        index += rowNum;
+    }
+
+    /*-----输出------*/
+    /**
+     * 将excel文件写出到输出流中,并关闭输出流
+     * @param os 输出流
+     * @throws IOException 异常
+     */
+    public void write(OutputStream os) throws IOException {
+        try {
+            curSheet.finish();
+            ZipOutputStream zos = new ZipOutputStream(os);
+            Writer w = new BufferedWriter(new OutputStreamWriter(zos, StandardCharsets.UTF_8), 64 * 1024);
+            putEntry(zos, w, "[Content_Types].xml", contentTypes());
+            putEntry(zos, w, "_rels/.rels", "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                    + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                    + "</Relationships>");
+            putEntry(zos, w, "xl/workbook.xml", workbookXml());
+            putEntry(zos, w, "xl/_rels/workbook.xml.rels", workbookRels());
+            putEntry(zos, w, "xl/styles.xml", styles.toXml());
+            for (int i = 0; i < sheets.size(); i++) {
+                zos.putNextEntry(new ZipEntry("xl/worksheets/sheet" + (i + 1) + ".xml"));
+                sheets.get(i).writeTo(w);
+                w.flush();
+                zos.closeEntry();
+            }
+            zos.finish();
+        } finally {
+            IOUtils.close(os);
+        }
+    }
+
+    /**
+     * 销毁对象，删除临时文件
+     */
+    @Override
+    public void dispose() {
+        for (StreamSheet sheet : sheets) {
+            sheet.delete();
+        }
+        sheets.clear();
+        IOUtils.close(styleWorkBook);
+    }
+
+    /*---------------内部用方法------------------------*/
+    private static CellStyle pick(CellStyle[] styles, int i) {
+        if (styles == null || styles.length == 0) {
+            return null;
+        }
+        return i < styles.length ? styles[i] : styles[styles.length - 1];
+    }
+
+    private static void putEntry(ZipOutputStream zos, Writer w, String name, String content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        w.write(content);
+        w.flush();
+        zos.closeEntry();
+    }
+
+    private String contentTypes() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        for (int i = 1; i <= sheets.size(); i++) {
+            sb.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                    .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        return sb.append("</Types>").toString();
+    }
+
+    private String workbookXml() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+                + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        for (int i = 0; i < sheets.size(); i++) {
+            sb.append("<sheet name=\"").append(escape(sheets.get(i).name)).append("\" sheetId=\"").append(i + 1)
+                    .append("\" r:id=\"rId").append(i + 1).append("\"/>");
+        }
+        return sb.append("</sheets></workbook>").toString();
+    }
+
+    private String workbookRels() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheets.size(); i++) {
+            sb.append("<Relationship Id=\"rId").append(i)
+                    .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                    .append(i).append(".xml\"/>");
+        }
+        sb.append("<Relationship Id=\"rId").append(sheets.size() + 1)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>");
+        return sb.append("</Relationships>").toString();
+    }
+
+    private static String filterUnsupportedSheetName(String sheetName) {
+        return SHEET_NAME_PATTERN.matcher(sheetName.replaceAll("://", "_")).replaceAll("_");
+    }
+
+    /**
+     * xml转义，同时去掉xml不允许的控制字符
+     */
+    private static String escape(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String rep = null;
+            switch (c) {
+                case '&': rep = "&amp;"; break;
+                case '<': rep = "&lt;"; break;
+                case '>': rep = "&gt;"; break;
+                case '"': rep = "&quot;"; break;
+                default:
+                    if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                        rep = "";
+                    }
+            }
+            if (rep != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(s.length() + 16).append(s, 0, i);
+                }
+                sb.append(rep);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return sb == null ? s : sb.toString();
+    }
+
+    private static String columnName(int col) {
+        StringBuilder sb = new StringBuilder();
+        col++;
+        while (col > 0) {
+            int m = (col - 1) % 26;
+            sb.insert(0, (char) ('A' + m));
+            col = (col - 1) / 26;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 窗口内的行，只保存单元格内容和样式下标
+     */
+    public static class StreamRow {
+        private final int rowNum;
+        private Object[] values = new Object[8];
+        private int[] xfs = new int[8];
+        private int lastCol = -1;
+        private boolean flushed;
+
+        private StreamRow(int rowNum) {
+            this.rowNum = rowNum;
+        }
+
+        public int getRowNum() {
+            return rowNum;
+        }
+
+        private void set(int col, Object value, int xf) {
+            if (col >= values.length) {
+                int size = Math.max(col + 1, values.length * 2);
+                values = Arrays.copyOf(values, size);
+                xfs = Arrays.copyOf(xfs, size);
+            }
+            values[col] = value;
+            xfs[col] = xf;
+            lastCol = Math.max(lastCol, col);
+        }
+    }
+
+    /**
+     * 一个页面: 滚动窗口 + gzip临时文件
+     */
+    private static class StreamSheet {
+        private final String name;
+        private final int windowSize;
+        private final ArrayDeque<StreamRow> window = new ArrayDeque<>();
+        private final File tmpFile;
+        private Writer tmpWriter;
+        private int lastFlushedRow = -1;
+        private final Map<Integer, Integer> colWidths = new LinkedHashMap<>();
+        private final List<int[]> merged = new ArrayList<>();
+        /* 每列内容的最大显示宽度(中文按2个字符计)，用于自动列宽 */
+        private int[] maxChars = new int[16];
+        private final StringBuilder buf = new StringBuilder(256);
+
+        StreamSheet(String name, int windowSize) throws IOException {
+            this.name = name;
+            this.windowSize = windowSize;
+            this.tmpFile = File.createTempFile("excel-sheet", ".xml.gz");
+            this.tmpFile.deleteOnExit();
+            this.tmpWriter = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(tmpFile), 64 * 1024), StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        StreamRow createRow(int rowNum) throws IOException {
+            if (rowNum <= lastFlushedRow) {
+                throw new IllegalStateException("第" + rowNum + "行已写入临时文件，不能重新创建");
+            }
+            StreamRow row = new StreamRow(rowNum);
+            window.addLast(row);
+            while (window.size() > windowSize) {
+                flush(window.pollFirst());
+            }
+            return row;
+        }
+
+        StreamRow getRow(int rowNum) {
+            for (StreamRow row : window) {
+                if (row.rowNum == rowNum) {
+                    return row;
+                }
+            }
+            return null;
+        }
+
+        void setCell(StreamRow row, int col, Object value, int xf) {
+            row.set(col, value, xf);
+            if (value != null) {
+                if (col >= maxChars.length) {
+                    maxChars = Arrays.copyOf(maxChars, Math.max(col + 1, maxChars.length * 2));
+                }
+                String s = value.toString();
+                int width = 0;
+                for (int i = 0; i < s.length(); i++) {
+                    width += s.charAt(i) < 0x2E80 ? 1 : 2;
+                }
+                if (width > maxChars[col]) {
+                    maxChars[col] = width;
+                }
+            }
+        }
+
+        private void flush(StreamRow row) throws IOException {
+            buf.setLength(0);
+            buf.append("<row r=\"").append(row.rowNum + 1).append("\">");
+            for (int i = 0; i <= row.lastCol; i++) {
+                Object value = row.values[i];
+                int xf = row.xfs[i];
+                if (value == null && xf == 0) {
+                    continue;
+                }
+                buf.append("<c r=\"").append(columnName(i)).append(row.rowNum + 1).append('"');
+                if (xf != 0) {
+                    buf.append(" s=\"").append(xf).append('"');
+                }
+                String s = value == null ? "" : value.toString();
+                if (s.isEmpty()) {
+                    buf.append("/>");
+                } else {
+                    buf.append(" t=\"inlineStr\"><is><t xml:space=\"preserve\">").append(escape(s)).append("</t></is></c>");
+                }
+            }
+            buf.append("</row>");
+            tmpWriter.append(buf);
+            row.flushed = true;
+            row.values = null;
+            row.xfs = null;
+            lastFlushedRow = row.rowNum;
+        }
+
+        void finish() throws IOException {
+            if (tmpWriter == null) {
+                return;
+            }
+            while (!window.isEmpty()) {
+                flush(window.pollFirst());
+            }
+            tmpWriter.close();
+            tmpWriter = null;
+        }
+
+        void writeTo(Writer w) throws IOException {
+            w.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+            if (!colWidths.isEmpty()) {
+                w.write("<cols>");
+                for (Map.Entry<Integer, Integer> entry : colWidths.entrySet()) {
+                    int col = entry.getKey() + 1;
+                    w.write("<col min=\"" + col + "\" max=\"" + col + "\" width=\"" + (entry.getValue() / 256d) + "\" customWidth=\"1\"/>");
+                }
+                w.write("</cols>");
+            }
+            w.write("<sheetData>");
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(tmpFile), 64 * 1024), StandardCharsets.UTF_8))) {
+                char[] chars = new char[64 * 1024];
+                int len;
+                while ((len = reader.read(chars)) != -1) {
+                    w.write(chars, 0, len);
+                }
+            }
+            w.write("</sheetData>");
+            if (!merged.isEmpty()) {
+                w.write("<mergeCells count=\"" + merged.size() + "\">");
+                for (int[] m : merged) {
+                    w.write("<mergeCell ref=\"" + columnName(m[1]) + (m[0] + 1) + ":" + columnName(m[2]) + (m[0] + 1) + "\"/>");
+                }
+                w.write("</mergeCells>");
+            }
+            w.write("</worksheet>");
+        }
+
+        void delete() {
+            IOUtils.close(tmpWriter);
+            tmpWriter = null;
+            tmpFile.delete();
+        }
+    }
+
+    /**
+     * 将HSSF的CellStyle转换为xlsx样式表中的xf，每个(样式, 是否加边框)只转换一次
+     */
+    private static class StyleTable {
+        private final HSSFWorkbook workBook;
+        private final Map<Integer, Integer> xfCache = new HashMap<>();
+        private final Map<String, Integer> fonts = new LinkedHashMap<>();
+        private final Map<String, Integer> fills = new LinkedHashMap<>();
+        private final Map<String, Integer> borders = new LinkedHashMap<>();
+        private final Map<String, Integer> numFmts = new LinkedHashMap<>();
+        private final Map<String, Integer> xfs = new LinkedHashMap<>();
+
+        StyleTable(HSSFWorkbook workBook) {
+            this.workBook = workBook;
+            fonts.put("<font><sz val=\"11\"/><name val=\"Calibri\"/></font>", 0);
+            fills.put("<fill><patternFill patternType=\"none\"/></fill>", 0);
+            fills.put("<fill><patternFill patternType=\"gray125\"/></fill>", 1);
+            borders.put("<border><left/><right/><top/><bottom/><diagonal/></border>", 0);
+            xfs.put("<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>", 0);
+        }
+
+        /**
+         * @param style 样式，可以为null
+         * @param border 是否强制四周细边框(表格)
+         * @return xf下标
+         */
+        int xf(CellStyle style, boolean border) {
+            if (style == null && !border) {
+                return 0;
+            }
+            int key = (style == null ? -1 : style.getIndex()) * 2 + (border ? 1 : 0);
+            Integer xf = xfCache.get(key);
+            if (xf == null) {
+                xf = convert((HSSFCellStyle) style, border);
+                xfCache.put(key, xf);
+            }
+            return xf;
+        }
+
+        private int convert(HSSFCellStyle style, boolean border) {
+            int fontId = 0;
+            int fillId = 0;
+            int numFmtId = 0;
+            StringBuilder alignment = new StringBuilder();
+            String top = "", bottom = "", left = "", right = "";
+            if (style != null) {
+                fontId = intern(fonts, fontXml(style.getFont(workBook)));
+                if (style.getFillPattern() == FillPatternType.SOLID_FOREGROUND) {
+                    fillId = intern(fills, "<fill><patternFill patternType=\"solid\"><fgColor rgb=\""
+                            + rgb(style.getFillForegroundColor()) + "\"/></patternFill></fill>");
+                }
+                numFmtId = numFmt(style.getDataFormat(), style.getDataFormatString());
+                if (style.getAlignment() != HorizontalAlignment.GENERAL) {
+                    alignment.append(" horizontal=\"").append(horizontal(style.getAlignment())).append('"');
+                }
+                if (style.getVerticalAlignment() != VerticalAlignment.BOTTOM) {
+                    alignment.append(" vertical=\"").append(camel(style.getVerticalAlignment().name())).append('"');
+                }
+                if (style.getWrapText()) {
+                    alignment.append(" wrapText=\"1\"");
+                }
+                top = borderStyle(style.getBorderTop());
+                bottom = borderStyle(style.getBorderBottom());
+                left = borderStyle(style.getBorderLeft());
+                right = borderStyle(style.getBorderRight());
+            }
+            if (border) {
+                top = top.isEmpty() ? "thin" : top;
+                bottom = bottom.isEmpty() ? "thin" : bottom;
+                left = left.isEmpty() ? "thin" : left;
+                right = right.isEmpty() ? "thin" : right;
+            }
+            int borderId = intern(borders, "<border>" + borderSide("left", left) + borderSide("right", right)
+                    + borderSide("top", top) + borderSide("bottom", bottom) + "<diagonal/></border>");
+            StringBuilder xf = new StringBuilder("<xf numFmtId=\"").append(numFmtId).append("\" fontId=\"").append(fontId)
+                    .append("\" fillId=\"").append(fillId).append("\" borderId=\"").append(borderId).append("\" xfId=\"0\"");
+            if (numFmtId != 0) {
+                xf.append(" applyNumberFormat=\"1\"");
+            }
+            xf.append(fontId != 0 ? " applyFont=\"1\"" : "").append(fillId != 0 ? " applyFill=\"1\"" : "")
+                    .append(borderId != 0 ? " applyBorder=\"1\"" : "");
+            if (alignment.length() > 0) {
+                xf.append(" applyAlignment=\"1\"><alignment").append(alignment).append("/></xf>");
+            } else {
+                xf.append("/>");
+            }
+            return intern(xfs, xf.toString());
+        }
+
+        private String fontXml(HSSFFont font) {
+            StringBuilder sb = new StringBuilder("<font>");
+            if (font.getBold()) {
+                sb.append("<b/>");
+            }
+            if (font.getItalic()) {
+                sb.append("<i/>");
+            }
+            if (font.getStrikeout()) {
+                sb.append("<strike/>");
+            }
+            if (font.getUnderline() != Font.U_NONE) {
+                sb.append("<u/>");
+            }
+            sb.append("<sz val=\"").append(font.getFontHeightInPoints()).append("\"/>");
+            if (font.getColor() != HSSFFont.COLOR_NORMAL && font.getColor() != 0x7FFF) {
+                sb.append("<color rgb=\"").append(rgb(font.getColor())).append("\"/>");
+            }
+            sb.append("<name val=\"").append(escape(font.getFontName())).append("\"/></font>");
+            return sb.toString();
+        }
+
+        private String rgb(short colorIndex) {
+            HSSFColor color = workBook.getCustomPalette().getColor(colorIndex);
+            if (color == null) {
+                return "FF000000";
+            }
+            short[] t = color.getTriplet();
+            return String.format("FF%02X%02X%02X", t[0], t[1], t[2]);
+        }
+
+        private int numFmt(short index, String format) {
+            if (index <= 0 || format == null) {
+                return 0;
+            }
+            if (format.equals(BuiltinFormats.getBuiltinFormat(index))) {
+                return index;
+            }
+            Integer id = numFmts.get(format);
+            if (id == null) {
+                id = 164 + numFmts.size();
+                numFmts.put(format, id);
+            }
+            return id;
+        }
+
+        private static String horizontal(HorizontalAlignment alignment) {
+            return alignment == HorizontalAlignment.CENTER_SELECTION ? "centerContinuous" : camel(alignment.name());
+        }
+
+        private static String borderStyle(BorderStyle style) {
+            if (style == null || style == BorderStyle.NONE) {
+                return "";
+            }
+            return style == BorderStyle.SLANTED_DASH_DOT ? "slantDashDot" : camel(style.name());
+        }
+
+        private static String borderSide(String side, String style) {
+            return style.isEmpty() ? "<" + side + "/>" : "<" + side + " style=\"" + style + "\"><color auto=\"1\"/></" + side + ">";
+        }
+
+        /**
+         * MEDIUM_DASHED -> mediumDashed
+         */
+        private static String camel(String name) {
+            StringBuilder sb = new StringBuilder();
+            boolean upper = false;
+            for (char c : name.toLowerCase().toCharArray()) {
+                if (c == '_') {
+                    upper = true;
+                } else {
+                    sb.append(upper ? Character.toUpperCase(c) : c);
+                    upper = false;
+                }
+            }
+            return sb.toString();
+        }
+
+        private static int intern(Map<String, Integer> map, String xml) {
+            Integer id = map.get(xml);
+            if (id == null) {
+                id = map.size();
+                map.put(xml, id);
+            }
+            return id;
+        }
+
+        String toXml() {
+            StringBuilder sb = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>"
+                    + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">");
+            if (!numFmts.isEmpty()) {
+                sb.append("<numFmts count=\"").append(numFmts.size()).append("\">");
+                for (Map.Entry<String, Integer> entry : numFmts.entrySet()) {
+                    sb.append("<numFmt numFmtId=\"").append(entry.getValue()).append("\" formatCode=\"")
+                            .append(escape(entry.getKey())).append("\"/>");
+                }
+                sb.append("</numFmts>");
+            }
+            append(sb, "fonts", fonts);
+            append(sb, "fills", fills);
+            append(sb, "borders", borders);
+            sb.append("<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>");
+            append(sb, "cellXfs", xfs);
+            sb.append("<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>");
+            return sb.append("</styleSheet>").toString();
+        }
+
+        private static void append(StringBuilder sb, String tag, Map<String, Integer> map) {
+            sb.append('<').append(tag).append(" count=\"").append(map.size()).append("\">");
+            for (String xml : map.keySet()) {
+                sb.append(xml);
+            }
+            sb.append("</").append(tag).append('>');
+        }
+    }
+
+    /*============性能测试=============*/
+    /**
+     * 分别写出10万行和100万行(10列)，输出耗时、堆峰值和文件大小
+     */
+    public static void main(String[] args) throws IOException {
+        String[] keys = new String[10];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "col" + i;
+        }
+        for (int total : new int[]{100_000, 1_000_000}) {
+            System.gc();
+            List<MemoryPoolMXBean> pools = ManagementFactory.getMemoryPoolMXBeans();
+            for (MemoryPoolMXBean pool : pools) {
+                pool.resetPeakUsage();
+            }
+            long start = System.currentTimeMillis();
+            File file = File.createTempFile("excel-bench", ".xlsx");
+            ExcelStreamWriteHelper helper = new ExcelStreamWriteHelper("data");
+            try {
+                CellStyle title = ExcelStyleTemplate.h3(helper.workBook());
+                CellStyle content = ExcelStyleTemplate.tableContent(helper.workBook());
+                Iterator<Map<String, Object>> itor = new Iterator<Map<String, Object>>() {
+                    private int i;
+                    private final Map<String, Object> row = new HashMap<>();
+
+                    @Override
+                    public boolean hasNext() {
+                        return i < total;
+                    }
+
+                    @Override
+                    public Map<String, Object> next() {
+                        for (int j = 0; j < keys.length; j++) {
+                            row.put(keys[j], j % 2 == 0 ? "value-" + i + "-" + j : i * j);
+                        }
+                        i++;
+                        return row;
+                    }
+                };
+                helper.createTableHorizontal(itor, keys, new String[0], title, new CellStyle[]{content})
+                        .autoColunWith(keys.length)
+                        .write(new FileOutputStream(file));
+            } finally {
+                helper.dispose();
+            }
+            long peak = 0;
+            for (MemoryPoolMXBean pool : pools) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    peak += pool.getPeakUsage().getUsed();
+                }
+            }
+            System.out.println(String.format("rows=%d, 耗时=%dms, 堆峰值=%dMB, 文件大小=%dMB",
+                    total, System.currentTimeMillis() - start, peak >> 20, file.length() >> 20));
+            file.delete();
+        }
+    }
+}
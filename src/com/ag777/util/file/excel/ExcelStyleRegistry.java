@@ -0,0 +1,549 @@
+package com.ag777.util.file.excel;
+
+import org.apache.poi.hssf.usermodel.HSSFCellStyle;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.BorderStyle;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.HorizontalAlignment;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.VerticalAlignment;
+import org.apache.poi.ss.usermodel.Workbook;
+
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * 工作簿级别的样式/字体注册表
+ * <p>
+ * 按全部属性对CellStyle和Font去重，相同属性只在工作簿中创建一次，
+ * 避免大量导出时超出xls的4000个样式上限以及样式表膨胀。
+ * {@link ExcelStyleTemplate}、{@link ExcelStyleUtils}、{@link ExcelWriteHelper}的表格边框和{@link ExcelUtils#copyCell}都通过它获取样式。
+ * </p>
+ * <p>
+ * 注册表只缓存样式和字体在工作簿中的下标，不持有CellStyle/Font对象(xlsx的样式对象会引用工作簿，
+ * 持有它们会使工作簿无法被回收)，每次按下标从工作簿中取出，所以多次获取得到的是同一个样式(下标相同)，但不一定是同一个java对象。
+ * 注意: 返回的样式在同一工作簿内共享，请勿直接修改，需要不同样式时应修改{@link StyleKey}后重新获取
+ * </p>
+ * <pre>{@code
+ *   ExcelStyleRegistry registry = ExcelStyleRegistry.of(workBook);
+ *   CellStyle style = registry.style(new StyleKey().alignment(HorizontalAlignment.CENTER)
+ *           .font(new FontKey().name("宋体").heightInPoints((short) 9).bold(true)));
+ *   System.out.println(registry);  //命中统计
+ * }</pre>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午6:10
+ */
+public class ExcelStyleRegistry {
+
+    private static final Map<Workbook, ExcelStyleRegistry> REGISTRIES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /* 不持有工作簿及其样式、字体的强引用(值只有下标)，工作簿被回收后注册表随之回收 */
+    private final WeakReference<Workbook> workBookRef;
+    /* 样式属性 -> 样式下标 */
+    private final Map<StyleKey, Integer> styles = new HashMap<>();
+    /* 字体属性 -> 字体下标 */
+    private final Map<FontKey, Integer> fonts = new HashMap<>();
+    /* 源样式下标+边框 -> 加边框后的样式下标 */
+    private final Map<Integer, Integer> borderCache = new HashMap<>();
+    /* 源工作簿 -> (源样式下标 -> 本工作簿中的样式下标) */
+    private final Map<Workbook, Map<Integer, Integer>> copyCache = new WeakHashMap<>();
+
+    private long styleHits;
+    private long styleMisses;
+    private long fontHits;
+    private long fontMisses;
+
+    private ExcelStyleRegistry(Workbook workBook) {
+        this.workBookRef = new WeakReference<>(workBook);
+    }
+
+    /**
+     * 获取工作簿对应的注册表，不存在时创建
+     * @param workBook 工作簿
+     * @return 注册表
+     */
+    public static ExcelStyleRegistry of(Workbook workBook) {
+        return REGISTRIES.computeIfAbsent(Objects.requireNonNull(workBook, "workBook"), ExcelStyleRegistry::new);
+    }
+
+    /**
+     * 获取属性与key一致的样式，不存在时创建
+     * @param key 样式属性
+     * @return 工作簿中的样式(共享，请勿修改)
+     */
+    public synchronized CellStyle style(StyleKey key) {
+        Workbook workBook = workBook();
+        Integer index = styles.get(key);
+        if (index != null) {
+            styleHits++;
+            return workBook.getCellStyleAt(index);
+        }
+        styleMisses++;
+        CellStyle style = workBook.createCellStyle();
+        key.applyTo(style, workBook, key.font == null ? null : font(key.font));
+        styles.put(key.copy(), style.getIndex() & 0xffff);
+        return style;
+    }
+
+    /**
+     * 获取属性与key一致的字体，不存在时先在工作簿中查找，找不到再创建
+     * @param key 字体属性
+     * @return 工作簿中的字体(共享，请勿修改)
+     */
+    public synchronized Font font(FontKey key) {
+        Workbook workBook = workBook();
+        Integer index = fonts.get(key);
+        if (index != null) {
+            fontHits++;
+            return workBook.getFontAt(index);
+        }
+        fontMisses++;
+        Font font = workBook.findFont(key.bold, key.color, key.height, key.name, key.italic, key.strikeout, key.typeOffset, key.underline);
+        if (font == null) {
+            font = workBook.createFont();
+            key.applyTo(font);
+        }
+        fonts.put(key.copy(), font.getIndexAsInt());
+        return font;
+    }
+
+    /**
+     * 将其它工作簿的样式复制到本工作簿，同一个源样式只复制一次
+     * <p>
+     * 通过cloneStyleFrom复制，保留rgb/主题颜色、quotePrefix、字体字符集等{@link StyleKey}不包含的属性；
+     * 源工作簿与本工作簿格式不同(xls和xlsx之间)无法clone时，退化为按{@link StyleKey}的属性获取样式
+     * </p>
+     * @param source 源样式
+     * @param sourceWorkBook 源样式所在的工作簿，与本工作簿相同时直接返回源样式
+     * @return 本工作簿中的样式
+     */
+    public synchronized CellStyle intern(CellStyle source, Workbook sourceWorkBook) {
+        Workbook workBook = workBook();
+        if (sourceWorkBook == workBook) {
+            return source;
+        }
+        Map<Integer, Integer> cache = copyCache.computeIfAbsent(sourceWorkBook, k -> new HashMap<>());
+        int sourceIndex = source.getIndex() & 0xffff;
+        Integer index = cache.get(sourceIndex);
+        if (index != null) {
+            styleHits++;
+            return workBook.getCellStyleAt(index);
+        }
+        CellStyle style;
+        if ((source instanceof HSSFCellStyle) == (workBook instanceof HSSFWorkbook)) {
+            styleMisses++;
+            style = workBook.createCellStyle();
+            style.cloneStyleFrom(source);
+        } else {
+            // xls和xlsx之间不能clone
+            style = style(StyleKey.from(source, sourceWorkBook));
+        }
+        cache.put(sourceIndex, style.getIndex() & 0xffff);
+        return style;
+    }
+
+    /**
+     * 获取在base基础上四边都加上边框的样式
+     * @param base 基础样式(本工作簿中的)，为null时使用默认样式
+     * @param border 边框样式
+     * @return 本工作簿中的样式
+     */
+    public synchronized CellStyle withBorder(CellStyle base, BorderStyle border) {
+        Workbook workBook = workBook();
+        if (base == null) {
+            base = workBook.getCellStyleAt(0);
+        }
+        int cacheKey = ((base.getIndex() & 0xffff) << 5) | border.getCode();
+        Integer index = borderCache.get(cacheKey);
+        if (index != null) {
+            styleHits++;
+            return workBook.getCellStyleAt(index);
+        }
+        // clone原样式再改边框，保留StyleKey不包含的属性(如xlsx的rgb颜色)
+        styleMisses++;
+        CellStyle style = workBook.createCellStyle();
+        style.cloneStyleFrom(base);
+        style.setBorderTop(border);
+        style.setBorderBottom(border);
+        style.setBorderLeft(border);
+        style.setBorderRight(border);
+        borderCache.put(cacheKey, style.getIndex() & 0xffff);
+        return style;
+    }
+
+    public synchronized long getStyleHits() {
+        return styleHits;
+    }
+
+    public synchronized long getStyleMisses() {
+        return styleMisses;
+    }
+
+    public synchronized long getFontHits() {
+        return fontHits;
+    }
+
+    public synchronized long getFontMisses() {
+        return fontMisses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ExcelStyleRegistry{styleHits=" + styleHits + ", styleMisses=" + styleMisses
+                + ", fontHits=" + fontHits + ", fontMisses=" + fontMisses + '}';
+    }
+
+    private Workbook workBook() {
+        Workbook workBook = workBookRef.get();
+        if (workBook == null) {
+            throw new IllegalStateException("工作簿已被回收");
+        }
+        return workBook;
+    }
+
+    /**
+     * 样式属性，作为注册表的键，未设置的属性取poi新建样式时的默认值
+     */
+    public static class StyleKey {
+        private HorizontalAlignment alignment = HorizontalAlignment.GENERAL;
+        private VerticalAlignment verticalAlignment = VerticalAlignment.BOTTOM;
+        private short indention;
+        private short rotation;
+        private boolean wrapText;
+        private boolean shrinkToFit;
+        private boolean locked = true;
+        private boolean hidden;
+        private FillPatternType fillPattern = FillPatternType.NO_FILL;
+        private short fillForegroundColor = IndexedColors.AUTOMATIC.getIndex();
+        private short fillBackgroundColor = IndexedColors.AUTOMATIC.getIndex();
+        private BorderStyle borderTop = BorderStyle.NONE;
+        private BorderStyle borderBottom = BorderStyle.NONE;
+        private BorderStyle borderLeft = BorderStyle.NONE;
+        private BorderStyle borderRight = BorderStyle.NONE;
+        private short topBorderColor = IndexedColors.BLACK.getIndex();
+        private short bottomBorderColor = IndexedColors.BLACK.getIndex();
+        private short leftBorderColor = IndexedColors.BLACK.getIndex();
+        private short rightBorderColor = IndexedColors.BLACK.getIndex();
+        private String dataFormat = "General";
+        private FontKey font;
+
+        /**
+         * 读取已有样式的全部属性
+         * @param style 样式
+         * @param workBook 样式所在的工作簿
+         * @return 样式属性
+         */
+        public static StyleKey from(CellStyle style, Workbook workBook) {
+            StyleKey key = new StyleKey();
+            key.alignment = style.getAlignment();
+            key.verticalAlignment = style.getVerticalAlignment();
+            key.indention = style.getIndention();
+            key.rotation = style.getRotation();
+            key.wrapText = style.getWrapText();
+            key.shrinkToFit = style.getShrinkToFit();
+            key.locked = style.getLocked();
+            key.hidden = style.getHidden();
+            key.fillPattern = style.getFillPattern();
+            key.fillForegroundColor = style.getFillForegroundColor();
+            key.fillBackgroundColor = style.getFillBackgroundColor();
+            key.borderTop = style.getBorderTop();
+            key.borderBottom = style.getBorderBottom();
+            key.borderLeft = style.getBorderLeft();
+            key.borderRight = style.getBorderRight();
+            key.topBorderColor = style.getTopBorderColor();
+            key.bottomBorderColor = style.getBottomBorderColor();
+            key.leftBorderColor = style.getLeftBorderColor();
+            key.rightBorderColor = style.getRightBorderColor();
+            key.dataFormat = style.getDataFormatString();
+            key.font = FontKey.from(workBook.getFontAt(style.getFontIndexAsInt()));
+            return key;
+        }
+
+        public StyleKey alignment(HorizontalAlignment alignment) {
+            this.alignment = alignment;
+            return this;
+        }
+
+        public StyleKey verticalAlignment(VerticalAlignment verticalAlignment) {
+            this.verticalAlignment = verticalAlignment;
+            return this;
+        }
+
+        public StyleKey indention(short indention) {
+            this.indention = indention;
+            return this;
+        }
+
+        public StyleKey rotation(short rotation) {
+            this.rotation = rotation;
+            return this;
+        }
+
+        public StyleKey wrapText(boolean wrapText) {
+            this.wrapText = wrapText;
+            return this;
+        }
+
+        public StyleKey shrinkToFit(boolean shrinkToFit) {
+            this.shrinkToFit = shrinkToFit;
+            return this;
+        }
+
+        public StyleKey locked(boolean locked) {
+            this.locked = locked;
+            return this;
+        }
+
+        public StyleKey hidden(boolean hidden) {
+            this.hidden = hidden;
+            return this;
+        }
+
+        /**
+         * 纯色填充背景
+         * @param color 颜色下标
+         * @return 样式属性本身
+         */
+        public StyleKey background(short color) {
+            this.fillPattern = FillPatternType.SOLID_FOREGROUND;
+            this.fillForegroundColor = color;
+            return this;
+        }
+
+        public StyleKey fill(FillPatternType fillPattern, short foregroundColor, short backgroundColor) {
+            this.fillPattern = fillPattern;
+            this.fillForegroundColor = foregroundColor;
+            this.fillBackgroundColor = backgroundColor;
+            return this;
+        }
+
+        /**
+         * 四边设置相同的边框
+         * @param border 边框样式
+         * @param color 颜色下标
+         * @return 样式属性本身
+         */
+        public StyleKey border(BorderStyle border, short color) {
+            borderTop = borderBottom = borderLeft = borderRight = border;
+            topBorderColor = bottomBorderColor = leftBorderColor = rightBorderColor = color;
+            return this;
+        }
+
+        /**
+         * @param dataFormat 数据格式，如"yyyy-MM-dd"、"0.00"
+         * @return 样式属性本身
+         */
+        public StyleKey dataFormat(String dataFormat) {
+            this.dataFormat = dataFormat;
+            return this;
+        }
+
+        /**
+         * @param font 字体属性，为null时使用工作簿默认字体
+         * @return 样式属性本身
+         */
+        public StyleKey font(FontKey font) {
+            this.font = font;
+            return this;
+        }
+
+        private void applyTo(CellStyle style, Workbook workBook, Font f) {
+            style.setAlignment(alignment);
+            style.setVerticalAlignment(verticalAlignment);
+            style.setIndention(indention);
+            style.setRotation(rotation);
+            style.setWrapText(wrapText);
+            style.setShrinkToFit(shrinkToFit);
+            style.setLocked(locked);
+            style.setHidden(hidden);
+            style.setFillPattern(fillPattern);
+            style.setFillForegroundColor(fillForegroundColor);
+            style.setFillBackgroundColor(fillBackgroundColor);
+            style.setBorderTop(borderTop);
+            style.setBorderBottom(borderBottom);
+            style.setBorderLeft(borderLeft);
+            style.setBorderRight(borderRight);
+            style.setTopBorderColor(topBorderColor);
+            style.setBottomBorderColor(bottomBorderColor);
+            style.setLeftBorderColor(leftBorderColor);
+            style.setRightBorderColor(rightBorderColor);
+            if (dataFormat != null && !"General".equals(dataFormat)) {
+                style.setDataFormat(workBook.createDataFormat().getFormat(dataFormat));
+            }
+            if (f != null) {
+                style.setFont(f);
+            }
+        }
+
+        private StyleKey copy() {
+            StyleKey key = new StyleKey();
+            key.alignment = alignment;
+            key.verticalAlignment = verticalAlignment;
+            key.indention = indention;
+            key.rotation = rotation;
+            key.wrapText = wrapText;
+            key.shrinkToFit = shrinkToFit;
+            key.locked = locked;
+            key.hidden = hidden;
+            key.fillPattern = fillPattern;
+            key.fillForegroundColor = fillForegroundColor;
+            key.fillBackgroundColor = fillBackgroundColor;
+            key.borderTop = borderTop;
+            key.borderBottom = borderBottom;
+            key.borderLeft = borderLeft;
+            key.borderRight = borderRight;
+            key.topBorderColor = topBorderColor;
+            key.bottomBorderColor = bottomBorderColor;
+            key.leftBorderColor = leftBorderColor;
+            key.rightBorderColor = rightBorderColor;
+            key.dataFormat = dataFormat;
+            key.font = font == null ? null : font.copy();
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StyleKey)) {
+                return false;
+            }
+            StyleKey k = (StyleKey) o;
+            return indention == k.indention && rotation == k.rotation && wrapText == k.wrapText
+                    && shrinkToFit == k.shrinkToFit && locked == k.locked && hidden == k.hidden
+                    && fillForegroundColor == k.fillForegroundColor && fillBackgroundColor == k.fillBackgroundColor
+                    && topBorderColor == k.topBorderColor && bottomBorderColor == k.bottomBorderColor
+                    && leftBorderColor == k.leftBorderColor && rightBorderColor == k.rightBorderColor
+                    && alignment == k.alignment && verticalAlignment == k.verticalAlignment && fillPattern == k.fillPattern
+                    && borderTop == k.borderTop && borderBottom == k.borderBottom
+                    && borderLeft == k.borderLeft && borderRight == k.borderRight
+                    && Objects.equals(dataFormat, k.dataFormat) && Objects.equals(font, k.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(alignment, verticalAlignment, indention, rotation, wrapText, shrinkToFit, locked, hidden,
+                    fillPattern, fillForegroundColor, fillBackgroundColor, borderTop, borderBottom, borderLeft, borderRight,
+                    topBorderColor, bottomBorderColor, leftBorderColor, rightBorderColor, dataFormat, font);
+        }
+    }
+
+    /**
+     * 字体属性，作为注册表的键，默认值与poi新建字体一致(Arial 10号)
+     */
+    public static class FontKey {
+        private String name = "Arial";
+        /* 单位为1/20点 */
+        private short height = 200;
+        private short color = Font.COLOR_NORMAL;
+        private boolean bold;
+        private boolean italic;
+        private boolean strikeout;
+        private short typeOffset = Font.SS_NONE;
+        private byte underline = Font.U_NONE;
+
+        /**
+         * 读取已有字体的全部属性
+         * @param font 字体
+         * @return 字体属性
+         */
+        public static FontKey from(Font font) {
+            FontKey key = new FontKey();
+            key.name = font.getFontName();
+            key.height = font.getFontHeight();
+            key.color = font.getColor();
+            key.bold = font.getBold();
+            key.italic = font.getItalic();
+            key.strikeout = font.getStrikeout();
+            key.typeOffset = font.getTypeOffset();
+            key.underline = font.getUnderline();
+            return key;
+        }
+
+        public FontKey name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public FontKey heightInPoints(short heightInPoints) {
+            this.height = (short) (heightInPoints * 20);
+            return this;
+        }
+
+        public FontKey color(short color) {
+            this.color = color;
+            return this;
+        }
+
+        public FontKey bold(boolean bold) {
+            this.bold = bold;
+            return this;
+        }
+
+        public FontKey italic(boolean italic) {
+            this.italic = italic;
+            return this;
+        }
+
+        public FontKey strikeout(boolean strikeout) {
+            this.strikeout = strikeout;
+            return this;
+        }
+
+        public FontKey underline(byte underline) {
+            this.underline = underline;
+            return this;
+        }
+
+        private void applyTo(Font font) {
+            font.setFontName(name);
+            font.setFontHeight(height);
+            font.setColor(color);
+            font.setBold(bold);
+            font.setItalic(italic);
+            font.setStrikeout(strikeout);
+            font.setTypeOffset(typeOffset);
+            font.setUnderline(underline);
+        }
+
+        private FontKey copy() {
+            FontKey key = new FontKey();
+            key.name = name;
+            key.height = height;
+            key.color = color;
+            key.bold = bold;
+            key.italic = italic;
+            key.strikeout = strikeout;
+            key.typeOffset = typeOffset;
+            key.underline = underline;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FontKey)) {
+                return false;
+            }
+            FontKey k = (FontKey) o;
+            return height == k.height && color == k.color && bold == k.bold && italic == k.italic
+                    && strikeout == k.strikeout && typeOffset == k.typeOffset && underline == k.underline
+                    && Objects.equals(name, k.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, height, color, bold, italic, strikeout, typeOffset, underline);
+        }
+    }
+}
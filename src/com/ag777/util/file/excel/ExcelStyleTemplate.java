@@ -1,8 +1,8 @@
 package com.ag777.util.file.excel;
 
+import com.ag777.util.file.excel.ExcelStyleRegistry.FontKey;
+import com.ag777.util.file.excel.ExcelStyleRegistry.StyleKey;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.FillPatternType;
-import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
@@ -19,9 +19,12 @@ import org.apache.poi.ss.usermodel.Workbook;
  * <li>commons-collections4-4.1.jar</li>
  * </ul>
  * </p>
+ * <p>
+ * 样式通过{@link ExcelStyleRegistry}获取，同一工作簿内多次调用返回同一个样式(下标相同)，请勿直接修改返回值
+ * </p>
  * 
  * @author ag777
- * @version create on 2017年09月06日,last modify at 2017年09月06日
+ * @version create on 2017年09月06日,last modify at 2026年10月17日
  */
 public class ExcelStyleTemplate {
 	
@@ -33,15 +36,9 @@ public class ExcelStyleTemplate {
 	 * @return
 	 */
 	public static CellStyle h1(Workbook workBook) {
-		CellStyle style = basic(workBook);
-		style.setAlignment(HorizontalAlignment.LEFT);
-		
-		Font font = basicFont(workBook);
-		font.setFontHeightInPoints((short) 22);//设置字体大小
-		font.setBold(true);
-		
-		style.setFont(font);
-		return style;
+		return style(workBook, basicKey()
+				.alignment(HorizontalAlignment.LEFT)
+				.font(basicFont().heightInPoints((short) 22).bold(true)));	//设置字体大小
 	}
 	
 	/**
@@ -79,16 +76,10 @@ public class ExcelStyleTemplate {
 	 * @return
 	 */
 	public static CellStyle hn(Workbook workBook, int n) {
-		CellStyle style = basic(workBook);
-		style.setAlignment(HorizontalAlignment.LEFT);
-		
-		Font font = basicFont(workBook);
-		font.setFontHeightInPoints((short) 15);//设置字体大小
-		font.setBold(true);
-		
-		style.setFont(font);
-		style.setIndention((short) (n-1));	//缩进
-		return style;
+		return style(workBook, basicKey()
+				.alignment(HorizontalAlignment.LEFT)
+				.indention((short) (n-1))	//缩进
+				.font(basicFont().heightInPoints((short) 15).bold(true)));
 	}
 	
 	/**
@@ -97,31 +88,13 @@ public class ExcelStyleTemplate {
 	 * @return
 	 */
 	public static CellStyle titleHorizontal(Workbook workBook) {
-		CellStyle style = basic(workBook);
-		
-		fillBackGroundColor(style, IndexedColors.GREY_25_PERCENT.getIndex());
-		Font font = basicFont(workBook);
-		
-		font.setFontHeightInPoints((short) 9);//设置字体大小
-		font.setBold(true);
-		
-		style.setFont(font);
-		
-		return style;
+		return style(workBook, basicKey()
+				.background(IndexedColors.GREY_25_PERCENT.getIndex())
+				.font(basicFont().bold(true)));
 	}
 	
 	public static CellStyle titleVertical(Workbook workBook) {
-		CellStyle style = basic(workBook);
-		fillBackGroundColor(style, IndexedColors.GREY_25_PERCENT.getIndex());
-		
-		Font font = basicFont(workBook);
-		
-		font.setFontHeightInPoints((short) 9);//设置字体大小
-		font.setBold(true);
-		
-		style.setFont(font);
-		
-		return style;
+		return titleHorizontal(workBook);
 	}
 	
 	/**
@@ -130,12 +103,9 @@ public class ExcelStyleTemplate {
 	 * @return
 	 */
 	public static CellStyle tableContent(Workbook workBook) {
-		CellStyle style = basic(workBook);
-		style.setWrapText(true);	//\r\n换行
-		
-		Font font = basicFont(workBook);
-		style.setFont(font);
-		return style;
+		return style(workBook, basicKey()
+				.wrapText(true)	//\r\n换行
+				.font(basicFont()));
 	}
 	
 	/**
@@ -145,13 +115,9 @@ public class ExcelStyleTemplate {
 	 * @return
 	 */
 	public static CellStyle tableContent(Workbook workBook, IndexedColors color) {
-		CellStyle style = basic(workBook);
-		style.setWrapText(true);	//\r\n换行
-		
-		Font font = basicFont(workBook);
-		font.setColor(color.getIndex());
-		style.setFont(font);
-		return style;
+		return style(workBook, basicKey()
+				.wrapText(true)	//\r\n换行
+				.font(basicFont().color(color.getIndex())));
 	}
 	
 	/**
@@ -160,13 +126,10 @@ public class ExcelStyleTemplate {
 	 * @return
 	 */
 	public static CellStyle tableContentLeft(Workbook workBook) {
-		CellStyle style = basic(workBook);
-		style.setAlignment(HorizontalAlignment.LEFT);
-		style.setWrapText(true);	//\r\n换行
-		
-		Font font = basicFont(workBook);
-		style.setFont(font);
-		return style;
+		return style(workBook, basicKey()
+				.alignment(HorizontalAlignment.LEFT)
+				.wrapText(true)	//\r\n换行
+				.font(basicFont()));
 	}
 	
 	/**
@@ -175,31 +138,28 @@ public class ExcelStyleTemplate {
 	 * @return
 	 */
 	public static CellStyle basic(Workbook workBook) {
-		CellStyle style = workBook.createCellStyle();
-		style.setAlignment(HorizontalAlignment.CENTER);			//水平居中 
-		style.setVerticalAlignment(VerticalAlignment.CENTER);	//垂直居中 
-		return style;
+		return style(workBook, basicKey());
 	}
 	
 	/**
-	 * 基础字体
-	 * @param workBook
+	 * 基础单元格样式属性(水平、垂直居中)
 	 * @return
 	 */
-	private static Font basicFont(Workbook workBook) {
-		Font font = workBook.createFont();
-		font.setFontName("宋体");
-		font.setFontHeightInPoints((short) 9);//设置字体大小
-		return font;
+	private static StyleKey basicKey() {
+		return new StyleKey()
+				.alignment(HorizontalAlignment.CENTER)			//水平居中 
+				.verticalAlignment(VerticalAlignment.CENTER);	//垂直居中 
 	}
-
+	
 	/**
-	 * 填充单元格背景色
-	 * @param style
-	 * @param indexColor
+	 * 基础字体(宋体9号)
+	 * @return
 	 */
-	private static void fillBackGroundColor(CellStyle style, short indexColor) {
-		style.setFillForegroundColor(indexColor);
-		style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+	private static FontKey basicFont() {
+		return new FontKey().name("宋体").heightInPoints((short) 9);
+	}
+
+	private static CellStyle style(Workbook workBook, StyleKey key) {
+		return ExcelStyleRegistry.of(workBook).style(key);
 	}
 }
@@ -1,7 +1,8 @@
 package com.ag777.util.file.excel;
 
+import com.ag777.util.file.excel.ExcelStyleRegistry.FontKey;
+import com.ag777.util.file.excel.ExcelStyleRegistry.StyleKey;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.IndexedColors;
@@ -19,9 +20,12 @@ import org.apache.poi.ss.usermodel.Workbook;
  * <li>commons-collections4-4.1.jar</li>
  * </ul>
  * </p>
+ * <p>
+ * 样式和字体通过{@link ExcelStyleRegistry}按属性去重，相同参数返回同一个样式(下标相同)，请勿直接修改返回值
+ * </p>
  * 
  * @author ag777
- * @version last modify at 2018年04月10日
+ * @version last modify at 2026年10月17日
  */
 public class ExcelStyleUtils {
 	
@@ -64,33 +68,33 @@ public class ExcelStyleUtils {
 			Short indention,
 			boolean isWrapText,
 			Font font) {
-		CellStyle style = workBook.createCellStyle();
+		StyleKey key = new StyleKey();
 		
 		if(centerInHorizontal) {
-			style.setAlignment(HorizontalAlignment.CENTER);			//水平居中 
+			key.alignment(HorizontalAlignment.CENTER);			//水平居中 
 		}
 		
 		if(centerInVertical) {
-			style.setVerticalAlignment(VerticalAlignment.CENTER);	//垂直居中 
+			key.verticalAlignment(VerticalAlignment.CENTER);	//垂直居中 
 		}
 		
 		if(indention != null) {
-			style.setIndention((short) (indention-1));	//缩进
+			key.indention((short) (indention-1));	//缩进
 		}
 		
 		if(backgroundColor != null) {
-			fillBackGroundColor(style, backgroundColor.getIndex());
+			key.background(backgroundColor.getIndex());
 		}
 		
 		if(isWrapText) {
-			style.setWrapText(true);	//\r\n换行
+			key.wrapText(true);	//\r\n换行
 		}
 		
 		if(font != null) {
-			style.setFont(font);
+			key.font(FontKey.from(font));
 		}
 		
-		return style;
+		return ExcelStyleRegistry.of(workBook).style(key);
 	}
 
 	/**
@@ -117,37 +121,27 @@ public class ExcelStyleUtils {
 	 * @return
 	 */
 	public static Font customFont(Workbook workBook,String fontName,Short fontSize, IndexedColors color,  boolean isBold, boolean isItalic) {
-		Font font = workBook.createFont();
+		FontKey key = new FontKey();
 		if(fontName != null) {
-			font.setFontName(fontName);
+			key.name(fontName);
 		}
 		if(fontSize != null) {
-			font.setFontHeightInPoints(fontSize);//设置字体大小
+			key.heightInPoints(fontSize);//设置字体大小
 		}
 		
 		if(color != null) {
-			font.setColor(color.getIndex());
+			key.color(color.getIndex());
 		}
 		
 		if(isBold) {
-			font.setBold(true);
+			key.bold(true);
 		}
 		
 		if(isItalic) {
-			font.setItalic(isItalic);
+			key.italic(isItalic);
 		}
 		
-		return font;
-	}
-	
-	/**
-	 * 填充背景色
-	 * @param style
-	 * @param indexColor
-	 */
-	private static void fillBackGroundColor(CellStyle style, short indexColor) {
-		style.setFillForegroundColor(indexColor);
-		style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+		return ExcelStyleRegistry.of(workBook).font(key);
 	}
 	
 }
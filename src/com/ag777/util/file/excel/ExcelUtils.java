@@ -5,7 +5,7 @@ import org.apache.poi.ss.util.CellRangeAddress;
 
 /**
  * @author ag777 <837915770@vip.qq.com>
- * @version 2024/3/12 16:01
+ * @version 2026/10/17 下午11:05
  */
 public class ExcelUtils {
 
@@ -105,6 +105,51 @@ public class ExcelUtils {
         }
     }
 
+    /**
+     * 近似的自动列宽，不做字体测量，适合行数很多的表格。
+     * 行数超过sampleRows时取前一半行，其余行均匀抽样。
+     *
+     * @param sheet 需要调整列宽的工作表
+     * @param sampleRows 最多累计的行数，小于等于0时累计全部行
+     * @see ExcelAutoSizer
+     */
+    public static void autoSizeColumnsFast(Sheet sheet, int sampleRows) {
+        autoSizeFast(sheet, sampleRows, false);
+    }
+
+    /**
+     * 近似的自动列宽和行高(多行文本按行数调整行高)，宽高在累计结束后一次性设置。
+     *
+     * @param sheet 需要调整的工作表
+     * @param sampleRows 最多累计的行数，小于等于0时累计全部行
+     * @param adjustRowHeight 是否调整行高，为true时需要逐行计算，sampleRows不生效
+     */
+    public static void autoSizeFast(Sheet sheet, int sampleRows, boolean adjustRowHeight) {
+        if (sheet == null) {
+            return;
+        }
+        ExcelAutoSizer sizer = new ExcelAutoSizer(sheet.getWorkbook());
+        int first = sheet.getFirstRowNum();
+        int last = sheet.getLastRowNum();
+        int total = last - first + 1;
+        if (adjustRowHeight || sampleRows <= 0 || total <= sampleRows) {
+            for (Row row : sheet) {
+                sizer.track(row);
+            }
+        } else {
+            // 表头和前面的数据行全部累计，剩余部分按固定步长抽样
+            int head = sampleRows / 2;
+            for (int i = first; i < first + head; i++) {
+                sizer.track(sheet.getRow(i));
+            }
+            double step = (double) (total - head) / (sampleRows - head);
+            for (double i = first + head; i <= last; i += step) {
+                sizer.track(sheet.getRow((int) i));
+            }
+        }
+        sizer.apply(sheet, Integer.MAX_VALUE, adjustRowHeight);
+    }
+
     /**
      * 复制一个Excel工作表（Sheet）的所有内容到另一个工作表。
      * 包括列宽、行高、单元格内容、单元格样式和合并单元格等属性。
@@ -173,10 +218,10 @@ public class ExcelUtils {
                 targetCell.setCellValue("");
         }
 
-        // 复制单元格样式：创建新的CellStyle并从源单元格克隆样式，应用到目标单元格
+        // 复制单元格样式：通过目标工作簿的样式注册表clone源样式，相同的源样式只clone一次
         CellStyle sourceStyle = sourceCell.getCellStyle();
-        CellStyle targetStyle = targetCell.getSheet().getWorkbook().createCellStyle();
-        targetStyle.cloneStyleFrom(sourceStyle);
+        CellStyle targetStyle = ExcelStyleRegistry.of(targetCell.getSheet().getWorkbook())
+                .intern(sourceStyle, sourceCell.getSheet().getWorkbook());
         targetCell.setCellStyle(targetStyle);
     }
 }
@@ -27,7 +27,6 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
 import org.apache.poi.ss.util.CellRangeAddress;
-import org.apache.poi.ss.util.RegionUtil;
 import com.ag777.util.lang.IOUtils;
 import com.ag777.util.lang.interf.Disposable;
 
@@ -37,6 +36,9 @@ import com.ag777.util.lang.interf.Disposable;
  * 可直接借用ExcelStyleTemplate作为模板
  * </p>
  * <p>
+ * 生成的是xls文件，所有行都保存在内存中且单页最多65536行，大数据量导出请使用{@link ExcelStreamWriteHelper}
+ * </p>
+ * <p>
  * 	需要jar包:
  * <ul>
  * <li>poi-xxx.jar</li>
@@ -47,13 +49,14 @@ import com.ag777.util.lang.interf.Disposable;
  * </p>
  * 
  * @author ag777
- * @version last modify at 2023年01月21日
+ * @version last modify at 2026年10月17日
  */
 public class ExcelWriteHelper implements Disposable {
 	
 	private Workbook workBook;
 	private Sheet curSheet;
 	private Drawing<?> drawing;	//画图的顶级管理器，一个sheet只能获取一个（一定要注意这点） 
+	private ExcelAutoSizer sizer;	//写入时累计列宽，为null时不累计
 	
 	
 	private int index;
@@ -66,6 +69,14 @@ public class ExcelWriteHelper implements Disposable {
 		return workBook;
 	}
 	
+	/**
+	 * 获取当前工作簿的样式注册表(按属性去重的样式和字体)
+	 * @return 样式注册表
+	 */
+	public ExcelStyleRegistry styles() {
+		return ExcelStyleRegistry.of(workBook);
+	}
+	
 	/**
 	 * 获取当前sheet
 	 * @return 页
@@ -139,10 +150,38 @@ public class ExcelWriteHelper implements Disposable {
 		}
 		drawing = curSheet.createDrawingPatriarch();
 		initIndex();		//游标一开始指向第一行
+		if(sizer != null) {
+			sizer.reset();
+		}
 		return this;
 	}
 	
+	/**
+	 * 开启写入时累计列宽(按字符类别估算，不做字体测量)
+	 * <p>
+	 * 开启后写入的单元格(合并行除外)会累计每列最大宽度和多行文本的行高，
+	 * autoColunWith直接使用累计结果，不再调用poi的autoSizeColumn，大表时快得多
+	 * </p>
+	 * @return 链式调用本身
+	 * @see ExcelAutoSizer
+	 */
+	public ExcelWriteHelper trackColumnWidth() {
+		if(sizer == null) {
+			sizer = new ExcelAutoSizer(workBook);
+		}
+		return this;
+	}
+	
+	/**
+	 * 自动列宽，开启了trackColumnWidth时使用累计的宽度和行高
+	 * @param maxColNum 列数
+	 * @return 链式调用本身
+	 */
 	public ExcelWriteHelper autoColunWith(int maxColNum) {
+		if(sizer != null) {
+			sizer.apply(curSheet, maxColNum, true);
+			return this;
+		}
 		int maxWitdh = 255*256;
 		for (int i = 0; i < maxColNum; i++) {
 			curSheet.autoSizeColumn(i);
@@ -222,6 +261,7 @@ public class ExcelWriteHelper implements Disposable {
 					cell.setCellStyle(titleStyle);
 				}
 				cell.setCellValue(new HSSFRichTextString(titles[i]));
+				track(cell, titles[i]);
 			}
 		}
 		// 创建数据行
@@ -246,8 +286,9 @@ public class ExcelWriteHelper implements Disposable {
 					}
 
 					if(rowObj.containsKey(keys[j]) && rowObj.get(keys[j])!=null){
-						cell.setCellValue(new HSSFRichTextString(rowObj
-								.get(keys[j]).toString()));
+						String text = rowObj.get(keys[j]).toString();
+						cell.setCellValue(new HSSFRichTextString(text));
+						track(cell, text);
 					}else{
 						cell.setCellValue("");
 					}
@@ -311,6 +352,7 @@ public class ExcelWriteHelper implements Disposable {
 					cell.setCellStyle(titleStyle);
 				}
 				cell.setCellValue(new HSSFRichTextString(titles[i]));
+				track(cell, titles[i]);
 			}
 		}
 		// 创建数据行
@@ -326,8 +368,9 @@ public class ExcelWriteHelper implements Disposable {
 				}
 
 				if(dataMap.containsKey(keys[j]) && dataMap.get(keys[j])!=null){
-					cell.setCellValue(new HSSFRichTextString(dataMap
-							.get(keys[j]).toString()));
+					String text = dataMap.get(keys[j]).toString();
+					cell.setCellValue(new HSSFRichTextString(text));
+					track(cell, text);
 				}else{
 					cell.setCellValue("");
 				}
@@ -387,7 +430,7 @@ public class ExcelWriteHelper implements Disposable {
 		if(titles != null) {	//写标题
 			for (String title : titles) {
 				Row row = createRow();
-				createCell(row, 0, title, titleStyle);
+				cell(row, 0, title, titleStyle);
 			}
 			k++;	//标题占了一列
 		}
@@ -406,7 +449,7 @@ public class ExcelWriteHelper implements Disposable {
 
 					CellStyle contentStyle = (j<contentStyles.length)?contentStyles[j]:contentStyles[contentStyles.length-1];
 
-					createCell(row, k + i, rowObj.getOrDefault(keys[j], ""), contentStyle);
+					cell(row, k + i, rowObj.getOrDefault(keys[j], ""), contentStyle);
 				}
 
 			}
@@ -487,7 +530,7 @@ public class ExcelWriteHelper implements Disposable {
 		if(titles != null) {	//写标题
 			for (int i = 0; i < titles.length; i++) {
 				Row row = createRow();
-				createCell(row, 0, titles[i], titleStyle);
+				cell(row, 0, titles[i], titleStyle);
 			}
 			k++;	//标题占了一列
 		}
@@ -505,9 +548,9 @@ public class ExcelWriteHelper implements Disposable {
 				}
 
 				if(dataMap.containsKey(keys[j])) {
-					createCell(row, k, dataMap.get(keys[j]), contentStyle);
+					cell(row, k, dataMap.get(keys[j]), contentStyle);
 				} else {
-					createCell(row, k, "", contentStyle);
+					cell(row, k, "", contentStyle);
 				}
 			}
 
@@ -546,7 +589,7 @@ public class ExcelWriteHelper implements Disposable {
 		if(titles != null) {	//写标题
 			for (int i = 0; i < titles.length; i++) {
 				Row row = createRow();
-				createCell(row, 0, titles[i], titleStyle);
+				cell(row, 0, titles[i], titleStyle);
 			}
 			k++;	//标题占了一列
 		}
@@ -559,7 +602,7 @@ public class ExcelWriteHelper implements Disposable {
 					row = createRow();
 				}
 				CellStyle contentStyle = (i<contentStyles.length)?contentStyles[i]:contentStyles[contentStyles.length-1];
-				createCell(row, k, datas[i], contentStyle);
+				cell(row, k, datas[i], contentStyle);
 			}
 		}
 		
@@ -621,7 +664,10 @@ public class ExcelWriteHelper implements Disposable {
 	 */
 	public Row createLinkRow(Object content, CellStyle style, Hyperlink link) {
 		Row row = createRow();
-		createCell(row, 0, content, style, link);
+		Cell cell = createCell(row, 0, content, style, link);
+		if(content != null) {
+			track(cell, content.toString());
+		}
 		return row;
 	}
 	
@@ -654,7 +700,7 @@ public class ExcelWriteHelper implements Disposable {
 	 */
 	public Row createRow(Object content, CellStyle style) {
 		Row row = createRow();
-		createCell(row, 0, content, style);
+		cell(row, 0, content, style);
 		return row;
 	}
 	
@@ -671,7 +717,15 @@ public class ExcelWriteHelper implements Disposable {
 	 * @return 行
 	 */
 	public Row createRow(List<Object> contentList, CellStyle style) {
-		return createRow(curSheet, index, contentList, style);
+		Row row = createRow(curSheet, index, contentList, style);
+		if(sizer != null && contentList != null) {
+			for(int i=0; i<contentList.size(); i++) {
+				if(contentList.get(i) != null) {
+					track(row.getCell(i), contentList.get(i).toString());
+				}
+			}
+		}
+		return row;
 	}
 	
 	/**
@@ -682,7 +736,7 @@ public class ExcelWriteHelper implements Disposable {
 	public void createRow(Object[] contents, CellStyle style) {
 		Row row = createRow();
 		for(int i=0; i<contents.length; i++) {
-			createCell(
+			cell(
 					row,
 					i,
 					contents[i],
@@ -784,6 +838,33 @@ public class ExcelWriteHelper implements Disposable {
 		return cell;
 	}
 	
+	/**
+	 * 创建单个单元格，开启了列宽累计时同时累计
+	 * @param row 行
+	 * @param colNum 列
+	 * @param content 内容
+	 * @param style 样式
+	 * @return 单元格
+	 */
+	private Cell cell(Row row, int colNum, Object content, CellStyle style) {
+		Cell cell = createCell(row, colNum, content, style);
+		if(content != null) {
+			track(cell, content.toString());
+		}
+		return cell;
+	}
+	
+	/**
+	 * 累计单元格宽度
+	 * @param cell 单元格
+	 * @param text 内容
+	 */
+	private void track(Cell cell, String text) {
+		if(sizer != null) {
+			sizer.track(cell.getRowIndex(), cell.getColumnIndex(), text, cell.getCellStyle());
+		}
+	}
+	
 	/**
 	 * 创建一个带超链接的单元格
 	 * @param row 行
@@ -813,21 +894,24 @@ public class ExcelWriteHelper implements Disposable {
 		if(lastRow < firstRow || lastCol < firstCol) {
 			return;
 		}
-		for(int row = firstRow; row<=lastRow; row++) {
-			CellRangeAddress cellRangeAddress = new CellRangeAddress(firstRow, row, firstCol, lastCol);
-			RegionUtil.setBorderBottom(BorderStyle.THIN, cellRangeAddress, curSheet); 
-		}
-		
-		for(int col = firstCol; col<=lastCol; col++) {
-			CellRangeAddress cellRangeAddress = new CellRangeAddress(firstRow, lastRow, firstCol, col);
-			RegionUtil.setBorderRight(BorderStyle.THIN, cellRangeAddress, curSheet);  
+		/*
+		 * 原先通过RegionUtil逐行逐列设置边框，每个单元格都要遍历工作簿中的全部样式并可能新建样式，
+		 * 这里改为每个单元格四边加细边框，加边框后的样式由注册表按原样式缓存，效果一致
+		 */
+		ExcelStyleRegistry registry = styles();
+		for(int rowNum = firstRow; rowNum<=lastRow; rowNum++) {
+			Row row = curSheet.getRow(rowNum);
+			if(row == null) {
+				row = curSheet.createRow(rowNum);
+			}
+			for(int col = firstCol; col<=lastCol; col++) {
+				Cell cell = row.getCell(col);
+				if(cell == null) {
+					cell = row.createCell(col);
+				}
+				cell.setCellStyle(registry.withBorder(cell.getCellStyle(), BorderStyle.THIN));
+			}
 		}
-		CellRangeAddress cellRangeAddress = new CellRangeAddress(firstRow, lastRow, firstCol, lastCol);
-		
-		RegionUtil.setBorderLeft(BorderStyle.THIN, cellRangeAddress, curSheet);  
-//		RegionUtil.setBorderRight(BorderStyle.THIN, cellRangeAddress, curSheet);  
-		RegionUtil.setBorderTop(BorderStyle.THIN, cellRangeAddress, curSheet); 
-//		RegionUtil.setBorderBottom(BorderStyle.THIN, cellRangeAddress, curSheet);  
 	}
 	
 	/**
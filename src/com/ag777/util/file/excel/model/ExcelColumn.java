@@ -0,0 +1,114 @@
+package com.ag777.util.file.excel.model;
+
+/**
+ * excel类型化读取时的列定义
+ * <p>
+ * 描述第几列、按什么类型读取、映射到pojo的哪个字段。
+ * 读取时直接根据单元格的原始类型转换(数值单元格直接取double)，不经过字符串中转
+ * </p>
+ * <pre>{@code
+ *   ExcelColumn[] columns = {
+ *       ExcelColumn.of(0, ExcelColumn.Type.LONG).field("id"),
+ *       ExcelColumn.of(1, ExcelColumn.Type.DOUBLE).field("price"),
+ *       ExcelColumn.of(2, ExcelColumn.Type.DATE).pattern("yyyy-MM-dd").field("day"),
+ *       ExcelColumn.ofEnum(3, Status.class).field("status")
+ *   };
+ * }</pre>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午10:20
+ */
+public class ExcelColumn {
+
+    /**
+     * 列类型，决定单元格的转换方式和列式结果中使用的数组类型
+     */
+    public enum Type {
+        /** 字符串，列式结果为Object[] */
+        STRING,
+        /** 浮点数，列式结果为double[] */
+        DOUBLE,
+        /** 长整数，列式结果为long[] */
+        LONG,
+        /** 整数，列式结果为int[] */
+        INT,
+        /** 布尔值(true/false/1/0/是/否)，列式结果为boolean[] */
+        BOOLEAN,
+        /** 日期，列式结果为long[](毫秒时间戳) */
+        DATE,
+        /** 枚举(按名称，纯数字时按下标)，列式结果为Object[] */
+        ENUM
+    }
+
+    private final int index;
+    private final Type type;
+    private String field;
+    private String pattern;
+    private Class<? extends Enum<?>> enumClass;
+
+    private ExcelColumn(int index, Type type) {
+        this.index = index;
+        this.type = type;
+    }
+
+    /**
+     * @param index 列下标，从0开始
+     * @param type 类型
+     * @return 列定义
+     */
+    public static ExcelColumn of(int index, Type type) {
+        if (type == Type.ENUM) {
+            throw new IllegalArgumentException("枚举列请使用ofEnum");
+        }
+        return new ExcelColumn(index, type);
+    }
+
+    /**
+     * @param index 列下标，从0开始
+     * @param enumClass 枚举类
+     * @return 列定义
+     */
+    public static ExcelColumn ofEnum(int index, Class<? extends Enum<?>> enumClass) {
+        ExcelColumn column = new ExcelColumn(index, Type.ENUM);
+        column.enumClass = enumClass;
+        return column;
+    }
+
+    /**
+     * @param field 映射到的pojo字段名
+     * @return 列定义本身
+     */
+    public ExcelColumn field(String field) {
+        this.field = field;
+        return this;
+    }
+
+    /**
+     * @param pattern 字符串单元格转日期时使用的格式，如yyyy-MM-dd HH:mm:ss，不设置时按yyyy-MM-dd[ HH:mm[:ss]]解析
+     * @return 列定义本身
+     */
+    public ExcelColumn pattern(String pattern) {
+        this.pattern = pattern;
+        return this;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public Class<? extends Enum<?>> getEnumClass() {
+        return enumClass;
+    }
+}
@@ -0,0 +1,197 @@
+package com.ag777.util.file.excel.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+
+/**
+ * excel类型化读取的列式结果
+ * <p>
+ * 每列按{@link ExcelColumn.Type}保存在对应的基本类型数组中(DOUBLE-double[], LONG/DATE-long[], INT-int[], BOOLEAN-boolean[], 其余-Object[])，
+ * 数值列不产生装箱对象，空单元格通过{@link #isNull(int, int)}判断，对应位置为0/false/null。
+ * 数组长度可能大于{@link #size()}，只有前size个元素有效
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午10:20
+ */
+public class ExcelColumnData {
+
+    private final String sheetName;
+    private final ExcelColumn[] columns;
+    private final Object[] arrays;
+    private final BitSet[] nulls;
+    private int size;
+
+    public ExcelColumnData(String sheetName, ExcelColumn[] columns, int capacity) {
+        this.sheetName = sheetName;
+        this.columns = columns;
+        this.arrays = new Object[columns.length];
+        this.nulls = new BitSet[columns.length];
+        capacity = Math.max(16, capacity);
+        for (int i = 0; i < columns.length; i++) {
+            arrays[i] = newArray(columns[i].getType(), capacity);
+            nulls[i] = new BitSet();
+        }
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public ExcelColumn[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return 行数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param col 列定义的下标(不是excel列号)
+     * @param row 行下标
+     * @return 该单元格是否为空
+     */
+    public boolean isNull(int col, int row) {
+        return nulls[col].get(row);
+    }
+
+    public double[] getDoubles(int col) {
+        return (double[]) arrays[col];
+    }
+
+    /**
+     * @param col 列定义的下标
+     * @return LONG列的值或者DATE列的毫秒时间戳
+     */
+    public long[] getLongs(int col) {
+        return (long[]) arrays[col];
+    }
+
+    public int[] getInts(int col) {
+        return (int[]) arrays[col];
+    }
+
+    public boolean[] getBooleans(int col) {
+        return (boolean[]) arrays[col];
+    }
+
+    public Object[] getObjects(int col) {
+        return (Object[]) arrays[col];
+    }
+
+    /**
+     * 按行列取值(会装箱，仅用于少量读取)
+     * @param col 列定义的下标
+     * @param row 行下标
+     * @return 值，空单元格返回null
+     */
+    public Object get(int col, int row) {
+        if (nulls[col].get(row)) {
+            return null;
+        }
+        switch (columns[col].getType()) {
+            case DOUBLE:
+                return getDoubles(col)[row];
+            case LONG:
+                return getLongs(col)[row];
+            case DATE:
+                return new Date(getLongs(col)[row]);
+            case INT:
+                return getInts(col)[row];
+            case BOOLEAN:
+                return getBooleans(col)[row];
+            default:
+                return getObjects(col)[row];
+        }
+    }
+
+    /*---------------填充数据(读取时使用)------------------------*/
+    /**
+     * 新增一行，返回行下标，之后通过setXxx填充
+     * @return 行下标
+     */
+    public int addRow() {
+        int capacity = capacity();
+        if (size == capacity) {
+            int newCapacity = capacity + (capacity >> 1);
+            for (int i = 0; i < arrays.length; i++) {
+                arrays[i] = grow(arrays[i], newCapacity);
+            }
+        }
+        return size++;
+    }
+
+    public void setNull(int col, int row) {
+        nulls[col].set(row);
+    }
+
+    public void setDouble(int col, int row, double value) {
+        getDoubles(col)[row] = value;
+    }
+
+    public void setLong(int col, int row, long value) {
+        getLongs(col)[row] = value;
+    }
+
+    public void setInt(int col, int row, int value) {
+        getInts(col)[row] = value;
+    }
+
+    public void setBoolean(int col, int row, boolean value) {
+        getBooleans(col)[row] = value;
+    }
+
+    public void setObject(int col, int row, Object value) {
+        getObjects(col)[row] = value;
+    }
+
+    private int capacity() {
+        if (arrays.length == 0) {
+            return Integer.MAX_VALUE;
+        }
+        Object array = arrays[0];
+        if (array instanceof double[]) {
+            return ((double[]) array).length;
+        } else if (array instanceof long[]) {
+            return ((long[]) array).length;
+        } else if (array instanceof int[]) {
+            return ((int[]) array).length;
+        } else if (array instanceof boolean[]) {
+            return ((boolean[]) array).length;
+        }
+        return ((Object[]) array).length;
+    }
+
+    private static Object newArray(ExcelColumn.Type type, int capacity) {
+        switch (type) {
+            case DOUBLE:
+                return new double[capacity];
+            case LONG:
+            case DATE:
+                return new long[capacity];
+            case INT:
+                return new int[capacity];
+            case BOOLEAN:
+                return new boolean[capacity];
+            default:
+                return new Object[capacity];
+        }
+    }
+
+    private static Object grow(Object array, int capacity) {
+        if (array instanceof double[]) {
+            return Arrays.copyOf((double[]) array, capacity);
+        } else if (array instanceof long[]) {
+            return Arrays.copyOf((long[]) array, capacity);
+        } else if (array instanceof int[]) {
+            return Arrays.copyOf((int[]) array, capacity);
+        } else if (array instanceof boolean[]) {
+            return Arrays.copyOf((boolean[]) array, capacity);
+        }
+        return Arrays.copyOf((Object[]) array, capacity);
+    }
+}
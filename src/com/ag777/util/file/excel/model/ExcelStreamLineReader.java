@@ -0,0 +1,19 @@
+package com.ag777.util.file.excel.model;
+
+import java.util.List;
+
+/**
+ * excel流式逐行读取回调
+ * <p>
+ * 与{@link ExcelLineReader}不同，流式读取不会构造Sheet和Row对象；
+ * colList在各行之间复用，回调返回后内容会被覆盖，需要保留时请自行复制
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午8:30
+ */
+@FunctionalInterface
+public interface ExcelStreamLineReader {
+
+    void readLine(String sheetName, int sheetNo, int rowNo, List<String> colList);
+}
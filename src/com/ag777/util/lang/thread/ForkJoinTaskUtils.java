@@ -5,10 +5,11 @@ import com.ag777.util.lang.SystemUtils;
 import com.ag777.util.lang.exception.model.ValidateException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RecursiveAction;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -31,6 +32,39 @@ public class ForkJoinTaskUtils {
         // 输出结果
         System.out.println("Result: " + result);
         System.out.println(System.currentTimeMillis()-startTime);
+
+        // 对比逐个元素拆分(grain=1)和自适应粒度在廉价任务/昂贵任务下的耗时
+        List<Integer> cheapList = IntStream.range(0, 1_000_000).boxed().collect(Collectors.toList());
+        Job<Integer, Integer> cheapJob = (item, index) -> item * 2;
+        List<Integer> expensiveList = IntStream.range(0, 2_000).boxed().collect(Collectors.toList());
+        Job<Integer, Double> expensiveJob = (item, index) -> {
+            double d = item;
+            for (int i = 0; i < 20_000; i++) {
+                d = Math.sqrt(d + i);
+            }
+            return d;
+        };
+        int cores = SystemUtils.cpuCores();
+        for (int round = 0; round < 3; round++) {
+            System.out.println(String.format("round %d: cheap grain=1 %dms, adaptive %dms, commonPool %dms; expensive grain=1 %dms, adaptive %dms",
+                    round,
+                    cost(() -> batch(cheapList, cheapJob, cores, 1)),
+                    cost(() -> batch(cheapList, cheapJob, cores)),
+                    cost(() -> batchInCommonPool(cheapList, cheapJob)),
+                    cost(() -> batch(expensiveList, expensiveJob, cores, 1)),
+                    cost(() -> batch(expensiveList, expensiveJob, cores))));
+        }
+    }
+
+    private static long cost(BenchmarkTask task) throws ValidateException, InterruptedException {
+        long startTime = System.currentTimeMillis();
+        task.run();
+        return System.currentTimeMillis() - startTime;
+    }
+
+    @FunctionalInterface
+    private interface BenchmarkTask {
+        void run() throws ValidateException, InterruptedException;
     }
 
     /**
@@ -58,11 +92,86 @@ public class ForkJoinTaskUtils {
      * @throws ValidateException     如果任务执行中出现验证异常
      */
     public static <T, R> List<R> batch(List<T> list, Job<T, R> job, int concurrencyCount) throws InterruptedException, ValidateException {
+        return batch(list, job, concurrencyCount, 0);
+    }
+
+    /**
+     * 批处理函数，使用 ForkJoinPool 并行处理列表中的元素
+     *
+     * @param list            需要被处理的列表
+     * @param job             表示需要执行的任务，从T到R的转换
+     * @param concurrencyCount 并行处理的线程数量
+     * @param grain           叶子任务处理的元素个数，小于等于0时根据列表大小和并行度自动计算
+     * @return                处理后的结果列表
+     * @throws InterruptedException   如果任务被中断
+     * @throws ValidateException     如果任务执行中出现验证异常
+     */
+    public static <T, R> List<R> batch(List<T> list, Job<T, R> job, int concurrencyCount, int grain) throws InterruptedException, ValidateException {
         // 创建一个 ForkJoinPool 实例，用于并行处理任务
         ForkJoinPool forkJoinPool = new ForkJoinPool(concurrencyCount);
+        try {
+            return invoke(forkJoinPool, list, job, grain);
+        } finally {
+            // 关闭并关闭 ForkJoinPool，确保资源释放
+            forkJoinPool.shutdownNow();
+            ThreadPoolUtils.waitFor(forkJoinPool);
+        }
+    }
+
+    /**
+     * 使用公共池{@link ForkJoinPool#commonPool()}批处理，省去每次调用创建和销毁线程池的开销
+     * <p>
+     * 适合计算密集且耗时短的任务，会阻塞的任务(IO、sleep)请使用{@link #batch(List, Job, int)}，避免占满公共池
+     * </p>
+     *
+     * @param list 需要被处理的列表
+     * @param job  表示需要执行的任务，从T到R的转换
+     * @return 处理后的结果列表
+     * @throws InterruptedException 如果任务被中断
+     * @throws ValidateException    如果任务执行中出现验证异常
+     */
+    public static <T, R> List<R> batchInCommonPool(List<T> list, Job<T, R> job) throws InterruptedException, ValidateException {
+        return batchInCommonPool(list, job, 0);
+    }
+
+    /**
+     * 使用公共池{@link ForkJoinPool#commonPool()}批处理
+     *
+     * @param list  需要被处理的列表
+     * @param job   表示需要执行的任务，从T到R的转换
+     * @param grain 叶子任务处理的元素个数，小于等于0时根据列表大小和并行度自动计算
+     * @return 处理后的结果列表
+     * @throws InterruptedException 如果任务被中断
+     * @throws ValidateException    如果任务执行中出现验证异常
+     */
+    public static <T, R> List<R> batchInCommonPool(List<T> list, Job<T, R> job, int grain) throws InterruptedException, ValidateException {
+        return invoke(ForkJoinPool.commonPool(), list, job, grain);
+    }
+
+    /**
+     * 计算叶子任务大小，让每个线程大约分到8个叶子任务，兼顾负载均衡和拆分开销
+     *
+     * @param size        列表大小
+     * @param parallelism 并行度
+     * @return 叶子任务处理的元素个数
+     */
+    private static int adaptiveGrain(int size, int parallelism) {
+        return Math.max(1, size / (Math.max(1, parallelism) << 3));
+    }
+
+    private static <T, R> List<R> invoke(ForkJoinPool forkJoinPool, List<T> list, Job<T, R> job, int grain) throws InterruptedException, ValidateException {
+        int size = list.size();
+        if (size == 0) {
+            return new ArrayList<>(0);
+        }
+        if (grain <= 0) {
+            grain = adaptiveGrain(size, forkJoinPool.getParallelism());
+        }
+        // 所有叶子任务直接写入同一个结果数组，避免逐层合并列表
+        Object[] results = new Object[size];
         try {
             // 提交任务到 ForkJoinPool，使用 BatchTask 封装需要并行处理的任务
-            return forkJoinPool.invoke(new BatchTask<>(list, job, 0, list.size()));
+            forkJoinPool.invoke(new BatchTask<>(list, job, results, 0, size, grain));
         } catch (CompletionException e) {
             // 处理 CompletionException，获取原始异常
             Throwable t = unpackCompletionException(e);
@@ -75,11 +184,12 @@ public class ForkJoinTaskUtils {
                 // 抛出新的 ValidateException，携带原始异常信息
                 throw new ValidateException(t.getMessage(), t);
             }
-        } finally {
-            // 关闭并关闭 ForkJoinPool，确保资源释放
-            forkJoinPool.shutdownNow();
-            ThreadPoolUtils.waitFor(forkJoinPool);
         }
+        // 数组中的元素都是job返回的R
+        @SuppressWarnings("unchecked")
+        List<R> resultList = (List<R>) Arrays.asList(results);
+        // 返回可修改的ArrayList，调用方可能会add/remove结果
+        return new ArrayList<>(resultList);
     }
 
 
@@ -107,51 +217,43 @@ public class ForkJoinTaskUtils {
     }
 
 
-    // 定义一个 RecursiveTask 来处理列表
-    private static class BatchTask<T, R> extends RecursiveTask<List<R>> {
+    // 定义一个 RecursiveAction 来处理列表，结果按下标写入共享数组
+    private static class BatchTask<T, R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
         private final List<T> list;
         private final Job<T, R> job;
+        private final Object[] results;
         private final int start;
         private final int end;
-        private static final int THRESHOLD = 1; // 阈值，用于决定是否继续拆分任务
+        private final int grain; // 阈值，用于决定是否继续拆分任务
 
-        public BatchTask(List<T> list, Job<T, R> job, int start, int end) {
+        public BatchTask(List<T> list, Job<T, R> job, Object[] results, int start, int end, int grain) {
             this.list = list;
             this.job = job;
+            this.results = results;
             this.start = start;
             this.end = end;
+            this.grain = grain;
         }
 
         @Override
-        protected List<R> compute() {
+        protected void compute() {
             int size = end - start;
-            if (size <= THRESHOLD) {
+            if (size <= grain) {
                 // 如果任务足够小，直接计算
-                List<R> results = new ArrayList<>(size);
                 for (int i = start; i < end; i++) {
                     try {
-                        results.add(job.handleItem(list.get(i), i));
+                        results[i] = job.handleItem(list.get(i), i);
                     } catch (Throwable e) {
                         throw new CompletionException(e); // 将异常包装为CompletionException
                     }
                 }
-                return results;
             } else {
-                // 否则，将任务拆分为两个子任务
-                int mid = (start + end) / 2;
-                BatchTask<T, R> leftTask = new BatchTask<>(list, job, start, mid);
-                BatchTask<T, R> rightTask = new BatchTask<>(list, job, mid, end);
-
-                // 异步执行子任务
-                leftTask.fork();
-                rightTask.fork();
-
-                // 合并子任务的结果
-                List<R> leftResult = leftTask.join();
-                List<R> rightResult = rightTask.join();
-
-                leftResult.addAll(rightResult);
-                return leftResult;
+                // 否则，将任务拆分为两个子任务，invokeAll会fork右半部分异步执行，左半部分在当前线程执行
+                int mid = (start + end) >>> 1;
+                BatchTask<T, R> leftTask = new BatchTask<>(list, job, results, start, mid, grain);
+                BatchTask<T, R> rightTask = new BatchTask<>(list, job, results, mid, end, grain);
+                invokeAll(leftTask, rightTask);
             }
         }
     }
@@ -1,10 +1,12 @@
 package com.ag777.util.lang.thread;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
 
 /**
  * KeyLock类，用于对特定的key进行并发控制。
@@ -12,20 +14,33 @@ import java.util.concurrent.Semaphore;
  * 1. 创建KeyLock实例：KeyLock<String> keyLock = new KeyLock<>();
  * 2. 锁定key：keyLock.lock("key1");
  * 3. 解锁key：keyLock.unlock("key1");
- * 注意：每次lock调用必须对应一个unlock调用，否则会抛出IllegalStateException。
+ * 注意：每次lock调用必须对应一个unlock调用。
+ * <p>
+ * 每个正在使用的key对应一个锁节点(基于{@link StampedLock})，没有线程持有或等待时节点从map中移除，
+ * 并放回按key哈希分段的节点池中复用，高并发下不会为每次加锁分配新对象。
+ * 支持:
+ * <ul>
+ *     <li>写锁(独占，同一线程可重入): lock/tryLock/unlock</li>
+ *     <li>读锁(共享，不可重入，持有写锁时不能再获取读锁): readLock/tryReadLock/unlockRead</li>
+ *     <li>异步获取: lockAsync/readLockAsync返回CompletableFuture，得到的{@link Permit}可以在任意线程释放，适合虚拟线程或异步流水线</li>
+ * </ul>
+ * </p>
  *
  * @param <K> 锁定的key的类型
  * @author ag777 <837915770@vip.qq.com>
- * @version 2023/10/19 10:12
+ * @version 2026/10/17 下午7:30
  */
 public class KeyLock<K> {
-    // 存储key和对应的Semaphore的映射
-    private final ConcurrentMap<K, Semaphore> map = new ConcurrentHashMap<>();
-    // 存储当前线程锁定的key和对应的LockInfo的映射
-    private final ThreadLocal<Map<K, LockInfo>> local = ThreadLocal.withInitial(HashMap::new);
+    /** 节点池分段数 */
+    private static final int POOL_STRIPES = 64;
+
+    // 存储key和对应的锁节点的映射
+    private final ConcurrentMap<K, Node> map = new ConcurrentHashMap<>();
+    // 空闲节点池，按key哈希分段，每段最多缓存一个节点
+    private final AtomicReferenceArray<Node> pool = new AtomicReferenceArray<>(POOL_STRIPES);
 
     /**
-     * 锁定指定的key。
+     * 锁定指定的key(写锁)。
      * 如果key已经被当前线程锁定，则增加锁定计数。
      * 如果key已经被其他线程锁定，则阻塞直到其他线程解锁。
      *
@@ -36,22 +51,55 @@ public class KeyLock<K> {
         if (key == null) {
             return;
         }
-        LockInfo info = local.get().get(key);
-        if (info == null) {
-            Semaphore current = new Semaphore(1);
-            current.acquire();
-            Semaphore previous = map.putIfAbsent(key, current);
-            if (previous != null) {
-                previous.acquire();
-            }
-            local.get().put(key, new LockInfo(current));
-        } else {
-            info.lockCount++;
+        if (reenter(key)) {
+            return;
+        }
+        Node node = retain(key);
+        try {
+            node.lock.writeLockInterruptibly();
+        } catch (InterruptedException e) {
+            release(key, node);
+            throw e;
+        }
+        node.owner = Thread.currentThread();
+        node.holds = 1;
+    }
+
+    /**
+     * 尝试在指定时间内锁定key(写锁)
+     *
+     * @param key 需要锁定的key
+     * @param timeout 超时时间
+     * @param unit 时间单位
+     * @return 是否锁定成功，key为null时返回true
+     * @throws InterruptedException 如果当前线程在等待锁定时被中断
+     */
+    public boolean tryLock(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        if (key == null) {
+            return true;
+        }
+        if (reenter(key)) {
+            return true;
         }
+        Node node = retain(key);
+        long stamp;
+        try {
+            stamp = node.lock.tryWriteLock(timeout, unit);
+        } catch (InterruptedException e) {
+            release(key, node);
+            throw e;
+        }
+        if (stamp == 0) {
+            release(key, node);
+            return false;
+        }
+        node.owner = Thread.currentThread();
+        node.holds = 1;
+        return true;
     }
 
     /**
-     * 解锁指定的key。
+     * 解锁指定的key(写锁)。
      * 如果key已经被当前线程锁定多次，则减少锁定计数。
      * 如果key只被当前线程锁定一次，则解锁key。
      * 如果key没有被当前线程锁定，不进行操作。
@@ -62,24 +110,382 @@ public class KeyLock<K> {
         if (key == null) {
             return;
         }
-        LockInfo info = local.get().get(key);
-        if (info != null) {
-            if (--info.lockCount == 0) {
-                info.current.release();
-                map.remove(key, info.current);
-                local.get().remove(key);
+        Node node = map.get(key);
+        if (node == null || node.owner != Thread.currentThread()) {
+            return;
+        }
+        if (--node.holds == 0) {
+            node.owner = null;
+            node.lock.tryUnlockWrite();
+            release(key, node);
+        }
+    }
+
+    /**
+     * 以共享模式锁定key(读锁)，多个线程可以同时持有同一个key的读锁
+     *
+     * @param key 需要锁定的key
+     * @throws InterruptedException 如果当前线程在等待锁定时被中断
+     */
+    public void readLock(K key) throws InterruptedException {
+        if (key == null) {
+            return;
+        }
+        Node node = retain(key);
+        try {
+            node.lock.readLockInterruptibly();
+        } catch (InterruptedException e) {
+            release(key, node);
+            throw e;
+        }
+    }
+
+    /**
+     * 尝试在指定时间内以共享模式锁定key(读锁)
+     *
+     * @param key 需要锁定的key
+     * @param timeout 超时时间
+     * @param unit 时间单位
+     * @return 是否锁定成功，key为null时返回true
+     * @throws InterruptedException 如果当前线程在等待锁定时被中断
+     */
+    public boolean tryReadLock(K key, long timeout, TimeUnit unit) throws InterruptedException {
+        if (key == null) {
+            return true;
+        }
+        Node node = retain(key);
+        long stamp;
+        try {
+            stamp = node.lock.tryReadLock(timeout, unit);
+        } catch (InterruptedException e) {
+            release(key, node);
+            throw e;
+        }
+        if (stamp == 0) {
+            release(key, node);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 释放一次key的读锁，必须与readLock/tryReadLock成对调用
+     *
+     * @param key 需要解锁的key
+     */
+    public void unlockRead(K key) {
+        if (key == null) {
+            return;
+        }
+        Node node = map.get(key);
+        if (node != null && node.lock.tryUnlockRead()) {
+            release(key, node);
+        }
+    }
+
+    /**
+     * 异步获取key的写锁，使用默认的异步线程池(支持时为虚拟线程)
+     *
+     * @param key 需要锁定的key
+     * @return 获取成功后完成的future，通过{@link Permit#release()}释放(可以在任意线程调用)
+     */
+    public CompletableFuture<Permit> lockAsync(K key) {
+        return acquireAsync(key, true, AsyncExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * 异步获取key的写锁
+     * <p>
+     * 锁空闲时直接返回已完成的future，否则在executor中等待锁
+     * 异步获取的写锁不与线程绑定，不可重入，与同一个key的lock/unlock互斥
+     * </p>
+     *
+     * @param key 需要锁定的key
+     * @param executor 用于等待锁的线程池
+     * @return 获取成功后完成的future，通过{@link Permit#release()}释放(可以在任意线程调用)
+     */
+    public CompletableFuture<Permit> lockAsync(K key, Executor executor) {
+        return acquireAsync(key, true, executor);
+    }
+
+    /**
+     * 异步获取key的读锁，使用默认的异步线程池(支持时为虚拟线程)
+     *
+     * @param key 需要锁定的key
+     * @return 获取成功后完成的future
+     */
+    public CompletableFuture<Permit> readLockAsync(K key) {
+        return acquireAsync(key, false, AsyncExecutorHolder.EXECUTOR);
+    }
+
+    /**
+     * 异步获取key的读锁
+     *
+     * @param key 需要锁定的key
+     * @param executor 用于等待锁的线程池
+     * @return 获取成功后完成的future
+     */
+    public CompletableFuture<Permit> readLockAsync(K key, Executor executor) {
+        return acquireAsync(key, false, executor);
+    }
+
+    /**
+     * @return 当前正在被持有或等待的key的数量
+     */
+    public int size() {
+        return map.size();
+    }
+
+    private CompletableFuture<Permit> acquireAsync(K key, boolean write, Executor executor) {
+        if (key == null) {
+            throw new IllegalArgumentException("key不能为空");
+        }
+        Node node = retain(key);
+        long stamp = write ? node.lock.tryWriteLock() : node.lock.tryReadLock();
+        if (stamp != 0) {
+            return CompletableFuture.completedFuture(new Permit(this, key, node, write));
+        }
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                Permit permit;
+                try {
+                    if (write) {
+                        node.lock.writeLockInterruptibly();
+                    } else {
+                        node.lock.readLockInterruptibly();
+                    }
+                    permit = new Permit(this, key, node, write);
+                } catch (InterruptedException e) {
+                    release(key, node);
+                    future.completeExceptionally(e);
+                    return;
+                }
+                // future已被取消时直接释放
+                if (!future.complete(permit)) {
+                    permit.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            release(key, node);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * 当前线程已经持有key的写锁时增加锁定计数
+     */
+    private boolean reenter(K key) {
+        Node node = map.get(key);
+        if (node != null && node.owner == Thread.currentThread()) {
+            node.holds++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 获取key对应的节点并增加引用计数，节点不存在时从池中取出或新建
+     */
+    private Node retain(K key) {
+        return map.compute(key, (k, node) -> {
+            if (node == null) {
+                node = pool.getAndSet(stripe(k), null);
+                if (node == null) {
+                    node = new Node();
+                }
+            }
+            node.refs++;
+            return node;
+        });
+    }
+
+    /**
+     * 减少引用计数，为0时从map中移除并放回池中
+     */
+    private void release(K key, Node node) {
+        map.computeIfPresent(key, (k, current) -> {
+            if (current != node) {
+                return current;
+            }
+            if (--current.refs == 0) {
+                pool.compareAndSet(stripe(k), null, current);
+                return null;
+            }
+            return current;
+        });
+    }
+
+    private static int stripe(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (POOL_STRIPES - 1);
+    }
+
+    // 内部类，锁节点
+    private static class Node {
+        private final StampedLock lock = new StampedLock();
+        // 持有写锁的线程(同步获取时)，用于重入判断
+        private volatile Thread owner;
+        // 写锁重入次数，只由owner线程读写
+        private int holds;
+        // 持有和等待该节点的数量，只在map.compute中修改
+        private int refs;
+    }
+
+    /**
+     * 异步获取的锁凭证，release可以在任意线程调用，重复调用无效
+     */
+    public static class Permit implements AutoCloseable {
+        private final KeyLock<Object> keyLock;
+        private final Object key;
+        private final Node node;
+        private final boolean write;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        @SuppressWarnings("unchecked")
+        private Permit(KeyLock<?> keyLock, Object key, Node node, boolean write) {
+            this.keyLock = (KeyLock<Object>) keyLock;
+            this.key = key;
+            this.node = node;
+            this.write = write;
+        }
+
+        public boolean isWrite() {
+            return write;
+        }
+
+        public void release() {
+            if (!released.compareAndSet(false, true)) {
+                return;
             }
+            if (write) {
+                node.lock.tryUnlockWrite();
+            } else {
+                node.lock.tryUnlockRead();
+            }
+            keyLock.release(key, node);
+        }
+
+        @Override
+        public void close() {
+            release();
         }
     }
 
-    // 内部类，用于存储Semaphore和锁定计数
-    private static class LockInfo {
-        private final Semaphore current; // 当前的Semaphore
-        private int lockCount; // 锁定计数
+    /* 延迟创建默认的异步线程池 */
+    private static class AsyncExecutorHolder {
+        private static final ExecutorService EXECUTOR = ParallelTaskUtils.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * 在zipf分布(少数key极热)的key访问下与旧实现(每次lock新建Semaphore+ThreadLocal<HashMap>)对比吞吐量
+     */
+    public static void main(String[] args) throws Exception {
+        int keyCount = 10_000;
+        int threads = 8;
+        int opsPerThread = 200_000;
+        int[] keys = zipfKeys(keyCount, 1.1, threads * opsPerThread);
+        for (int round = 0; round < 3; round++) {
+            KeyLock<Integer> keyLock = new KeyLock<>();
+            long cost = benchmark(keys, threads, opsPerThread, keyLock::lock, keyLock::unlock);
+            SemaphoreKeyLock<Integer> legacy = new SemaphoreKeyLock<>();
+            long legacyCost = benchmark(keys, threads, opsPerThread, legacy::lock, legacy::unlock);
+            // 旧实现中等待旧Semaphore的线程不会重新登记，竞争激烈时会有线程永远等不到锁
+            System.out.println(String.format("round %d: KeyLock %s, semaphore KeyLock %s", round,
+                    cost < 0 ? "timeout" : cost + "ms",
+                    legacyCost < 0 ? "timeout" : legacyCost + "ms"));
+        }
+        AsyncExecutorHolder.EXECUTOR.shutdown();
+    }
 
-        private LockInfo(Semaphore current) {
-            this.current = current;
-            this.lockCount = 1;
+    private static long benchmark(int[] keys, int threads, int opsPerThread, LockFunc lock, UnlockFunc unlock) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int[] counters = new int[16];
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * opsPerThread;
+            executor.execute(() -> {
+                try {
+                    for (int i = offset; i < offset + opsPerThread; i++) {
+                        int key = keys[i];
+                        lock.lock(key);
+                        try {
+                            counters[key & 15]++;
+                        } finally {
+                            unlock.unlock(key);
+                        }
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+            return -1;
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    private static int[] zipfKeys(int keyCount, double s, int size) {
+        double[] cdf = new double[keyCount];
+        double sum = 0;
+        for (int i = 0; i < keyCount; i++) {
+            sum += 1 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        int[] keys = new int[size];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < size; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            keys[i] = index >= 0 ? index : Math.min(-index - 1, keyCount - 1);
+        }
+        return keys;
+    }
+
+    @FunctionalInterface
+    private interface LockFunc {
+        void lock(Integer key) throws InterruptedException;
+    }
+
+    @FunctionalInterface
+    private interface UnlockFunc {
+        void unlock(Integer key);
+    }
+
+    /* 旧实现，仅用于性能对比 */
+    private static class SemaphoreKeyLock<K> {
+        private final ConcurrentMap<K, Semaphore> map = new ConcurrentHashMap<>();
+        private final ThreadLocal<Map<K, Object[]>> local = ThreadLocal.withInitial(HashMap::new);
+
+        void lock(K key) throws InterruptedException {
+            Object[] info = local.get().get(key);
+            if (info == null) {
+                Semaphore current = new Semaphore(1);
+                current.acquire();
+                Semaphore previous = map.putIfAbsent(key, current);
+                if (previous != null) {
+                    previous.acquire();
+                }
+                local.get().put(key, new Object[]{current, 1});
+            } else {
+                info[1] = (int) info[1] + 1;
+            }
+        }
+
+        void unlock(K key) {
+            Object[] info = local.get().get(key);
+            if (info != null) {
+                int count = (int) info[1] - 1;
+                info[1] = count;
+                if (count == 0) {
+                    Semaphore current = (Semaphore) info[0];
+                    current.release();
+                    map.remove(key, current);
+                    local.get().remove(key);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,354 @@
+package com.ag777.util.lang.thread;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 微批处理辅助类，将多个线程逐条提交的数据合并成批处理
+ * <p>
+ * 生产者在任意线程调用{@link #offer(Object)}提交数据，当攒够batchSize条或距本批第一条数据超过batchTimeout毫秒时，
+ * 由处理线程(lane)调用一次批处理。队列有界，队列满时offer阻塞，形成背压。
+ * 多个lane共享同一个队列，可以同时执行多个批处理。
+ * 典型用法是把单条插入合并为批量插入、把单条syslog合并为一次发送
+ * </p>
+ * <p>
+ * 使用完毕务必调用{@link #close()}，会处理完队列中剩余的数据(包括close时正在提交的)后结束处理线程。
+ * 处理线程是守护线程，不调用close时不会阻止JVM退出，但退出时队列中的数据会丢失
+ * </p>
+ *
+ * @param <T> 数据类型
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/18 上午6:30
+ */
+public class MicroBatchHelper<T> implements AutoCloseable {
+
+    /** 队列满时offer每隔多久检查一次是否已关闭 */
+    private static final long OFFER_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final BlockingQueue<T> queue;
+    /** 一次性处理的最大数据数量 */
+    private final int batchSize;
+    /** 批处理超时(毫秒)，本批第一条数据到达后超过该时间就先处理已有数据 */
+    private final long batchTimeout;
+    private final BatchHandler<T> handler;
+    private final OnErr<T> onErr;
+    private final Thread[] lanes;
+    private volatile boolean closed;
+    /** 是否已调用shutdownNow，处理线程只在此时响应中断 */
+    private volatile boolean stopped;
+    /** 已通过关闭检查、还没入队完成的offer数，处理线程在关闭后要等它归零才能退出，否则这些数据会丢失 */
+    private final AtomicInteger offering = new AtomicInteger();
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder itemCount = new LongAdder();
+    private final LongAdder errCount = new LongAdder();
+    private final LongAdder totalHandleNanos = new LongAdder();
+    private final AtomicLong maxHandleNanos = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    /**
+     *
+     * @param batchSize 一次性处理的最大数据数量
+     * @param batchTimeout 批处理超时(毫秒)
+     * @param queueCapacity 队列容量，队列满时offer阻塞
+     * @param laneCount 处理线程数，即同时执行的批处理数
+     * @param handler 批处理
+     * @param onErr 批处理异常处理，不会导致处理线程退出
+     */
+    public MicroBatchHelper(int batchSize, long batchTimeout, int queueCapacity, int laneCount, BatchHandler<T> handler, OnErr<T> onErr) {
+        if (batchSize <= 0) {
+            batchSize = 1;
+        }
+        if (laneCount <= 0) {
+            laneCount = 1;
+        }
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, batchSize));
+        this.batchSize = batchSize;
+        this.batchTimeout = Math.max(0, batchTimeout);
+        this.handler = handler;
+        this.onErr = onErr;
+        this.lanes = new Thread[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Thread(this::runLane, "micro-batch-lane-" + i);
+            lanes[i].setDaemon(true);
+            lanes[i].start();
+        }
+    }
+
+    /**
+     * 提交一条数据，队列满时阻塞等待
+     * @param item 数据
+     * @throws InterruptedException 等待时被中断
+     * @throws IllegalStateException 已关闭
+     */
+    public void offer(T item) throws InterruptedException {
+        offer(item, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 提交一条数据，队列满时最多等待指定时间
+     * @param item 数据
+     * @param timeout 超时时间
+     * @param unit 时间单位
+     * @return 是否提交成功
+     * @throws InterruptedException 等待时被中断
+     * @throws IllegalStateException 已关闭(包括等待期间被shutdownNow)
+     */
+    public boolean offer(T item, long timeout, TimeUnit unit) throws InterruptedException {
+        // 先计数再检查，close之后处理线程看到计数为0时，之后的offer一定能看到closed
+        offering.incrementAndGet();
+        try {
+            checkOpen();
+            long remaining = unit.toNanos(timeout);
+            long deadline = System.nanoTime() + remaining;
+            // 分段等待，shutdownNow后处理线程不再取数据，阻塞中的offer要能退出
+            while (!queue.offer(item, Math.min(remaining, OFFER_CHECK_NANOS), TimeUnit.NANOSECONDS)) {
+                checkOpen();
+                remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            offering.decrementAndGet();
+        }
+    }
+
+    /**
+     * @return 队列中等待处理的数据数量
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    /**
+     * 停止接收数据，等待队列中剩余数据处理完毕
+     * <p>
+     * 等待时被中断则恢复中断标记并立即返回，剩余数据仍由处理线程在后台继续处理
+     * </p>
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            for (Thread lane : lanes) {
+                lane.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 立即停止，队列中剩余数据不再处理；阻塞中的offer会抛出IllegalStateException
+     */
+    public void shutdownNow() {
+        closed = true;
+        stopped = true;
+        for (Thread lane : lanes) {
+            lane.interrupt();
+        }
+        queue.clear();
+    }
+
+    /**
+     * @return 当前的统计数据快照
+     */
+    public Metrics getMetrics() {
+        return new Metrics(
+                batchCount.sum(),
+                itemCount.sum(),
+                errCount.sum(),
+                maxBatchSize.get(),
+                totalHandleNanos.sum(),
+                maxHandleNanos.get());
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("已关闭");
+        }
+    }
+
+    private void runLane() {
+        List<T> batch = new ArrayList<>(batchSize);
+        while (!stopped) {
+            try {
+                if (!fill(batch)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                // 只有shutdownNow的中断才退出，其它来源的中断忽略，已取出的数据照常处理
+                if (stopped) {
+                    return;
+                }
+            }
+            if (!batch.isEmpty()) {
+                handleOnce(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+    }
+
+    /**
+     * 从队列中取出一批数据放入batch
+     * @param batch 本批数据
+     * @return 已关闭、没有正在提交的数据且队列为空时返回false，处理线程退出
+     * @throws InterruptedException 等待时被中断
+     */
+    private boolean fill(List<T> batch) throws InterruptedException {
+        // 阻塞等待本批的第一条数据，关闭后按此顺序检查
+        T first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return !(closed && offering.get() == 0 && queue.isEmpty());
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchTimeout);
+        while (batch.size() < batchSize) {
+            // 先无等待地取走已有数据，不够再按剩余时间等待
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                continue;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || closed) {
+                break;
+            }
+            T item = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (item == null) {
+                break;
+            }
+            batch.add(item);
+        }
+        return true;
+    }
+
+    private void handleOnce(List<T> batch) {
+        long start = System.nanoTime();
+        try {
+            handler.handle(batch);
+        } catch (Throwable t) {
+            // 包括批处理抛出的InterruptedException，同样只记为一次异常
+            errCount.increment();
+            if (onErr != null) {
+                onErr.handleErr(t, batch);
+            }
+        } finally {
+            // 清除批处理留下的中断标记，否则下一次poll会立即抛出；shutdownNow由stopped判断，不依赖中断标记
+            Thread.interrupted();
+            long cost = System.nanoTime() - start;
+            batchCount.increment();
+            itemCount.add(batch.size());
+            totalHandleNanos.add(cost);
+            maxHandleNanos.accumulateAndGet(cost, Math::max);
+            maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchHandler<T> {
+        /**
+         * @param items 本批数据，处理完后不会被复用，可以直接持有
+         * @throws Exception 异常交给OnErr处理(包括InterruptedException)，不会导致处理线程退出
+         */
+        void handle(List<T> items) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface OnErr<T> {
+        void handleErr(Throwable t, List<T> items);
+    }
+
+    /**
+     * 统计数据
+     */
+    public static class Metrics {
+        private final long batchCount;
+        private final long itemCount;
+        private final long errCount;
+        private final long maxBatchSize;
+        private final long totalHandleNanos;
+        private final long maxHandleNanos;
+
+        private Metrics(long batchCount, long itemCount, long errCount, long maxBatchSize, long totalHandleNanos, long maxHandleNanos) {
+            this.batchCount = batchCount;
+            this.itemCount = itemCount;
+            this.errCount = errCount;
+            this.maxBatchSize = maxBatchSize;
+            this.totalHandleNanos = totalHandleNanos;
+            this.maxHandleNanos = maxHandleNanos;
+        }
+
+        /** @return 已执行的批处理次数 */
+        public long getBatchCount() {
+            return batchCount;
+        }
+
+        /** @return 已处理的数据条数 */
+        public long getItemCount() {
+            return itemCount;
+        }
+
+        /** @return 抛出异常的批处理次数 */
+        public long getErrCount() {
+            return errCount;
+        }
+
+        /** @return 最大批大小 */
+        public long getMaxBatchSize() {
+            return maxBatchSize;
+        }
+
+        /** @return 平均批大小 */
+        public double getAvgBatchSize() {
+            return batchCount == 0 ? 0 : (double) itemCount / batchCount;
+        }
+
+        /** @return 单次批处理平均耗时(毫秒) */
+        public double getAvgHandleMills() {
+            return batchCount == 0 ? 0 : totalHandleNanos / 1_000_000d / batchCount;
+        }
+
+        /** @return 单次批处理最大耗时(毫秒) */
+        public double getMaxHandleMills() {
+            return maxHandleNanos / 1_000_000d;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("batchCount=%d, itemCount=%d, errCount=%d, avgBatchSize=%.1f, maxBatchSize=%d, avgHandle=%.2fms, maxHandle=%.2fms",
+                    batchCount, itemCount, errCount, getAvgBatchSize(), maxBatchSize, getAvgHandleMills(), getMaxHandleMills());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // 示例: 4个生产者线程各提交1000条数据，每满100条或者50毫秒处理一次，2个lane并行处理
+        MicroBatchHelper<Integer> helper = new MicroBatchHelper<>(100, 50, 1000, 2,
+                items -> TimeUnit.MILLISECONDS.sleep(5),
+                (t, items) -> System.err.println("批处理异常: " + t.getMessage()));
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            final int base = i * 1000;
+            producers[i] = new Thread(() -> {
+                try {
+                    for (int j = 0; j < 1000; j++) {
+                        helper.offer(base + j);
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        helper.close();
+        System.out.println(helper.getMetrics());
+    }
+}
@@ -4,18 +4,29 @@ import com.ag777.util.lang.RandomUtils;
 import com.ag777.util.lang.SystemUtils;
 import com.ag777.util.lang.exception.model.ValidateException;
 
+import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * 任务并发执行工具类,底层采用CompletionService实现
+ * <p>
+ * 另外提供基于虚拟线程的执行模式{@link #batchVirtual(Iterable, Job, int)}，适合大量IO密集型任务;
+ * 以及流式执行模式{@link #batchStreaming(Iterator, Job, int, int, boolean, ResultHandler)}/{@link #stream(Iterator, Job, int, int, boolean)}，适合无界或超大的输入
+ * </p>
  * @author ag777 <837915770@vip.qq.com>
  * @version 2024/9/23 下午3:48
  */
 public class ParallelTaskUtils {
+    /** Executors.newVirtualThreadPerTaskExecutor方法，JVM不支持虚拟线程时为null */
+    private static final Method VIRTUAL_EXECUTOR_FACTORY = findVirtualExecutorFactory();
+
     public static void main(String[] args) throws ValidateException, InterruptedException {
         long startTime = System.currentTimeMillis();
         List<Integer> result = batch(
@@ -27,6 +38,19 @@ public class ParallelTaskUtils {
         // 输出结果
         System.out.println("Result: " + result);
         System.out.println(System.currentTimeMillis()-startTime);
+
+        // 模拟IO密集型任务(每个任务等待20毫秒)，对比线程池和虚拟线程两种模式的吞吐量
+        List<Integer> items = IntStream.range(0, 5000).boxed().collect(Collectors.toList());
+        Job<Integer, Integer> ioJob = (item, index) -> {
+            TimeUnit.MILLISECONDS.sleep(20);
+            return item;
+        };
+        startTime = System.currentTimeMillis();
+        batch(items, ioJob, 200);
+        System.out.println("pooled(200): " + (System.currentTimeMillis()-startTime) + "ms");
+        startTime = System.currentTimeMillis();
+        batchVirtual(items, ioJob, 5000);
+        System.out.println((isVirtualThreadSupported() ? "virtual" : "platform") + "(5000): " + (System.currentTimeMillis()-startTime) + "ms");
     }
 
     /**
@@ -80,18 +104,7 @@ public class ParallelTaskUtils {
                     // 获取任务索引和结果
                     results[task.getData()] = task.get();
                 } catch (ExecutionException e) {
-                    // 获取异常原因
-                    Throwable t = e.getCause();
-                    // 如果原因是中断异常，则重新抛出
-                    if (t instanceof InterruptedException) {
-                        throw (InterruptedException) t;
-                    } else if (t instanceof ValidateException) {
-                        // 如果原因是验证异常，则重新抛出
-                        throw (ValidateException) t;
-                    } else {
-                        // 否则抛出新的验证异常
-                        throw new ValidateException(t.getMessage(), t);
-                    }
+                    throwCause(e.getCause());
                 }
             }
             // 将Object[]转换为R[]
@@ -104,6 +117,119 @@ public class ParallelTaskUtils {
         }
     }
 
+    /**
+     * 使用虚拟线程对可迭代数据集进行批处理
+     * <p>
+     * 每个元素在独立的虚拟线程上执行(JVM不支持虚拟线程时退化为平台线程)，
+     * 并发上限由信号量控制而不是线程池大小，迭代器按许可逐个读取元素，不会一次性提交所有任务。
+     * 适用于HTTP、SFTP等IO密集型任务，虚拟线程下数万并发只占用很少的栈内存。
+     * 任一任务失败后停止提交新任务，并中断正在执行的任务
+     * </p>
+     *
+     * @param iterable 可迭代的数据集
+     * @param job 执行的任务接口
+     * @param maxInFlight 同时执行的最大任务数
+     * @param <T> 输入类型
+     * @param <R> 输出类型
+     * @return 处理后的结果列表，顺序与输入一致
+     * @throws InterruptedException 如果任务被中断
+     * @throws ValidateException 如果验证失败
+     */
+    public static <T, R> List<R> batchVirtual(Iterable<T> iterable, Job<T, R> job, int maxInFlight) throws InterruptedException, ValidateException {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("并发数必须大于0:" + maxInFlight);
+        }
+        Semaphore permits = new Semaphore(maxInFlight);
+        // 记录第一个失败的任务的异常
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Future<R>> futures = iterable instanceof Collection ? new ArrayList<>(((Collection<T>) iterable).size()) : new ArrayList<>();
+        ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        try {
+            int index = 0;
+            for (T item : iterable) {
+                // 等待空闲的许可，控制同时执行的任务数
+                permits.acquire();
+                if (error.get() != null) {
+                    break;
+                }
+                final int currentIndex = index;
+                futures.add(executor.submit(() -> {
+                    try {
+                        return job.handleItem(item, currentIndex);
+                    } catch (Exception e) {
+                        error.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+                index++;
+            }
+            // 等待所有任务完成，按输入顺序收集结果
+            List<R> results = new ArrayList<>(futures.size());
+            for (Future<R> future : futures) {
+                if (error.get() != null) {
+                    break;
+                }
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    error.compareAndSet(null, e.getCause());
+                }
+            }
+            if (error.get() != null) {
+                throwCause(error.get());
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 判断当前JVM是否支持虚拟线程(java21+)
+     * @return 是否支持
+     */
+    public static boolean isVirtualThreadSupported() {
+        return VIRTUAL_EXECUTOR_FACTORY != null;
+    }
+
+    /**
+     * 创建每个任务一个线程的线程池
+     * <p>
+     * 支持虚拟线程时通过反射调用Executors.newVirtualThreadPerTaskExecutor()，否则退化为newCachedThreadPool
+     * </p>
+     * @return 线程池，使用完毕需要调用shutdown
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (VIRTUAL_EXECUTOR_FACTORY != null) {
+            try {
+                return (ExecutorService) VIRTUAL_EXECUTOR_FACTORY.invoke(null);
+            } catch (Exception ignored) {
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * 将任务抛出的异常转换为方法声明的异常类型后抛出
+     * @param t 任务抛出的异常
+     * @throws InterruptedException 如果原因是中断异常
+     * @throws ValidateException 其它情况
+     */
+    private static void throwCause(Throwable t) throws InterruptedException, ValidateException {
+        // 如果原因是中断异常，则重新抛出
+        if (t instanceof InterruptedException) {
+            throw (InterruptedException) t;
+        } else if (t instanceof ValidateException) {
+            // 如果原因是验证异常，则重新抛出
+            throw (ValidateException) t;
+        } else {
+            // 否则抛出新的验证异常
+            throw new ValidateException(t.getMessage(), t);
+        }
+    }
+
     /**
      * 创建一个CompletionServiceHelper辅助类，用于批量处理任务
      * 此方法用于将任务分割成一批一批地处理，每批处理完成后才继续下一批
@@ -152,8 +278,200 @@ public class ParallelTaskUtils {
 
 
 
+    /**
+     * 流式批处理，按处理顺序或输入顺序将结果逐个交给handler
+     * <p>
+     * 只有在处理中的任务数(含等待按序输出的结果)小于window时才从迭代器读取下一个元素，
+     * 内存占用与window成正比而与输入总量无关，适合逐行读取的超大文件等无界输入。
+     * handler在调用线程中执行，任一任务或handler抛出异常时停止读取并中断其余任务
+     * </p>
+     *
+     * @param iterator 输入迭代器，只会在调用线程中访问
+     * @param job 执行的任务接口
+     * @param concurrencyCount 并发数
+     * @param window 最多同时持有的任务数(>=concurrencyCount)，keepOrder时包含等待输出的结果
+     * @param keepOrder 是否按输入顺序输出，否则按完成顺序输出
+     * @param handler 结果处理
+     * @param <T> 输入类型
+     * @param <R> 输出类型
+     * @throws InterruptedException 如果任务被中断
+     * @throws ValidateException 如果任务或handler执行失败
+     */
+    public static <T, R> void batchStreaming(Iterator<T> iterator, Job<T, R> job, int concurrencyCount, int window, boolean keepOrder, ResultHandler<R> handler) throws InterruptedException, ValidateException {
+        StreamingBatch<T, R> batch = new StreamingBatch<>(iterator, job, concurrencyCount, window, keepOrder);
+        try {
+            while (batch.next()) {
+                handler.accept(batch.currentResult(), batch.currentIndex());
+            }
+        } finally {
+            batch.close();
+        }
+    }
+
+    /**
+     * 流式批处理，返回惰性的结果流
+     * <p>
+     * 规则同{@link #batchStreaming(Iterator, Job, int, int, boolean, ResultHandler)}，结果在流被消费时才会继续读取输入。
+     * 任务抛出的异常被包装为{@link CompletionException}抛出。
+     * 返回的流持有线程池，未消费完就放弃时必须调用close(建议使用try-with-resources)
+     * </p>
+     *
+     * @param iterator 输入迭代器
+     * @param job 执行的任务接口
+     * @param concurrencyCount 并发数
+     * @param window 最多同时持有的任务数(>=concurrencyCount)
+     * @param keepOrder 是否按输入顺序输出
+     * @param <T> 输入类型
+     * @param <R> 输出类型
+     * @return 结果流
+     */
+    public static <T, R> Stream<R> stream(Iterator<T> iterator, Job<T, R> job, int concurrencyCount, int window, boolean keepOrder) {
+        StreamingBatch<T, R> batch = new StreamingBatch<>(iterator, job, concurrencyCount, window, keepOrder);
+        Spliterator<R> spliterator = new Spliterators.AbstractSpliterator<R>(Long.MAX_VALUE, keepOrder ? Spliterator.ORDERED : 0) {
+            @Override
+            public boolean tryAdvance(Consumer<? super R> action) {
+                try {
+                    if (!batch.next()) {
+                        batch.close();
+                        return false;
+                    }
+                } catch (InterruptedException e) {
+                    batch.close();
+                    Thread.currentThread().interrupt();
+                    throw new CompletionException(e);
+                } catch (ValidateException e) {
+                    batch.close();
+                    throw new CompletionException(e);
+                }
+                action.accept(batch.currentResult());
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(batch::close);
+    }
+
+    private static Method findVirtualExecutorFactory() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // 预览版(java19/20)未开启--enable-preview时调用会抛出异常，这里试创建一次
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+
     @FunctionalInterface
     public interface Job<T, R> {
         R handleItem(T item, int index) throws ValidateException, InterruptedException;
     }
+
+    @FunctionalInterface
+    public interface ResultHandler<R> {
+        void accept(R result, int index) throws ValidateException, InterruptedException;
+    }
+
+    /**
+     * 流式批处理的执行器，由调用线程拉取结果，只有拉取时才会补充新任务
+     */
+    private static class StreamingBatch<T, R> {
+        private final Iterator<T> iterator;
+        private final Job<T, R> job;
+        private final int window;
+        private final boolean keepOrder;
+        private final ExecutorService pool;
+        private final CompletionService<Indexed<R>> completionService;
+        /* 按序输出时暂存提前完成的结果 */
+        private final Map<Integer, R> reorderBuffer;
+        private int submitIndex;
+        private int emitIndex;
+        private int inFlight;
+        private R currentResult;
+        private int currentIndex;
+
+        StreamingBatch(Iterator<T> iterator, Job<T, R> job, int concurrencyCount, int window, boolean keepOrder) {
+            if (concurrencyCount <= 0) {
+                throw new IllegalArgumentException("并发数必须大于0:" + concurrencyCount);
+            }
+            this.iterator = iterator;
+            this.job = job;
+            this.window = Math.max(window, concurrencyCount);
+            this.keepOrder = keepOrder;
+            this.pool = Executors.newFixedThreadPool(concurrencyCount);
+            this.completionService = new ExecutorCompletionService<>(pool);
+            this.reorderBuffer = keepOrder ? new HashMap<>() : Collections.emptyMap();
+        }
+
+        /**
+         * 拉取下一个结果
+         * @return 是否还有结果
+         */
+        boolean next() throws InterruptedException, ValidateException {
+            fill();
+            if (!keepOrder) {
+                if (inFlight == 0) {
+                    return false;
+                }
+                Indexed<R> indexed = take();
+                fill();
+                currentResult = indexed.value;
+                currentIndex = indexed.index;
+                return true;
+            }
+            while (!reorderBuffer.containsKey(emitIndex)) {
+                if (inFlight == 0) {
+                    return false;
+                }
+                Indexed<R> indexed = take();
+                reorderBuffer.put(indexed.index, indexed.value);
+                fill();
+            }
+            currentResult = reorderBuffer.remove(emitIndex);
+            currentIndex = emitIndex++;
+            return true;
+        }
+
+        R currentResult() {
+            return currentResult;
+        }
+
+        int currentIndex() {
+            return currentIndex;
+        }
+
+        void close() {
+            pool.shutdownNow();
+        }
+
+        private void fill() {
+            // 按序输出时，等待输出的结果也占用窗口，避免队首任务过慢时缓冲区无限增长
+            while (inFlight + reorderBuffer.size() < window && iterator.hasNext()) {
+                T item = iterator.next();
+                final int index = submitIndex++;
+                completionService.submit(() -> new Indexed<>(index, job.handleItem(item, index)));
+                inFlight++;
+            }
+        }
+
+        private Indexed<R> take() throws InterruptedException, ValidateException {
+            Future<Indexed<R>> future = completionService.take();
+            inFlight--;
+            try {
+                return future.get();
+            } catch (ExecutionException e) {
+                throwCause(e.getCause());
+                return null;
+            }
+        }
+    }
+
+    private static class Indexed<R> {
+        private final int index;
+        private final R value;
+
+        Indexed(int index, R value) {
+            this.index = index;
+            this.value = value;
+        }
+    }
 }
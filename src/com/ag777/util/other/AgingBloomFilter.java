@@ -0,0 +1,154 @@
+package com.ag777.util.other;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分代轮转的布隆过滤器，用于"最近一段时间内是否出现过"的排重
+ * <p>
+ * 由N个同规格的{@link BloomFilter}组成，新key写入当前代，查询时检查所有代。
+ * 每隔一个周期，最老的一代被清空后作为新的当前代，内存恒定，无需停机重建。
+ * 一个key在最后一次添加后会被保留 (N-1)*周期 到 N*周期 之间，
+ * 比如需要"最近24小时"可以用 generations=25, 周期=1小时。
+ * 轮转在每次调用时根据当前时间惰性触发，不依赖后台线程，也可以手动调用{@link #rotate()}。
+ * 非线程安全
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午3:40
+ */
+public class AgingBloomFilter {
+
+    private final BloomFilter[] generations;
+    private final long intervalMills;
+    /* 当前代的下标 */
+    private int current;
+    /* 下次轮转的时间点，intervalMills<=0时不自动轮转 */
+    private long nextRotateTime;
+
+    /**
+     * 创建不自动轮转的过滤器，需手动调用{@link #rotate()}
+     * @param generations 代数(>=2)
+     * @param expectedInsertionsPerGeneration 每一代预计插入数量
+     * @param fpp 每一代的期望误判率，整体误判率约为 generations*fpp
+     */
+    public AgingBloomFilter(int generations, long expectedInsertionsPerGeneration, double fpp) {
+        this(generations, expectedInsertionsPerGeneration, fpp, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param generations 代数(>=2)
+     * @param expectedInsertionsPerGeneration 每一代预计插入数量
+     * @param fpp 每一代的期望误判率，整体误判率约为 generations*fpp
+     * @param interval 轮转周期，<=0时不自动轮转
+     * @param unit 周期单位
+     */
+    public AgingBloomFilter(int generations, long expectedInsertionsPerGeneration, double fpp, long interval, TimeUnit unit) {
+        if (generations < 2) {
+            throw new IllegalArgumentException("代数必须大于等于2:" + generations);
+        }
+        this.generations = new BloomFilter[generations];
+        for (int i = 0; i < generations; i++) {
+            this.generations[i] = new BloomFilter(expectedInsertionsPerGeneration, fpp);
+        }
+        this.intervalMills = unit.toMillis(interval);
+        this.current = 0;
+        this.nextRotateTime = intervalMills > 0 ? System.currentTimeMillis() + intervalMills : Long.MAX_VALUE;
+    }
+
+    /**
+     * 添加key，已存在于旧代中的key也会写入当前代以刷新其过期时间
+     * @param value key
+     * @return 该key之前是否不存在
+     */
+    public boolean add(long value) {
+        return put(BloomFilter.MURMUR3.hash(value));
+    }
+
+    public boolean add(byte[] value) {
+        return put(BloomFilter.MURMUR3.hash(value, 0, value.length));
+    }
+
+    public boolean add(CharSequence value) {
+        return put(BloomFilter.MURMUR3.hash(value));
+    }
+
+    public boolean contains(long value) {
+        return mightContain(BloomFilter.MURMUR3.hash(value));
+    }
+
+    public boolean contains(byte[] value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(BloomFilter.MURMUR3.hash(value, 0, value.length));
+    }
+
+    public boolean contains(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(BloomFilter.MURMUR3.hash(value));
+    }
+
+    private boolean put(long hash) {
+        boolean existed = mightContain(hash);
+        generations[current].put(hash);
+        return !existed;
+    }
+
+    private boolean mightContain(long hash) {
+        rotateIfExpired();
+        // 从当前代往前查，越新的代命中概率越高
+        for (int i = 0; i < generations.length; i++) {
+            int index = current - i;
+            if (index < 0) {
+                index += generations.length;
+            }
+            if (generations[index].mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 立即轮转一代：清空最老的一代并作为新的当前代
+     */
+    public void rotate() {
+        current = (current + 1) % generations.length;
+        generations[current].clear();
+    }
+
+    private void rotateIfExpired() {
+        if (nextRotateTime == Long.MAX_VALUE) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now < nextRotateTime) {
+            return;
+        }
+        long steps = (now - nextRotateTime) / intervalMills + 1;
+        for (long i = 0; i < Math.min(steps, generations.length); i++) {
+            rotate();
+        }
+        nextRotateTime += steps * intervalMills;
+    }
+
+    /**
+     * @return 代数
+     */
+    public int getGenerationCount() {
+        return generations.length;
+    }
+
+    /**
+     * @return 各代插入数之和(同一个key可能在多代中被重复统计)
+     */
+    public long getInsertions() {
+        long count = 0;
+        for (BloomFilter generation : generations) {
+            count += generation.getInsertions();
+        }
+        return count;
+    }
+}
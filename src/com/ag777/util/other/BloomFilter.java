@@ -1,83 +1,458 @@
 package com.ag777.util.other;
 
-import java.util.BitSet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 /**
  * 布隆过滤器，可以用于海量url排重，有很小的误差
- * @author 
+ * <p>
+ * 根据预计插入数量和期望误判率计算位数组大小及哈希函数个数,
+ * 对每个key只做一次64位哈希(默认murmur3_x64_128)，再通过双重哈希(h1 + i*h2)得到k个位置。
+ * 支持long/byte[]/CharSequence三种key，计算过程中不产生中间对象。
+ * 可以通过{@link #writeTo(File)}/{@link #readFrom(File)}持久化到文件，读写均基于内存映射。
+ * 非线程安全
+ * </p>
+ * <p>
+ * 不兼容变更: 旧版本的void add(String)改为boolean add(CharSequence)，源码层面兼容，
+ * 但基于旧版本编译的调用方会在运行时抛出NoSuchMethodError，升级时需要重新编译
+ * </p>
  *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 上午10:12
  */
 public class BloomFilter {
-	/* BitSet初始分配2^24个bit */  
-    private static final int DEFAULT_SIZE = 1 << 25;  
-      
-    /* 不同哈希函数的种子，一般应取质数 */  
-    private static final int[] seeds = new int[] { 5, 7, 11, 13, 31, 37, 61 };  
-      
-    private BitSet bits = new BitSet(DEFAULT_SIZE);  
-      
-    /* 哈希函数对象 */  
-    private SimpleHash[] func = new SimpleHash[seeds.length];  
-  
-    public BloomFilter() {  
-        for (int i = 0; i < seeds.length; i++) {  
-            func[i] = new SimpleHash(DEFAULT_SIZE, seeds[i]);  
-        }  
-    }  
-  
-    // 将字符串标记到bits中  
-    public void add(String value) {  
-        for (SimpleHash f : func) {  
-            bits.set(f.hash(value), true);  
-        }  
-    }  
-  
-    // 判断字符串是否已经被bits标记  
-    public boolean contains(String value) {  
-        if (value == null) {  
-            return false;  
-        }  
-          
-        boolean ret = true;  
-        for (SimpleHash f : func) {  
-            ret = ret && bits.get(f.hash(value));  
-        }  
-          
-        return ret;  
-    }  
-  
-    /* 哈希函数类 */  
-    public static class SimpleHash {  
-        private int cap;  
-        private int seed;  
-  
-        public SimpleHash(int cap, int seed) {  
-            this.cap = cap;  
-            this.seed = seed;  
-        }  
-  
-        // hash函数，采用简单的加权和hash  
-        public int hash(String value) {  
-            int result = 0;  
-            int len = value.length();  
-            for (int i = 0; i < len; i++) {  
-                result = seed * result + value.charAt(i);  
-            }  
-            return (cap - 1) & result;  
-        }  
-    }  
-    
-    
+
+    /** 默认预计插入数量 */
+    public static final long DEFAULT_EXPECTED_INSERTIONS = 3_000_000L;
+    /** 默认误判率 */
+    public static final double DEFAULT_FPP = 0.01;
+    /** 默认哈希实现 */
+    public static final Hasher MURMUR3 = new Murmur3Hasher();
+
+    /** 文件头标识 */
+    static final int MAGIC = 0x424C4D46;
+    /** 文件头大小(字节) */
+    static final int HEADER_SIZE = 32;
+    /** 单次映射的最大long个数(1GB) */
+    private static final int MAP_CHUNK_WORDS = 1 << 27;
+
+    private final long[] data;
+    private final long bitSize;
+    private final int numHashFunctions;
+    private final Hasher hasher;
+    private long insertions;
+
+    public BloomFilter() {
+        this(DEFAULT_EXPECTED_INSERTIONS, DEFAULT_FPP);
+    }
+
+    /**
+     * @param expectedInsertions 预计插入数量
+     * @param fpp 期望误判率(0,1)
+     */
+    public BloomFilter(long expectedInsertions, double fpp) {
+        this(expectedInsertions, fpp, MURMUR3);
+    }
+
+    /**
+     * @param expectedInsertions 预计插入数量
+     * @param fpp 期望误判率(0,1)
+     * @param hasher 哈希实现
+     */
+    public BloomFilter(long expectedInsertions, double fpp, Hasher hasher) {
+        this(optimalNumOfBits(checkInsertions(expectedInsertions), checkFpp(fpp)),
+                optimalNumOfHashFunctions(expectedInsertions, optimalNumOfBits(expectedInsertions, fpp)),
+                hasher);
+    }
+
+    BloomFilter(long bitSize, int numHashFunctions, Hasher hasher) {
+        this(new long[wordCount(bitSize)], numHashFunctions, hasher, 0);
+    }
+
+    private BloomFilter(long[] data, int numHashFunctions, Hasher hasher, long insertions) {
+        if (hasher == null) {
+            throw new IllegalArgumentException("hasher不能为空");
+        }
+        this.data = data;
+        this.bitSize = (long) data.length * Long.SIZE;
+        this.numHashFunctions = numHashFunctions;
+        this.hasher = hasher;
+        this.insertions = insertions;
+    }
+
+    /**
+     * 将key标记到位数组中
+     * @param value key
+     * @return 是否有位发生了变化,为false说明该key(可能)已经存在
+     */
+    public boolean add(long value) {
+        return put(hasher.hash(value));
+    }
+
+    public boolean add(byte[] value) {
+        return add(value, 0, value.length);
+    }
+
+    public boolean add(byte[] value, int off, int len) {
+        return put(hasher.hash(value, off, len));
+    }
+
+    public boolean add(CharSequence value) {
+        return put(hasher.hash(value));
+    }
+
+    /**
+     * 判断key是否已经被标记
+     * @param value key
+     * @return false时一定不存在，true时存在误判可能
+     */
+    public boolean contains(long value) {
+        return mightContain(hasher.hash(value));
+    }
+
+    public boolean contains(byte[] value) {
+        if (value == null) {
+            return false;
+        }
+        return contains(value, 0, value.length);
+    }
+
+    public boolean contains(byte[] value, int off, int len) {
+        return mightContain(hasher.hash(value, off, len));
+    }
+
+    public boolean contains(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(hasher.hash(value));
+    }
+
+    /**
+     * 根据已哈希的值标记位数组
+     * @param hash 64位哈希
+     * @return 是否有位发生了变化
+     */
+    boolean put(long hash) {
+        long h2 = secondHash(hash);
+        long combined = hash;
+        boolean changed = false;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitSize;
+            int wordIndex = (int) (index >>> 6);
+            long mask = 1L << index;
+            long word = data[wordIndex];
+            if ((word & mask) == 0) {
+                data[wordIndex] = word | mask;
+                changed = true;
+            }
+            combined += h2;
+        }
+        if (changed) {
+            insertions++;
+        }
+        return changed;
+    }
+
+    boolean mightContain(long hash) {
+        long h2 = secondHash(hash);
+        long combined = hash;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitSize;
+            if ((data[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    /**
+     * @return 位数组大小
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * @return 哈希函数个数
+     */
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    /**
+     * @return 成功插入(改变了位数组)的次数，约等于去重后的元素个数
+     */
+    public long getInsertions() {
+        return insertions;
+    }
+
+    public Hasher getHasher() {
+        return hasher;
+    }
+
+    /**
+     * @return 已置位的位数
+     */
+    public long bitCount() {
+        long count = 0;
+        for (long word : data) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * 根据当前置位比例估算的误判率
+     * @return 误判率
+     */
+    public double expectedFpp() {
+        return Math.pow((double) bitCount() / bitSize, numHashFunctions);
+    }
+
+    /**
+     * 清空过滤器
+     */
+    public void clear() {
+        Arrays.fill(data, 0L);
+        insertions = 0;
+    }
+
+    /**
+     * 通过内存映射将过滤器写入文件，文件已存在则覆盖
+     * @param file 目标文件
+     * @throws IOException IO异常
+     */
+    public void writeTo(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeTo(channel, 0);
+        }
+    }
+
+    /**
+     * 从文件中加载过滤器(使用默认哈希实现)
+     * @param file 由{@link #writeTo(File)}生成的文件
+     * @return 过滤器
+     * @throws IOException IO异常或文件格式不正确
+     */
+    public static BloomFilter readFrom(File file) throws IOException {
+        return readFrom(file, MURMUR3);
+    }
+
+    /**
+     * 从文件中加载过滤器
+     * @param file 由{@link #writeTo(File)}生成的文件
+     * @param hasher 哈希实现，必须与写入时一致
+     * @return 过滤器
+     * @throws IOException IO异常或文件格式不正确
+     */
+    public static BloomFilter readFrom(File file, Hasher hasher) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return readFrom(channel, 0, hasher);
+        }
+    }
+
+    /**
+     * 将过滤器写入通道指定位置
+     * @return 写入结束后的位置
+     */
+    long writeTo(FileChannel channel, long position) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, position, HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putInt(numHashFunctions);
+        header.putLong(data.length);
+        header.putLong(insertions);
+        header.putLong(0L);
+        header.force();
+        return writeLongs(channel, position + HEADER_SIZE, data);
+    }
+
+    static BloomFilter readFrom(FileChannel channel, long position, Hasher hasher) throws IOException {
+        if (channel.size() - position < HEADER_SIZE) {
+            throw new IOException("文件格式不正确");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, position, HEADER_SIZE);
+        if (header.getInt() != MAGIC) {
+            throw new IOException("文件格式不正确");
+        }
+        int numHashFunctions = header.getInt();
+        long words = header.getLong();
+        long insertions = header.getLong();
+        if (words <= 0 || words > Integer.MAX_VALUE || numHashFunctions <= 0
+                || channel.size() - position - HEADER_SIZE < words * Long.BYTES) {
+            throw new IOException("文件格式不正确");
+        }
+        long[] data = new long[(int) words];
+        readLongs(channel, position + HEADER_SIZE, data);
+        return new BloomFilter(data, numHashFunctions, hasher, insertions);
+    }
+
+    /**
+     * 分段映射写入long数组
+     * @return 写入结束后的位置
+     */
+    static long writeLongs(FileChannel channel, long position, long[] data) throws IOException {
+        for (int off = 0; off < data.length; off += MAP_CHUNK_WORDS) {
+            int len = Math.min(MAP_CHUNK_WORDS, data.length - off);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE, position, (long) len * Long.BYTES);
+            buf.asLongBuffer().put(data, off, len);
+            buf.force();
+            position += (long) len * Long.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * 分段映射读取long数组
+     * @return 读取结束后的位置
+     */
+    static long readLongs(FileChannel channel, long position, long[] data) throws IOException {
+        for (int off = 0; off < data.length; off += MAP_CHUNK_WORDS) {
+            int len = Math.min(MAP_CHUNK_WORDS, data.length - off);
+            LongBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) len * Long.BYTES).asLongBuffer();
+            buf.get(data, off, len);
+            position += (long) len * Long.BYTES;
+        }
+        return position;
+    }
+
+    /**
+     * 由第一个哈希派生出第二个哈希，保证为奇数以避免步长退化
+     */
+    static long secondHash(long hash) {
+        return Murmur3Hash.fmix64(hash ^ 0x9e3779b97f4a7c15L) | 1L;
+    }
+
+    /**
+     * 计算最优位数组大小 m = -n*ln(p)/(ln2)^2
+     * @param n 预计插入数量
+     * @param p 期望误判率
+     * @return 位数(按64位对齐)
+     */
+    public static long optimalNumOfBits(long n, double p) {
+        if (p == 0) {
+            p = Double.MIN_VALUE;
+        }
+        long bits = (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        return (long) wordCount(bits) * Long.SIZE;
+    }
+
+    /**
+     * 计算最优哈希函数个数 k = m/n*ln2
+     * @param n 预计插入数量
+     * @param m 位数
+     * @return 哈希函数个数
+     */
+    public static int optimalNumOfHashFunctions(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+
+    static int wordCount(long bitSize) {
+        long words = (bitSize + Long.SIZE - 1) >>> 6;
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("位数组过大:" + bitSize);
+        }
+        return (int) Math.max(1, words);
+    }
+
+    static long checkInsertions(long expectedInsertions) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("预计插入数量必须大于0:" + expectedInsertions);
+        }
+        return expectedInsertions;
+    }
+
+    static double checkFpp(double fpp) {
+        if (!(fpp > 0 && fpp < 1)) {
+            throw new IllegalArgumentException("误判率必须在(0,1)之间:" + fpp);
+        }
+        return fpp;
+    }
+
+    /**
+     * 64位哈希函数，实现类需保证同一个key在不同进程间结果一致(用于持久化)
+     */
+    public interface Hasher {
+        long hash(long value);
+
+        long hash(byte[] value, int off, int len);
+
+        long hash(CharSequence value);
+    }
+
+    /* murmur3_x64_128哈希实现 */
+    private static class Murmur3Hasher implements Hasher {
+        private static final long SEED = 0;
+
+        @Override
+        public long hash(long value) {
+            return Murmur3Hash.hash64(value, SEED);
+        }
+
+        @Override
+        public long hash(byte[] value, int off, int len) {
+            return Murmur3Hash.hash64(value, off, len, SEED);
+        }
+
+        @Override
+        public long hash(CharSequence value) {
+            return Murmur3Hash.hash64(value, SEED);
+        }
+    }
+
+    /**
+     * 旧版本使用的加权和哈希，本类已不再使用，只为兼容直接引用它的代码而保留
+     * @deprecated 分布较差，请使用{@link Hasher}(默认实现为{@link #MURMUR3})
+     */
+    @Deprecated
+    public static class SimpleHash {
+        private int cap;
+        private int seed;
+
+        /**
+         * @param cap 位数组大小，需为2的幂
+         * @param seed 种子
+         */
+        public SimpleHash(int cap, int seed) {
+            this.cap = cap;
+            this.seed = seed;
+        }
+
+        /**
+         * @param value 字符串
+         * @return [0, cap)范围内的位置
+         */
+        public int hash(String value) {
+            int result = 0;
+            int len = value.length();
+            for (int i = 0; i < len; i++) {
+                result = seed * result + value.charAt(i);
+            }
+            return (cap - 1) & result;
+        }
+    }
+
     public static void main(String[] args) {
-    	BloomFilter filter = new BloomFilter();  
+        BloomFilter filter = new BloomFilter(100000, 0.001);
         for(int i=0; i<100000; i++) {
-        	String url = "http://192.168.162."+(i/10)+"/";
-        	  if (filter.contains(url)) {  
-	                System.out.println("contain: " + url);  
-	                continue;  
-	            }  
-	              
-	            filter.add(url);  
-        }
-	}
+            String url = "http://192.168.162."+(i/10)+"/";
+            if (filter.contains(url)) {
+                System.out.println("contain: " + url);
+                continue;
+            }
+
+            filter.add(url);
+        }
+    }
 }
@@ -0,0 +1,256 @@
+package com.ag777.util.other;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程安全的布隆过滤器
+ * <p>
+ * 位数组基于{@link AtomicLongArray}，置位通过对所在long做CAS完成，contains无锁。
+ * 哈希和容量计算方式与{@link BloomFilter}一致，多线程爬虫可以直接用{@link #addIfMissing(CharSequence)}排重。
+ * </p>
+ * <p>
+ * addIfMissing返回true表示本次调用置位了至少一个之前为0的位，即该key之前不存在。
+ * k个位分布在不同的long上，无法用一次CAS整体置位，因此按第一个位所在的long做分段加锁：
+ * 同一个key的第一个位总是相同，多个线程同时添加同一个新key时只有一个线程得到true，不同key大多落在不同的段上互不阻塞
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午2:05
+ */
+public class ConcurrentBloomFilter {
+
+    /** 分段锁的段数，必须是2的幂 */
+    private static final int LOCK_STRIPES = 64;
+
+    private final AtomicLongArray data;
+    private final long bitSize;
+    private final int numHashFunctions;
+    private final BloomFilter.Hasher hasher;
+    private final LongAdder insertions;
+    private final Object[] locks;
+
+    public ConcurrentBloomFilter() {
+        this(BloomFilter.DEFAULT_EXPECTED_INSERTIONS, BloomFilter.DEFAULT_FPP);
+    }
+
+    /**
+     * @param expectedInsertions 预计插入数量
+     * @param fpp 期望误判率(0,1)
+     */
+    public ConcurrentBloomFilter(long expectedInsertions, double fpp) {
+        this(expectedInsertions, fpp, BloomFilter.MURMUR3);
+    }
+
+    /**
+     * @param expectedInsertions 预计插入数量
+     * @param fpp 期望误判率(0,1)
+     * @param hasher 哈希实现
+     */
+    public ConcurrentBloomFilter(long expectedInsertions, double fpp, BloomFilter.Hasher hasher) {
+        if (hasher == null) {
+            throw new IllegalArgumentException("hasher不能为空");
+        }
+        long bits = BloomFilter.optimalNumOfBits(BloomFilter.checkInsertions(expectedInsertions), BloomFilter.checkFpp(fpp));
+        this.data = new AtomicLongArray(BloomFilter.wordCount(bits));
+        this.bitSize = (long) data.length() * Long.SIZE;
+        this.numHashFunctions = BloomFilter.optimalNumOfHashFunctions(expectedInsertions, bitSize);
+        this.hasher = hasher;
+        this.insertions = new LongAdder();
+        this.locks = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 添加key
+     * @param value key
+     * @return 该key之前是否不存在(本次调用是否置位了新的位)
+     */
+    public boolean addIfMissing(long value) {
+        return put(hasher.hash(value));
+    }
+
+    public boolean addIfMissing(byte[] value) {
+        return put(hasher.hash(value, 0, value.length));
+    }
+
+    public boolean addIfMissing(byte[] value, int off, int len) {
+        return put(hasher.hash(value, off, len));
+    }
+
+    public boolean addIfMissing(CharSequence value) {
+        return put(hasher.hash(value));
+    }
+
+    /**
+     * 判断key是否已经被标记
+     * @param value key
+     * @return false时一定不存在，true时存在误判可能
+     */
+    public boolean contains(long value) {
+        return mightContain(hasher.hash(value));
+    }
+
+    public boolean contains(byte[] value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(hasher.hash(value, 0, value.length));
+    }
+
+    public boolean contains(byte[] value, int off, int len) {
+        return mightContain(hasher.hash(value, off, len));
+    }
+
+    public boolean contains(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(hasher.hash(value));
+    }
+
+    private boolean put(long hash) {
+        long h2 = BloomFilter.secondHash(hash);
+        int firstWord = (int) (((hash & Long.MAX_VALUE) % bitSize) >>> 6);
+        boolean changed = false;
+        // 同一个key的置位串行化，保证只有一个线程得到true；其它段的线程可能同时修改同一个long，所以段内仍用CAS置位
+        synchronized (locks[firstWord & (LOCK_STRIPES - 1)]) {
+            long combined = hash;
+            for (int i = 0; i < numHashFunctions; i++) {
+                long index = (combined & Long.MAX_VALUE) % bitSize;
+                if (setBit((int) (index >>> 6), 1L << index)) {
+                    changed = true;
+                }
+                combined += h2;
+            }
+        }
+        if (changed) {
+            insertions.increment();
+        }
+        return changed;
+    }
+
+    /**
+     * CAS置位
+     * @return 是否由本线程将该位从0置为1
+     */
+    private boolean setBit(int wordIndex, long mask) {
+        long word;
+        do {
+            word = data.get(wordIndex);
+            if ((word & mask) != 0) {
+                return false;
+            }
+        } while (!data.compareAndSet(wordIndex, word, word | mask));
+        return true;
+    }
+
+    private boolean mightContain(long hash) {
+        long h2 = BloomFilter.secondHash(hash);
+        long combined = hash;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitSize;
+            if ((data.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    /**
+     * @return 位数组大小
+     */
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    /**
+     * @return 哈希函数个数
+     */
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    /**
+     * @return 成功插入的次数，约等于去重后的元素个数
+     */
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    /**
+     * @return 已置位的位数(并发写入时为近似值)
+     */
+    public long bitCount() {
+        long count = 0;
+        for (int i = 0; i < data.length(); i++) {
+            count += Long.bitCount(data.get(i));
+        }
+        return count;
+    }
+
+    /**
+     * 根据当前置位比例估算的误判率
+     * @return 误判率
+     */
+    public double expectedFpp() {
+        return Math.pow((double) bitCount() / bitSize, numHashFunctions);
+    }
+
+    /**
+     * 与对{@link BloomFilter}整体加synchronized的方式做吞吐量对比(线程数1/4/16)
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int total = 4_000_000;
+        for (int threads : new int[]{1, 4, 16}) {
+            // 预热一轮再计时
+            benchmark(threads, total / 4, false);
+            benchmark(threads, total / 4, true);
+            long syncCost = benchmark(threads, total, false);
+            long casCost = benchmark(threads, total, true);
+            System.out.println(String.format("threads=%d, synchronized: %d ops/ms, striped: %d ops/ms",
+                    threads, total / Math.max(1, syncCost), total / Math.max(1, casCost)));
+        }
+    }
+
+    private static long benchmark(int threads, int total, boolean cas) throws InterruptedException {
+        ConcurrentBloomFilter concurrent = new ConcurrentBloomFilter(total, 0.01);
+        BloomFilter plain = new BloomFilter(total, 0.01);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        int perThread = total / threads;
+        for (int t = 0; t < threads; t++) {
+            final long offset = (long) t * perThread;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = offset; i < offset + perThread; i++) {
+                    // 一半重复key，模拟排重场景
+                    long key = i >>> 1;
+                    if (cas) {
+                        concurrent.addIfMissing(key);
+                    } else {
+                        synchronized (plain) {
+                            plain.add(key);
+                        }
+                    }
+                }
+            });
+        }
+        long startTime = System.currentTimeMillis();
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        return System.currentTimeMillis() - startTime;
+    }
+}
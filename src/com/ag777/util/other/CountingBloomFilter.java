@@ -0,0 +1,189 @@
+package com.ag777.util.other;
+
+import java.util.Arrays;
+
+/**
+ * 计数布隆过滤器，支持删除
+ * <p>
+ * 每个位置使用4位计数器，16个计数器紧凑存放在一个long中，内存为同规格{@link BloomFilter}的4倍。
+ * 计数器达到15后不再增减(饱和)，以避免溢出导致的误删；
+ * 只能删除确实添加过的key，删除未添加过的key可能导致其它key被误判为不存在。
+ * 非线程安全
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 下午3:40
+ */
+public class CountingBloomFilter {
+
+    /** 计数器最大值 */
+    private static final long MAX_COUNT = 0xF;
+
+    private final long[] data;
+    private final long counterSize;
+    private final int numHashFunctions;
+    private final BloomFilter.Hasher hasher;
+    private long size;
+
+    /**
+     * @param expectedInsertions 预计插入数量
+     * @param fpp 期望误判率(0,1)
+     */
+    public CountingBloomFilter(long expectedInsertions, double fpp) {
+        this(expectedInsertions, fpp, BloomFilter.MURMUR3);
+    }
+
+    /**
+     * @param expectedInsertions 预计插入数量
+     * @param fpp 期望误判率(0,1)
+     * @param hasher 哈希实现
+     */
+    public CountingBloomFilter(long expectedInsertions, double fpp, BloomFilter.Hasher hasher) {
+        if (hasher == null) {
+            throw new IllegalArgumentException("hasher不能为空");
+        }
+        long counters = BloomFilter.optimalNumOfBits(BloomFilter.checkInsertions(expectedInsertions), BloomFilter.checkFpp(fpp));
+        // 每个long存放16个计数器
+        long words = (counters + 15) >>> 4;
+        if (words > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("计数器数组过大:" + counters);
+        }
+        this.data = new long[(int) Math.max(1, words)];
+        this.counterSize = (long) data.length << 4;
+        this.numHashFunctions = BloomFilter.optimalNumOfHashFunctions(expectedInsertions, counterSize);
+        this.hasher = hasher;
+    }
+
+    public void add(long value) {
+        put(hasher.hash(value));
+    }
+
+    public void add(byte[] value) {
+        put(hasher.hash(value, 0, value.length));
+    }
+
+    public void add(CharSequence value) {
+        put(hasher.hash(value));
+    }
+
+    public boolean contains(long value) {
+        return mightContain(hasher.hash(value));
+    }
+
+    public boolean contains(byte[] value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(hasher.hash(value, 0, value.length));
+    }
+
+    public boolean contains(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(hasher.hash(value));
+    }
+
+    /**
+     * 删除key
+     * @param value key
+     * @return 是否删除(key不存在时返回false，不做任何修改)
+     */
+    public boolean remove(long value) {
+        return delete(hasher.hash(value));
+    }
+
+    public boolean remove(byte[] value) {
+        if (value == null) {
+            return false;
+        }
+        return delete(hasher.hash(value, 0, value.length));
+    }
+
+    public boolean remove(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        return delete(hasher.hash(value));
+    }
+
+    private void put(long hash) {
+        long h2 = BloomFilter.secondHash(hash);
+        long combined = hash;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % counterSize;
+            int wordIndex = (int) (index >>> 4);
+            int shift = (int) (index & 15) << 2;
+            long word = data[wordIndex];
+            if (((word >>> shift) & MAX_COUNT) != MAX_COUNT) {
+                data[wordIndex] = word + (1L << shift);
+            }
+            combined += h2;
+        }
+        size++;
+    }
+
+    private boolean mightContain(long hash) {
+        long h2 = BloomFilter.secondHash(hash);
+        long combined = hash;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % counterSize;
+            if (((data[(int) (index >>> 4)] >>> ((int) (index & 15) << 2)) & MAX_COUNT) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    private boolean delete(long hash) {
+        if (!mightContain(hash)) {
+            return false;
+        }
+        long h2 = BloomFilter.secondHash(hash);
+        long combined = hash;
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = (combined & Long.MAX_VALUE) % counterSize;
+            int wordIndex = (int) (index >>> 4);
+            int shift = (int) (index & 15) << 2;
+            long word = data[wordIndex];
+            long count = (word >>> shift) & MAX_COUNT;
+            // 饱和的计数器无法得知真实值，保持不变
+            if (count != MAX_COUNT && count != 0) {
+                data[wordIndex] = word - (1L << shift);
+            }
+            combined += h2;
+        }
+        size--;
+        return true;
+    }
+
+    /**
+     * @return 计数器个数
+     */
+    public long getCounterSize() {
+        return counterSize;
+    }
+
+    /**
+     * @return 哈希函数个数
+     */
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    /**
+     * @return 添加次数减去成功删除次数
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 清空过滤器
+     */
+    public void clear() {
+        Arrays.fill(data, 0L);
+        size = 0;
+    }
+}
@@ -0,0 +1,188 @@
+package com.ag777.util.other;
+
+/**
+ * MurmurHash3(x64_128)哈希算法实现
+ * <p>
+ * 对long、byte[]、CharSequence直接计算，不产生中间对象。
+ * CharSequence按UTF-16LE编码后的字节序列参与计算，即hash64("ab")与hash64("ab"的UTF-16LE字节)结果一致。
+ * 返回值取128位结果的前64位(h1)
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 上午10:12
+ */
+public class Murmur3Hash {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private Murmur3Hash() {}
+
+    /**
+     * 计算long值的哈希
+     * @param value 值
+     * @param seed 种子
+     * @return 64位哈希
+     */
+    public static long hash64(long value, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        h1 ^= mixK1(value);
+        return finish(h1, h2, 8);
+    }
+
+    /**
+     * 计算字节数组的哈希
+     * @param data 字节数组
+     * @param seed 种子
+     * @return 64位哈希
+     */
+    public static long hash64(byte[] data, long seed) {
+        return hash64(data, 0, data.length, seed);
+    }
+
+    /**
+     * 计算字节数组指定区间的哈希
+     * @param data 字节数组
+     * @param off 起始位置
+     * @param len 长度
+     * @param seed 种子
+     * @return 64位哈希
+     */
+    @SuppressWarnings("fallthrough")
+    public static long hash64(byte[] data, int off, int len, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        int nblocks = len >>> 4;
+        int pos = off;
+        for (int i = 0; i < nblocks; i++, pos += 16) {
+            long k1 = getLongLE(data, pos);
+            long k2 = getLongLE(data, pos + 8);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        // 尾部不足16字节，按murmur3的约定从高位到低位依次贯穿
+        switch (len & 15) {
+            case 15: k2 ^= (long) (data[pos + 14] & 0xff) << 48;
+            case 14: k2 ^= (long) (data[pos + 13] & 0xff) << 40;
+            case 13: k2 ^= (long) (data[pos + 12] & 0xff) << 32;
+            case 12: k2 ^= (long) (data[pos + 11] & 0xff) << 24;
+            case 11: k2 ^= (long) (data[pos + 10] & 0xff) << 16;
+            case 10: k2 ^= (long) (data[pos + 9] & 0xff) << 8;
+            case 9:  k2 ^= data[pos + 8] & 0xff;
+            case 8:  k1 ^= (long) (data[pos + 7] & 0xff) << 56;
+            case 7:  k1 ^= (long) (data[pos + 6] & 0xff) << 48;
+            case 6:  k1 ^= (long) (data[pos + 5] & 0xff) << 40;
+            case 5:  k1 ^= (long) (data[pos + 4] & 0xff) << 32;
+            case 4:  k1 ^= (long) (data[pos + 3] & 0xff) << 24;
+            case 3:  k1 ^= (long) (data[pos + 2] & 0xff) << 16;
+            case 2:  k1 ^= (long) (data[pos + 1] & 0xff) << 8;
+            case 1:  k1 ^= data[pos] & 0xff;
+                h1 ^= mixK1(k1);
+                h2 ^= mixK2(k2);
+            default:
+        }
+        return finish(h1, h2, len);
+    }
+
+    /**
+     * 计算字符序列的哈希(按UTF-16LE字节计算，不做编码转换)
+     * @param cs 字符序列
+     * @param seed 种子
+     * @return 64位哈希
+     */
+    public static long hash64(CharSequence cs, long seed) {
+        long h1 = seed;
+        long h2 = seed;
+        int len = cs.length();
+        // 每个块16字节，即8个char
+        int nblocks = len >>> 3;
+        int pos = 0;
+        for (int i = 0; i < nblocks; i++, pos += 8) {
+            long k1 = getCharsLE(cs, pos, 4);
+            long k2 = getCharsLE(cs, pos + 4, 4);
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        int remain = len & 7;
+        if (remain > 0) {
+            long k1 = getCharsLE(cs, pos, Math.min(remain, 4));
+            long k2 = remain > 4 ? getCharsLE(cs, pos + 4, remain - 4) : 0;
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+        }
+        return finish(h1, h2, len << 1);
+    }
+
+    /**
+     * murmur3的64位终结混合函数，也可用于由一个哈希值派生出另一个独立分布的哈希值
+     * @param k 输入
+     * @return 混合后的值
+     */
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static long finish(long h1, long h2, int len) {
+        h1 ^= len;
+        h2 ^= len;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        return h1;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long getLongLE(byte[] data, int pos) {
+        return (data[pos] & 0xffL)
+                | (data[pos + 1] & 0xffL) << 8
+                | (data[pos + 2] & 0xffL) << 16
+                | (data[pos + 3] & 0xffL) << 24
+                | (data[pos + 4] & 0xffL) << 32
+                | (data[pos + 5] & 0xffL) << 40
+                | (data[pos + 6] & 0xffL) << 48
+                | (data[pos + 7] & 0xffL) << 56;
+    }
+
+    private static long getCharsLE(CharSequence cs, int pos, int count) {
+        long k = 0;
+        for (int i = 0; i < count; i++) {
+            k |= (long) cs.charAt(pos + i) << (i << 4);
+        }
+        return k;
+    }
+}
@@ -0,0 +1,268 @@
+package com.ag777.util.other;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 可扩容的布隆过滤器
+ * <p>
+ * 由一组{@link BloomFilter}串联而成，当前子过滤器插入数达到容量后，
+ * 按growthFactor扩大容量、按tighteningRatio收紧误判率新建下一个子过滤器，
+ * 整体误判率收敛于 fpp/(1-tighteningRatio)，适用于无法预估总量的场景。
+ * 每个key只哈希一次，在各子过滤器间复用。
+ * 非线程安全
+ * </p>
+ *
+ * @author ag777 <837915770@vip.qq.com>
+ * @version 2026/10/17 上午10:12
+ */
+public class ScalableBloomFilter {
+
+    /** 文件头标识 */
+    private static final int MAGIC = 0x53424C46;
+    private static final int HEADER_SIZE = 40;
+
+    private final List<BloomFilter> filters;
+    private final BloomFilter.Hasher hasher;
+    private final long initialCapacity;
+    private final double fpp;
+    private final int growthFactor;
+    private final double tighteningRatio;
+    /* 当前(最后一个)子过滤器的容量 */
+    private long currentCapacity;
+
+    /**
+     * @param initialCapacity 第一个子过滤器的容量
+     * @param fpp 第一个子过滤器的误判率
+     */
+    public ScalableBloomFilter(long initialCapacity, double fpp) {
+        this(initialCapacity, fpp, 2, 0.8, BloomFilter.MURMUR3);
+    }
+
+    /**
+     * @param initialCapacity 第一个子过滤器的容量
+     * @param fpp 第一个子过滤器的误判率
+     * @param growthFactor 每次扩容的容量倍数(>=1)
+     * @param tighteningRatio 每次扩容误判率的收紧比例(0,1)
+     * @param hasher 哈希实现
+     */
+    public ScalableBloomFilter(long initialCapacity, double fpp, int growthFactor, double tighteningRatio, BloomFilter.Hasher hasher) {
+        BloomFilter.checkInsertions(initialCapacity);
+        BloomFilter.checkFpp(fpp);
+        if (growthFactor < 1) {
+            throw new IllegalArgumentException("扩容倍数必须大于等于1:" + growthFactor);
+        }
+        if (!(tighteningRatio > 0 && tighteningRatio < 1)) {
+            throw new IllegalArgumentException("收紧比例必须在(0,1)之间:" + tighteningRatio);
+        }
+        this.filters = new ArrayList<>();
+        this.hasher = hasher;
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.growthFactor = growthFactor;
+        this.tighteningRatio = tighteningRatio;
+        this.currentCapacity = initialCapacity;
+        filters.add(new BloomFilter(initialCapacity, fpp, hasher));
+    }
+
+    public boolean add(long value) {
+        return put(hasher.hash(value));
+    }
+
+    public boolean add(byte[] value) {
+        return put(hasher.hash(value, 0, value.length));
+    }
+
+    public boolean add(byte[] value, int off, int len) {
+        return put(hasher.hash(value, off, len));
+    }
+
+    public boolean add(CharSequence value) {
+        return put(hasher.hash(value));
+    }
+
+    public boolean contains(long value) {
+        return mightContain(hasher.hash(value));
+    }
+
+    public boolean contains(byte[] value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(hasher.hash(value, 0, value.length));
+    }
+
+    public boolean contains(byte[] value, int off, int len) {
+        return mightContain(hasher.hash(value, off, len));
+    }
+
+    public boolean contains(CharSequence value) {
+        if (value == null) {
+            return false;
+        }
+        return mightContain(hasher.hash(value));
+    }
+
+    /**
+     * @param hash 64位哈希
+     * @return key是否为新增(之前所有子过滤器都不包含)
+     */
+    private boolean put(long hash) {
+        if (mightContain(hash)) {
+            return false;
+        }
+        BloomFilter current = filters.get(filters.size() - 1);
+        if (current.getInsertions() >= currentCapacity) {
+            current = grow();
+        }
+        return current.put(hash);
+    }
+
+    private boolean mightContain(long hash) {
+        // 后加入的子过滤器元素更多，倒序查找命中更快
+        for (int i = filters.size() - 1; i >= 0; i--) {
+            if (filters.get(i).mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private BloomFilter grow() {
+        int n = filters.size();
+        currentCapacity = Math.multiplyExact(currentCapacity, (long) growthFactor);
+        double subFpp = fpp * Math.pow(tighteningRatio, n);
+        BloomFilter filter = new BloomFilter(currentCapacity, Math.max(subFpp, Double.MIN_NORMAL), hasher);
+        filters.add(filter);
+        return filter;
+    }
+
+    /**
+     * @return 子过滤器个数
+     */
+    public int getFilterCount() {
+        return filters.size();
+    }
+
+    /**
+     * @return 所有子过滤器的插入数之和
+     */
+    public long getInsertions() {
+        long count = 0;
+        for (BloomFilter filter : filters) {
+            count += filter.getInsertions();
+        }
+        return count;
+    }
+
+    /**
+     * @return 所有子过滤器的位数之和
+     */
+    public long getBitSize() {
+        long size = 0;
+        for (BloomFilter filter : filters) {
+            size += filter.getBitSize();
+        }
+        return size;
+    }
+
+    /**
+     * 估算整体误判率 1-∏(1-fpp_i)
+     * @return 误判率
+     */
+    public double expectedFpp() {
+        double notFp = 1;
+        for (BloomFilter filter : filters) {
+            notFp *= 1 - filter.expectedFpp();
+        }
+        return 1 - notFp;
+    }
+
+    /**
+     * 通过内存映射将过滤器(含所有子过滤器)写入文件，文件已存在则覆盖
+     * @param file 目标文件
+     * @throws IOException IO异常
+     */
+    public void writeTo(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.putInt(MAGIC);
+            header.putInt(filters.size());
+            header.putInt(growthFactor);
+            header.putInt(0);
+            header.putLong(initialCapacity);
+            header.putDouble(fpp);
+            header.putDouble(tighteningRatio);
+            header.force();
+            long position = HEADER_SIZE;
+            for (BloomFilter filter : filters) {
+                position = filter.writeTo(channel, position);
+            }
+        }
+    }
+
+    public static ScalableBloomFilter readFrom(File file) throws IOException {
+        return readFrom(file, BloomFilter.MURMUR3);
+    }
+
+    /**
+     * 从文件中加载过滤器
+     * @param file 由{@link #writeTo(File)}生成的文件
+     * @param hasher 哈希实现，必须与写入时一致
+     * @return 过滤器
+     * @throws IOException IO异常或文件格式不正确
+     */
+    public static ScalableBloomFilter readFrom(File file, BloomFilter.Hasher hasher) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("文件格式不正确");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("文件格式不正确");
+            }
+            int count = header.getInt();
+            int growthFactor = header.getInt();
+            header.getInt();
+            long initialCapacity = header.getLong();
+            double fpp = header.getDouble();
+            double tighteningRatio = header.getDouble();
+            if (count <= 0 || growthFactor < 1 || initialCapacity <= 0) {
+                throw new IOException("文件格式不正确");
+            }
+            List<BloomFilter> filters = new ArrayList<>(count);
+            long position = HEADER_SIZE;
+            for (int i = 0; i < count; i++) {
+                BloomFilter filter = BloomFilter.readFrom(channel, position, hasher);
+                filters.add(filter);
+                position += BloomFilter.HEADER_SIZE + filter.getBitSize() / Byte.SIZE;
+            }
+            return new ScalableBloomFilter(filters, hasher, initialCapacity, fpp, growthFactor, tighteningRatio);
+        }
+    }
+
+    private ScalableBloomFilter(List<BloomFilter> filters, BloomFilter.Hasher hasher, long initialCapacity, double fpp, int growthFactor, double tighteningRatio) {
+        this.filters = filters;
+        this.hasher = hasher;
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.growthFactor = growthFactor;
+        this.tighteningRatio = tighteningRatio;
+        // 之后每个子过滤器的容量依次乘以扩容倍数
+        long current = initialCapacity;
+        for (int i = 1; i < filters.size(); i++) {
+            current *= growthFactor;
+        }
+        this.currentCapacity = current;
+    }
+}